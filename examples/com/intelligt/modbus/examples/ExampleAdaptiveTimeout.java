@@ -0,0 +1,103 @@
+package com.intelligt.modbus.examples;
+
+import com.intelligt.modbus.jlibmodbus.data.SimpleDataHolderBuilder;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.master.ModbusMaster;
+import com.intelligt.modbus.jlibmodbus.master.ModbusMasterFactory;
+import com.intelligt.modbus.jlibmodbus.master.ModbusRttEstimator;
+import com.intelligt.modbus.jlibmodbus.serial.SerialParameters;
+import com.intelligt.modbus.jlibmodbus.serial.SerialPortException;
+import com.intelligt.modbus.jlibmodbus.serial.SerialPortFactoryLoopback;
+import com.intelligt.modbus.jlibmodbus.serial.SerialUtils;
+import com.intelligt.modbus.jlibmodbus.slave.ModbusSlave;
+import com.intelligt.modbus.jlibmodbus.slave.ModbusSlaveFactory;
+/*
+ * Copyright (C) 2018 "Invertor" Factory", JSC
+ * All rights reserved
+ *
+ * This file is part of JLibModbus.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY,
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Authors: Vladislav Kochedykov.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * simulates a poll cycle on a bus with one online slave and two offline ones,
+ * first with the static response timeout, then with the adaptive timeouts.
+ */
+public class ExampleAdaptiveTimeout {
+
+    final static private int CYCLES = 20;
+    final static private int[] slaves = {1, 2, 3};
+
+    public static void main(String[] argv) {
+        try {
+            SerialParameters serialParameters = new SerialParameters();
+
+            SerialUtils.setSerialPortFactory(new SerialPortFactoryLoopback(false));
+            ModbusSlave slave = ModbusSlaveFactory.createModbusSlaveRTU(serialParameters);
+            slave.setServerAddress(slaves[0]);
+            slave.setReadTimeout(10000);
+            slave.setDataHolder(new SimpleDataHolderBuilder(100).build());
+            slave.listen();
+
+            SerialUtils.setSerialPortFactory(new SerialPortFactoryLoopback(true));
+            ModbusMaster master = ModbusMasterFactory.createModbusMasterRTU(serialParameters);
+            master.setResponseTimeout(1000);
+
+            System.out.println("static timeout,   mean cycle time: " + meanCycleTime(master) + " ms");
+            master.setRttEstimator(new ModbusRttEstimator());
+            System.out.println("adaptive timeout, mean cycle time: " + meanCycleTime(master) + " ms");
+
+            master.disconnect();
+            slave.shutdown();
+        } catch (ModbusIOException e) {
+            e.printStackTrace();
+        } catch (SerialPortException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static private long meanCycleTime(ModbusMaster master) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < CYCLES; i++) {
+            for (int slaveId : slaves) {
+                try {
+                    if (!master.isConnected())
+                        master.connect();
+                    master.readHoldingRegisters(slaveId, 0, 10);
+                } catch (ModbusProtocolException e) {
+                    e.printStackTrace();
+                } catch (ModbusNumberException e) {
+                    e.printStackTrace();
+                } catch (ModbusIOException e) {
+                    // the slave is offline
+                }
+            }
+        }
+        return (System.currentTimeMillis() - start) / CYCLES;
+    }
+}
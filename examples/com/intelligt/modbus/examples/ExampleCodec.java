@@ -0,0 +1,124 @@
+package com.intelligt.modbus.examples;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageFactory;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestBuilder;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestFactory;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusResponseFactory;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
+import com.intelligt.modbus.jlibmodbus.msg.response.ReadCoilsResponse;
+import com.intelligt.modbus.jlibmodbus.msg.response.ReadHoldingRegistersResponse;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * compares the stream path (a byte at a time through ModbusOutputStream/ModbusInputStream, the frame is copied
+ * out of the fifo) with ModbusMessage#encode/#decode working on a ByteBuffer, for the messages with the largest payloads.
+ * <pre>
+ * java ExampleCodec [iterations]
+ * </pre>
+ */
+public class ExampleCodec {
+
+    public static void main(String[] argv) {
+        int iterations = argv.length > 0 ? Integer.parseInt(argv[0]) : 1000000;
+        try {
+            int[] registers = new int[Modbus.MAX_READ_REGISTER_COUNT];
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = (i * 131) & 0xffff;
+            }
+            ReadHoldingRegistersResponse readRegisters = new ReadHoldingRegistersResponse();
+            readRegisters.setServerAddress(1);
+            readRegisters.setBuffer(registers);
+
+            boolean[] coils = new boolean[Modbus.MAX_READ_COIL_COUNT];
+            for (int i = 0; i < coils.length; i += 3) {
+                coils[i] = true;
+            }
+            ReadCoilsResponse readCoils = new ReadCoilsResponse();
+            readCoils.setServerAddress(1);
+            readCoils.setCoils(coils);
+
+            ModbusMessage writeRegisters = ModbusRequestBuilder.getInstance().buildWriteMultipleRegisters(1, 0,
+                    Arrays.copyOf(registers, Modbus.MAX_WRITE_REGISTER_COUNT));
+
+            for (int pass = 0; pass < 3; pass++) {
+                run("FC03 response", readRegisters, ModbusResponseFactory.getInstance(), iterations);
+                run("FC01 response", readCoils, ModbusResponseFactory.getInstance(), iterations);
+                run("FC16 request", writeRegisters, ModbusRequestFactory.getInstance(), iterations);
+            }
+        } catch (ModbusNumberException e) {
+            e.printStackTrace();
+        } catch (ModbusIOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static private void run(String name, ModbusMessage msg, ModbusMessageFactory factory, int iterations) throws ModbusNumberException, ModbusIOException {
+        ModbusOutputStream out = new ModbusOutputStream() {
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(Modbus.MAX_TCP_ADU_LENGTH);
+        ByteBufferInputStream in = new ByteBufferInputStream(buffer);
+        long sum = 0;
+        long time = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            msg.write(out);
+            byte[] frame = out.toByteArray();
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new ModbusIOException(e);
+            }
+            buffer.clear();
+            buffer.put(frame).flip();
+            buffer.position(2);
+            ModbusMessage decoded = factory.createMessage(frame[1] & 0xff);
+            decoded.read(in);
+            sum += decoded.size();
+        }
+        print(name + ", stream", time, iterations, sum);
+        sum = 0;
+        time = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            ModbusMessageCodec.encode(msg, buffer);
+            buffer.flip();
+            sum += ModbusMessageCodec.decode(buffer, factory).size();
+        }
+        print(name + ", ByteBuffer", time, iterations, sum);
+    }
+
+    static private void print(String name, long start, int iterations, long checksum) {
+        long ns = System.nanoTime() - start;
+        System.out.printf("%s: %d encodes+decodes, %.1f ns/message (%d)%n", name, iterations, (double) ns / iterations, checksum);
+    }
+}
@@ -0,0 +1,78 @@
+package com.intelligt.modbus.examples;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.data.ModbusCoils;
+import com.intelligt.modbus.jlibmodbus.data.ModbusPackedCoils;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataAddressException;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataValueException;
+import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * compares the cost of the full (2000 coils) reads of ModbusCoils, converted to the bytes as FC01 does it,
+ * with the direct reads of the bytes from ModbusPackedCoils.
+ */
+public class ExampleCoilStore {
+
+    final static private int SIZE = 65536;
+    final static private int QUANTITY = Modbus.MAX_READ_COIL_COUNT;
+    final static private int READS = 200000;
+
+    public static void main(String[] argv) {
+        try {
+            ModbusCoils coils = new ModbusCoils(SIZE);
+            ModbusPackedCoils packed = new ModbusPackedCoils(SIZE);
+            for (int i = 0; i < SIZE; i += 3) {
+                coils.set(i, true);
+                packed.set(i, true);
+            }
+            byte[] buffer = new byte[DataUtils.bytesForBits(QUANTITY)];
+            for (int pass = 0; pass < 3; pass++) {
+                long sum = 0;
+                long time = System.nanoTime();
+                for (int i = 0; i < READS; i++) {
+                    byte[] bytes = DataUtils.toByteArray(coils.getRange((i * 7) % (SIZE - QUANTITY), QUANTITY));
+                    sum += bytes[0];
+                }
+                print("ModbusCoils", time, sum);
+                sum = 0;
+                time = System.nanoTime();
+                for (int i = 0; i < READS; i++) {
+                    packed.getRangeBytes((i * 7) % (SIZE - QUANTITY), QUANTITY, buffer, 0);
+                    sum += buffer[0];
+                }
+                print("ModbusPackedCoils", time, sum);
+            }
+        } catch (IllegalDataAddressException e) {
+            e.printStackTrace();
+        } catch (IllegalDataValueException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static private void print(String name, long start, long checksum) {
+        long ns = System.nanoTime() - start;
+        System.out.printf("%s: %d reads of %d coils, %.1f ns/read (%d)%n", name, READS, QUANTITY, (double) ns / READS, checksum);
+    }
+}
@@ -0,0 +1,127 @@
+package com.intelligt.modbus.examples;
+
+import com.intelligt.modbus.jlibmodbus.data.DataHolder;
+import com.intelligt.modbus.jlibmodbus.data.SimpleDataHolderBuilder;
+import com.intelligt.modbus.jlibmodbus.data.SimpleModbusFile;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageFactory;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestBuilder;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestFactory;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusResponseFactory;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusFileRecord;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.msg.base.mei.ReadDeviceIdentificationCode;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * checks that ModbusMessage#size() equals the number of the bytes written for a request and a response
+ * of every function code, the MBAP length field and the frame buffers depend on it.
+ * The messages are written by the stream and by the codec, then decoded and checked again.
+ * <pre>
+ * java ExampleFrameSize
+ * </pre>
+ * The exit status is 1 if a mismatch is found.
+ */
+public class ExampleFrameSize {
+
+    static private int checked = 0;
+    static private int failed = 0;
+
+    public static void main(String[] argv) {
+        try {
+            ModbusRequestBuilder builder = ModbusRequestBuilder.getInstance();
+            DataHolder dataHolder = new SimpleDataHolderBuilder(100).build();
+            dataHolder.getSlaveId().set("jlibmodbus".getBytes());
+            dataHolder.getFifoQueue(0).add(1);
+            dataHolder.getFifoQueue(0).add(2);
+            SimpleModbusFile file = new SimpleModbusFile(1);
+            file.write(0, new int[]{1, 2, 3, 4});
+            dataHolder.addFile(file);
+
+            List<ModbusRequest> requests = new ArrayList<ModbusRequest>();
+            requests.add(builder.buildReadCoils(1, 0, 19));
+            requests.add(builder.buildReadDiscreteInputs(1, 0, 9));
+            requests.add(builder.buildReadHoldingRegisters(1, 0, 10));
+            requests.add(builder.buildReadInputRegisters(1, 0, 3));
+            requests.add(builder.buildWriteSingleCoil(1, 1, true));
+            requests.add(builder.buildWriteSingleRegister(1, 2, 0x1234));
+            requests.add(builder.buildReadExceptionStatus(1));
+            requests.add(builder.buildReturnQueryData(1, 0x55aa));
+            requests.add(builder.buildReturnBusMessageCount(1));
+            requests.add(builder.buildGetCommEventCounter(1));
+            requests.add(builder.buildGetCommEventLog(1));
+            requests.add(builder.buildWriteMultipleCoils(1, 0, new boolean[]{true, false, true, true, false, false, true, true, true}));
+            requests.add(builder.buildWriteMultipleRegisters(1, 0, new int[]{1, 2, 3}));
+            requests.add(builder.buildReportSlaveId(1));
+            requests.add(builder.buildReadFileRecord(1, new ModbusFileRecord[]{new ModbusFileRecord(1, 0, 3)}));
+            requests.add(builder.buildWriteFileRecord(1, new ModbusFileRecord(1, 0, new int[]{9, 8, 7, 6})));
+            requests.add(builder.buildMaskWriteRegister(1, 3, 0xf0f0, 0x0f00));
+            requests.add(builder.buildReadWriteMultipleRegisters(1, 0, 4, 10, new int[]{5, 6}));
+            requests.add(builder.buildReadFifoQueue(1, 0));
+            requests.add(builder.buildReadDeviceIdentification(1, 0, ReadDeviceIdentificationCode.BASIC_STREAM_ACCESS));
+            /*
+             * an exception response
+             */
+            requests.add(builder.buildReadHoldingRegisters(1, 95, 10));
+
+            for (ModbusRequest request : requests) {
+                check(request, ModbusRequestFactory.getInstance());
+                ModbusResponse response = request.process(dataHolder);
+                check(response, ModbusResponseFactory.getInstance());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            failed++;
+        }
+        System.out.printf("%d messages checked, %d failed%n", checked, failed);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    static private void check(ModbusMessage msg, ModbusMessageFactory factory) throws Exception {
+        ModbusOutputStream out = new ModbusOutputStream() {
+        };
+        msg.write(out);
+        byte[] frame = out.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(frame.length + 1);
+        msg.encode(buffer);
+        ModbusMessage decoded = factory.createMessage(frame[1] & 0xff);
+        decoded.setServerAddress(frame[0] & 0xff);
+        decoded.read(new ByteBufferInputStream(ByteBuffer.wrap(frame, 2, frame.length - 2)));
+        checked++;
+        if (msg.size() != frame.length || buffer.position() != frame.length || decoded.size() != frame.length) {
+            failed++;
+            System.out.printf("%s: size() %d, written %d, encoded %d, size() of decoded %d%n",
+                    msg.getClass().getSimpleName(), msg.size(), frame.length, buffer.position(), decoded.size());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.intelligt.modbus.examples;
+
+import com.intelligt.modbus.jlibmodbus.data.ModbusCompactRegisters;
+import com.intelligt.modbus.jlibmodbus.data.ModbusHoldingRegisters;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataAddressException;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataValueException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * compares the throughput of ModbusHoldingRegisters and ModbusCompactRegisters under the load typical for a slave:
+ * many threads reading the ranges of the registers and a few writes.
+ * <pre>
+ * java ExampleRegisterStore [threads] [write percent]
+ * </pre>
+ */
+public class ExampleRegisterStore {
+
+    final static private int SIZE = 10000;
+    final static private int QUANTITY = 64;
+    final static private int DURATION = 2000;
+
+    public static void main(String[] argv) {
+        int threads = argv.length > 0 ? Integer.parseInt(argv[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int writePercent = argv.length > 1 ? Integer.parseInt(argv[1]) : 5;
+        try {
+            for (int i = 0; i < 2; i++) {
+                run("ModbusHoldingRegisters", new ModbusHoldingRegisters(SIZE), threads, writePercent);
+                run("ModbusCompactRegisters", new ModbusCompactRegisters(SIZE), threads, writePercent);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static private void run(String name, final ModbusHoldingRegisters registers, int threads, final int writePercent) throws InterruptedException {
+        final AtomicLong operations = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long end = System.currentTimeMillis() + DURATION;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    byte[] buffer = new byte[QUANTITY * 2];
+                    int[] range = new int[QUANTITY];
+                    long count = 0;
+                    int x = seed * 7919 + 1;
+                    try {
+                        start.await();
+                        while (System.currentTimeMillis() < end) {
+                            for (int i = 0; i < 1000; i++, count++) {
+                                x ^= x << 13;
+                                x ^= x >>> 17;
+                                x ^= x << 5;
+                                int offset = (x & 0x7fffffff) % (SIZE - QUANTITY);
+                                if ((x & 0x7fffffff) % 100 < writePercent) {
+                                    range[0] = x & 0xffff;
+                                    registers.setRange(offset, range);
+                                } else {
+                                    registers.getRangeBytes(offset, QUANTITY, buffer, 0);
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (IllegalDataAddressException e) {
+                        e.printStackTrace();
+                    } catch (IllegalDataValueException e) {
+                        e.printStackTrace();
+                    }
+                    operations.addAndGet(count);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("%s: %d threads, %d%% writes, %d ops/ms%n", name, threads, writePercent, operations.get() / DURATION);
+    }
+}
@@ -0,0 +1,160 @@
+package com.intelligt.modbus.examples;
+
+import com.intelligt.modbus.jlibmodbus.data.SimpleDataHolderBuilder;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.master.ModbusMaster;
+import com.intelligt.modbus.jlibmodbus.master.ModbusMasterFactory;
+import com.intelligt.modbus.jlibmodbus.slave.ModbusSlave;
+import com.intelligt.modbus.jlibmodbus.slave.ModbusSlaveFactory;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsParameters;
+
+import javax.net.ssl.SSLContext;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * compares the cost of the full and the abbreviated (resumed) TLS handshakes and the steady-state cost of
+ * the requests over a persistent Modbus/TCP Security connection with the plain ModbusTCP one.
+ * <p>
+ * A self-signed certificate can be created by the keytool, the same key store is used as the trust store
+ * by both sides, so the mutual authentication is tested too:
+ * <pre>
+ * keytool -genkeypair -alias modbus -keyalg EC -keysize 256 -validity 365 -dname CN=localhost
+ *         -keystore modbus.p12 -storetype PKCS12 -storepass changeit
+ * java ExampleTLS modbus.p12 changeit
+ * </pre>
+ */
+public class ExampleTLS {
+
+    final static private int TLS_PORT = 8802;
+    final static private int TCP_PORT = 8502;
+    final static private int CONNECTIONS = 50;
+    final static private int REQUESTS = 5000;
+
+    public static void main(String[] argv) {
+        if (argv.length < 2) {
+            System.out.println("usage: ExampleTLS <key store (PKCS12)> <password>");
+            return;
+        }
+        try {
+            char[] password = argv[1].toCharArray();
+            KeyStore keyStore = loadKeyStore(argv[0], password);
+            InetAddress host = InetAddress.getLoopbackAddress();
+
+            TlsParameters slaveParameters = new TlsParameters(host, TLS_PORT, TlsParameters.createSSLContext(keyStore, password, keyStore));
+            ModbusSlave tlsSlave = ModbusSlaveFactory.createModbusSlaveTLS(slaveParameters);
+            tlsSlave.setServerAddress(1);
+            tlsSlave.setDataHolder(new SimpleDataHolderBuilder(100).build());
+            tlsSlave.listen();
+
+            ModbusSlave tcpSlave = ModbusSlaveFactory.createModbusSlaveTCP(new TcpParameters(host, TCP_PORT, true));
+            tcpSlave.setServerAddress(1);
+            tcpSlave.setDataHolder(new SimpleDataHolderBuilder(100).build());
+            tcpSlave.listen();
+
+            /*
+             * warm up the JIT and the crypto providers
+             */
+            connectionCost(host, keyStore, password, true);
+
+            System.out.printf("full handshake:    %8.3f ms per connection%n", connectionCost(host, keyStore, password, false));
+            System.out.printf("resumed handshake: %8.3f ms per connection%n", connectionCost(host, keyStore, password, true));
+
+            TlsParameters tls = new TlsParameters(host, TLS_PORT, TlsParameters.createSSLContext(keyStore, password, keyStore));
+            System.out.printf("TLS request:       %8.3f ms%n", requestCost(ModbusMasterFactory.createModbusMasterTLS(tls)));
+            System.out.printf("TCP request:       %8.3f ms%n", requestCost(ModbusMasterFactory.createModbusMasterTCP(new TcpParameters(host, TCP_PORT, true))));
+
+            tlsSlave.shutdown();
+            tcpSlave.shutdown();
+        } catch (ModbusIOException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (GeneralSecurityException e) {
+            e.printStackTrace();
+        } catch (ModbusProtocolException e) {
+            e.printStackTrace();
+        } catch (ModbusNumberException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static private KeyStore loadKeyStore(String path, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        InputStream in = new FileInputStream(path);
+        try {
+            keyStore.load(in, password);
+        } finally {
+            in.close();
+        }
+        return keyStore;
+    }
+
+    /**
+     * opens the connections one by one and makes a request through each of them.
+     *
+     * @param resume true - all the connections share an SSLContext, so the sessions are resumed,
+     *               false - each connection has its own context, so each handshake is full.
+     * @return the mean time of a connection, in milliseconds
+     */
+    static private double connectionCost(InetAddress host, KeyStore keyStore, char[] password, boolean resume) throws GeneralSecurityException, ModbusIOException, ModbusProtocolException, ModbusNumberException {
+        SSLContext[] contexts = new SSLContext[CONNECTIONS];
+        for (int i = 0; i < CONNECTIONS; i++) {
+            contexts[i] = resume && i > 0 ? contexts[0] : TlsParameters.createSSLContext(keyStore, password, keyStore);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            TlsParameters tls = new TlsParameters(host, TLS_PORT, contexts[i]);
+            tls.setKeepAlive(false);
+            ModbusMaster master = ModbusMasterFactory.createModbusMasterTLS(tls);
+            master.readHoldingRegisters(1, 0, 10);
+        }
+        return (System.nanoTime() - start) / 1e6 / CONNECTIONS;
+    }
+
+    /**
+     * @return the mean time of a request over a persistent connection, in milliseconds
+     */
+    static private double requestCost(ModbusMaster master) throws ModbusIOException, ModbusProtocolException, ModbusNumberException {
+        master.connect();
+        for (int i = 0; i < REQUESTS / 10; i++) {
+            master.readHoldingRegisters(1, 0, 10);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            master.readHoldingRegisters(1, 0, 10);
+        }
+        double cost = (System.nanoTime() - start) / 1e6 / REQUESTS;
+        master.disconnect();
+        return cost;
+    }
+}
@@ -0,0 +1,129 @@
+package com.intelligt.modbus.examples;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.data.DataHolder;
+import com.intelligt.modbus.jlibmodbus.data.ModbusHoldingRegisters;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.master.ModbusMaster;
+import com.intelligt.modbus.jlibmodbus.master.ModbusMasterFactory;
+import com.intelligt.modbus.jlibmodbus.slave.ModbusSlave;
+import com.intelligt.modbus.jlibmodbus.slave.ModbusSlaveFactory;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.utils.VirtualThreads;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * measures the connection scaling of ModbusSlaveTCP with the fixed thread pool (10 threads by default) and with
+ * a virtual thread per connection (JDK 21+). Each client keeps its connection open and polls the slave
+ * with a pause between the requests, like an HMI or a SCADA poller does.
+ * <pre>
+ * java ExampleVirtualThreads [max clients] [requests per client] [pause, ms]
+ * </pre>
+ */
+public class ExampleVirtualThreads {
+
+    final static private int PORT = 15021;
+
+    public static void main(String[] argv) {
+        int maxClients = argv.length > 0 ? Integer.parseInt(argv[0]) : 200;
+        int requests = argv.length > 1 ? Integer.parseInt(argv[1]) : 20;
+        int pause = argv.length > 2 ? Integer.parseInt(argv[2]) : 10;
+        Modbus.setLogLevel(Modbus.LogLevel.LEVEL_RELEASE);
+        try {
+            for (int clients = 10; clients <= maxClients; clients *= 2) {
+                run(false, clients, requests, pause);
+                if (VirtualThreads.isSupported())
+                    run(true, clients, requests, pause);
+            }
+            if (!VirtualThreads.isSupported())
+                System.out.println("virtual threads are not supported by this runtime, JDK 21+ is required");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    static private void run(boolean virtual, int clients, final int requests, final int pause) throws Exception {
+        Modbus.setVirtualThreadsEnabled(virtual);
+        final TcpParameters tcp = new TcpParameters(InetAddress.getLoopbackAddress(), PORT, true);
+        ModbusSlave slave = ModbusSlaveFactory.createModbusSlaveTCP(tcp);
+        Modbus.setVirtualThreadsEnabled(false);
+        DataHolder dataHolder = new DataHolder();
+        dataHolder.setHoldingRegisters(new ModbusHoldingRegisters(100));
+        slave.setDataHolder(dataHolder);
+        slave.setServerAddress(1);
+        slave.setReadTimeout(0);
+        slave.listen();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong maxLatency = new AtomicLong();
+        Thread[] workers = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            workers[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ModbusMaster master = ModbusMasterFactory.createModbusMasterTCP(tcp);
+                    master.setResponseTimeout(60000);
+                    try {
+                        start.await();
+                        for (int i = 0; i < requests; i++) {
+                            long t = System.nanoTime();
+                            master.readHoldingRegisters(1, 0, 10);
+                            long latency = (System.nanoTime() - t) / 1000000;
+                            long max;
+                            while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency)) ;
+                            Thread.sleep(pause);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        try {
+                            master.disconnect();
+                        } catch (ModbusIOException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            workers[c].start();
+        }
+        long time = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        time = (System.nanoTime() - time) / 1000000;
+        slave.shutdown();
+        System.out.printf("%s: %d clients, %d ms, %d requests/s, max latency %d ms, %d failed%n",
+                virtual ? "virtual threads" : "thread pool", clients, time, clients * requests * 1000L / Math.max(time, 1),
+                maxLatency.get(), failed.get());
+    }
+}
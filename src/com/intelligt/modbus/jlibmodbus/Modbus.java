@@ -37,6 +37,10 @@ final public class Modbus {
     final static public int MIN_PDU_LENGTH = 2;
     final static public int MAX_TCP_ADU_LENGTH = 260;
     final static public int MAX_RTU_ADU_LENGTH = 256;
+    /**
+     * the colon, two characters per byte of the RTU frame except the crc, the LRC, CR and LF
+     */
+    final static public int MAX_ASCII_ADU_LENGTH = 513;
     final static public int MAX_REGISTER_VALUE = 0xFFFF;
     final static public int MIN_START_ADDRESS = 0x0000;
     final static public int MAX_START_ADDRESS = 0xFFFF;
@@ -48,6 +52,10 @@ final public class Modbus {
     final static public int MIN_SERVER_ADDRESS = 1;
     final static public int MAX_SERVER_ADDRESS = 247;
     final static public int TCP_PORT = 502;
+    /**
+     * Modbus/TCP Security
+     */
+    final static public int TLS_PORT = 802;
     final static public int PROTOCOL_ID = 0;
     final static public int TCP_DEFAULT_ID = 0xFF;
     final static public int BROADCAST_ID = 0x00;
@@ -62,6 +70,7 @@ final public class Modbus {
     final static private Logger log = Logger.getLogger(Modbus.class.getName());
     static private LogLevel logLevel = LogLevel.LEVEL_RELEASE;
     static private boolean autoIncrementTransactionId = false;
+    static private volatile boolean virtualThreadsEnabled = false;
 
     /**
      * the end of message delimiter, (LF character by default)
@@ -311,6 +320,28 @@ final public class Modbus {
         Modbus.autoIncrementTransactionId = autoIncrementTransactionId;
     }
 
+    /**
+     * returns virtualThreadsEnabled variable
+     *
+     * @return "true" if the slaves and masters created from now on should use virtual threads, else "false".
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return Modbus.virtualThreadsEnabled;
+    }
+
+    /**
+     * makes the instances created from now on use the virtual threads: ModbusSlaveTCP runs a virtual thread per
+     * connection instead of a fixed thread pool (the number of the connections isn't limited), ModbusSlaveSerial
+     * processes each request on a virtual thread and ModbusMasterTCP#submit runs each request on a virtual thread.
+     * It has no effect if the runtime is older than JDK 21.
+     *
+     * @param virtualThreadsEnabled - new value of the virtualThreadsEnabled variable
+     * @see com.intelligt.modbus.jlibmodbus.utils.VirtualThreads
+     */
+    public static void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        Modbus.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
     /**
      * logging.Level wrapper.
      */
@@ -5,8 +5,10 @@ import com.intelligt.modbus.jlibmodbus.exception.IllegalDataAddressException;
 import com.intelligt.modbus.jlibmodbus.exception.IllegalDataValueException;
 import com.intelligt.modbus.jlibmodbus.exception.IllegalFunctionException;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusFileRecord;
+import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -36,6 +38,26 @@ import java.util.TreeMap;
 facade
  */
 public class DataHolder {
+    /*
+     * the methods of a subclass which overrides readHoldingRegisterRange etc. (e.g. to fire events) must be called
+     * by the byte-level methods too, so they are looked up once per class.
+     */
+    static final private int READ_HOLDING_REGISTERS = 0;
+    static final private int READ_INPUT_REGISTERS = 1;
+    static final private int READ_COILS = 2;
+    static final private int READ_DISCRETE_INPUTS = 3;
+    static final private int WRITE_COILS = 4;
+    static final private ClassValue<boolean[]> OVERRIDDEN = new ClassValue<boolean[]>() {
+        @Override
+        protected boolean[] computeValue(Class<?> type) {
+            return new boolean[]{
+                    isOverridden(type, "readHoldingRegisterRange", int.class, int.class),
+                    isOverridden(type, "readInputRegisterRange", int.class, int.class),
+                    isOverridden(type, "readCoilRange", int.class, int.class),
+                    isOverridden(type, "readDiscreteInputRange", int.class, int.class),
+                    isOverridden(type, "writeCoilRange", int.class, boolean[].class)};
+        }
+    };
     final private CommStatus commStatus = new CommStatus();
     final private Map<Integer, FifoQueue> fifoMap = new TreeMap<Integer, FifoQueue>();
     final private Map<Integer, ModbusFile> fileMap = new TreeMap<Integer, ModbusFile>();
@@ -43,15 +65,36 @@ public class DataHolder {
     private ModbusCoils discreteInputs = null;
     private ModbusHoldingRegisters holdingRegisters = null;
     private ModbusHoldingRegisters inputRegisters = null;
+    final private boolean[] overridden = OVERRIDDEN.get(getClass());
     private SlaveId slaveId = null;
     private ExceptionStatus exceptionStatus = null;
     private ReadDeviceIdentificationInterface readDeviceIdentificationInterface = null;
 
+    static private boolean isOverridden(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes).getDeclaringClass() != DataHolder.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     private void checkPointer(Object o, int offset) throws IllegalDataAddressException {
         if (o == null)
             throw new IllegalDataAddressException(offset);
     }
 
+    static private void toBytes(int[] range, byte[] dst, int dstOffset) {
+        for (int i = 0, j = dstOffset; i < range.length; i++, j += 2) {
+            dst[j] = (byte) (range[i] >> 8);
+            dst[j + 1] = (byte) range[i];
+        }
+    }
+
+    static private void toBytes(boolean[] range, byte[] dst, int dstOffset) {
+        byte[] bytes = DataUtils.toByteArray(range);
+        System.arraycopy(bytes, 0, dst, dstOffset, bytes.length);
+    }
+
     public int readHoldingRegister(int offset) throws IllegalDataAddressException {
         checkPointer(holdingRegisters, offset);
         return holdingRegisters.get(offset);
@@ -62,6 +105,18 @@ public class DataHolder {
         return holdingRegisters.getRange(offset, quantity);
     }
 
+    /**
+     * puts the range of the holding registers into dst the way they are transmitted (big-endian).
+     */
+    public void readHoldingRegisterRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException {
+        if (overridden[READ_HOLDING_REGISTERS]) {
+            toBytes(readHoldingRegisterRange(offset, quantity), dst, dstOffset);
+        } else {
+            checkPointer(holdingRegisters, offset);
+            holdingRegisters.getRangeBytes(offset, quantity, dst, dstOffset);
+        }
+    }
+
     public void writeHoldingRegister(int offset, int value) throws IllegalDataAddressException, IllegalDataValueException {
         checkPointer(holdingRegisters, offset);
         holdingRegisters.set(offset, value);
@@ -77,6 +132,18 @@ public class DataHolder {
         return inputRegisters.getRange(offset, quantity);
     }
 
+    /**
+     * puts the range of the input registers into dst the way they are transmitted (big-endian).
+     */
+    public void readInputRegisterRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException {
+        if (overridden[READ_INPUT_REGISTERS]) {
+            toBytes(readInputRegisterRange(offset, quantity), dst, dstOffset);
+        } else {
+            checkPointer(inputRegisters, offset);
+            inputRegisters.getRangeBytes(offset, quantity, dst, dstOffset);
+        }
+    }
+
     public int[] readFifoQueue(int fifoPointerAddress) throws IllegalDataValueException, IllegalDataAddressException {
         FifoQueue fifoQueue = fifoMap.get(fifoPointerAddress);
         checkPointer(fifoQueue, fifoPointerAddress);
@@ -88,6 +155,20 @@ public class DataHolder {
         return coils.getRange(offset, quantity);
     }
 
+    /**
+     * packs the range of the coils into dst the way they are transmitted.
+     *
+     * @see ModbusCoils#getRangeBytes(int, int, byte[], int)
+     */
+    public void readCoilRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException, IllegalDataValueException {
+        if (overridden[READ_COILS]) {
+            toBytes(readCoilRange(offset, quantity), dst, dstOffset);
+        } else {
+            checkPointer(coils, offset);
+            coils.getRangeBytes(offset, quantity, dst, dstOffset);
+        }
+    }
+
     public void writeCoil(int offset, boolean value) throws IllegalDataAddressException, IllegalDataValueException {
         checkPointer(coils, offset);
         coils.set(offset, value);
@@ -98,6 +179,21 @@ public class DataHolder {
         coils.setRange(offset, range);
     }
 
+    /**
+     * writes the quantity of the coils packed in src starting from the offset.
+     *
+     * @see ModbusCoils#setRangeBytes(int, byte[], int, int)
+     */
+    public void writeCoilRangeBytes(int offset, byte[] src, int srcOffset, int quantity) throws IllegalDataAddressException, IllegalDataValueException {
+        if (overridden[WRITE_COILS]) {
+            byte[] bytes = srcOffset == 0 ? src : Arrays.copyOfRange(src, srcOffset, srcOffset + DataUtils.bytesForBits(quantity));
+            writeCoilRange(offset, DataUtils.toBitsArray(bytes, quantity));
+        } else {
+            checkPointer(coils, offset);
+            coils.setRangeBytes(offset, src, srcOffset, quantity);
+        }
+    }
+
     public byte[] readSlaveId() throws IllegalFunctionException {
         if (slaveId == null)
             throw new IllegalFunctionException(ModbusFunctionCode.REPORT_SLAVE_ID.toInt());
@@ -115,6 +211,20 @@ public class DataHolder {
         return discreteInputs.getRange(offset, quantity);
     }
 
+    /**
+     * packs the range of the discrete inputs into dst the way they are transmitted.
+     *
+     * @see ModbusCoils#getRangeBytes(int, int, byte[], int)
+     */
+    public void readDiscreteInputRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException, IllegalDataValueException {
+        if (overridden[READ_DISCRETE_INPUTS]) {
+            toBytes(readDiscreteInputRange(offset, quantity), dst, dstOffset);
+        } else {
+            checkPointer(discreteInputs, offset);
+            discreteInputs.getRangeBytes(offset, quantity, dst, dstOffset);
+        }
+    }
+
     public void readFileRecord(ModbusFileRecord fileRecord) throws IllegalDataAddressException, IllegalDataValueException {
         ModbusFile file = getFile(fileRecord.getFileNumber());
         checkPointer(file, fileRecord.getFileNumber());
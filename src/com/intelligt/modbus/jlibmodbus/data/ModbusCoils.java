@@ -94,6 +94,30 @@ public class ModbusCoils extends ModbusValues<Boolean> {
         }
     }
 
+    /**
+     * packs the range of the coils into dst the way they are transmitted: the first coil is the LSB of the first byte,
+     * the unused bits of the last byte are zero.
+     */
+    public void getRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException, IllegalDataValueException {
+        boolean[] range = getRange(offset, quantity);
+        Arrays.fill(dst, dstOffset, dstOffset + DataUtils.bytesForBits(quantity), (byte) 0);
+        for (int i = 0; i < range.length; i++) {
+            if (range[i])
+                dst[dstOffset + (i >> 3)] |= (byte) (1 << (i & 7));
+        }
+    }
+
+    /**
+     * writes the quantity of the coils packed in src (see #getRangeBytes) starting from the offset.
+     */
+    public void setRangeBytes(int offset, byte[] src, int srcOffset, int quantity) throws IllegalDataAddressException, IllegalDataValueException {
+        boolean[] range = new boolean[quantity];
+        for (int i = 0; i < quantity; i++) {
+            range[i] = (src[srcOffset + (i >> 3)] & (1 << (i & 7))) != 0;
+        }
+        setRange(offset, range);
+    }
+
     @Override
     synchronized public int getQuantity() {
         return coils.length;
@@ -101,7 +125,7 @@ public class ModbusCoils extends ModbusValues<Boolean> {
 
     @Override
     synchronized public int getByteCount() {
-        return (int)Math.ceil((double)coils.length/8);
+        return DataUtils.bytesForBits(coils.length);
     }
 
     @Override
@@ -0,0 +1,321 @@
+package com.intelligt.modbus.jlibmodbus.data;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataAddressException;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataValueException;
+import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
+
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * the registers stored as 16-bit values (char[]), half of the memory of ModbusHoldingRegisters.
+ * <p>
+ * The reads don't lock: they are optimistic reads of StampedLock, retried under the read lock only if a write
+ * has happened meanwhile, so many request handlers read the registers without contention. A write of several
+ * registers (a range, a 32 or 64-bit value) is atomic for the readers, the observers are notified once
+ * with {offset, quantity} of the written range.
+ * <p>
+ * Note that the values are read back as unsigned 16-bit numbers (0..65535), the way they are transmitted,
+ * e.g. -1 is read as 65535.
+ */
+public class ModbusCompactRegisters extends ModbusHoldingRegisters {
+
+    final private StampedLock lock = new StampedLock();
+    private volatile char[] registers;
+
+    public ModbusCompactRegisters(int size) {
+        super();
+        registers = new char[(Modbus.checkEndAddress(size) ? size : Modbus.MAX_START_ADDRESS)];
+    }
+
+    public ModbusCompactRegisters() {
+        super();
+        registers = new char[0];
+    }
+
+    @Override
+    void setSize(int size) {
+        long stamp = lock.writeLock();
+        try {
+            if (registers.length != size) {
+                char[] r = new char[size];
+                System.arraycopy(registers, 0, r, 0, Math.min(size, registers.length));
+                registers = r;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int getQuantity() {
+        return registers.length;
+    }
+
+    @Override
+    public int getByteCount() {
+        return registers.length * 2;
+    }
+
+    @Override
+    public Integer get(int offset) throws IllegalDataAddressException {
+        return getInt16At(offset);
+    }
+
+    @Override
+    public int getInt16At(int offset) throws IllegalDataAddressException {
+        checkAddress(offset);
+        long stamp = lock.tryOptimisticRead();
+        char[] r = registers;
+        int value = offset < r.length ? r[offset] : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = registers;
+                checkRange(r, offset, 1);
+                value = r[offset];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkRange(r, offset, 1);
+        return value;
+    }
+
+    @Override
+    public int getInt32At(int offset) throws IllegalDataAddressException {
+        long stamp = lock.tryOptimisticRead();
+        char[] r = registers;
+        int value = offset >= 0 && offset + 2 <= r.length ? r[offset] | (r[offset + 1] << 16) : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = registers;
+                checkRange(r, offset, 2);
+                value = r[offset] | (r[offset + 1] << 16);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkRange(r, offset, 2);
+        return value;
+    }
+
+    @Override
+    public long getInt64At(int offset) throws IllegalDataAddressException {
+        long stamp = lock.tryOptimisticRead();
+        char[] r = registers;
+        long value = offset >= 0 && offset + 4 <= r.length ? int64(r, offset) : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = registers;
+                checkRange(r, offset, 4);
+                value = int64(r, offset);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkRange(r, offset, 4);
+        return value;
+    }
+
+    static private long int64(char[] r, int offset) {
+        return r[offset] | ((long) r[offset + 1] << 16) | ((long) r[offset + 2] << 32) | ((long) r[offset + 3] << 48);
+    }
+
+    @Override
+    public int[] getRange(int offset, int quantity) throws IllegalDataAddressException {
+        if (!Modbus.checkReadRegisterCount(quantity))
+            throw new IllegalDataAddressException(offset);
+        int[] range = new int[quantity];
+        long stamp = lock.tryOptimisticRead();
+        char[] r = registers;
+        if (offset >= 0 && offset + quantity <= r.length) {
+            for (int i = 0; i < quantity; i++)
+                range[i] = r[offset + i];
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = registers;
+                checkRange(r, offset, quantity);
+                for (int i = 0; i < quantity; i++)
+                    range[i] = r[offset + i];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkRange(r, offset, quantity);
+        return range;
+    }
+
+    @Override
+    public void getRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException {
+        if (!Modbus.checkReadRegisterCount(quantity))
+            throw new IllegalDataAddressException(offset);
+        long stamp = lock.tryOptimisticRead();
+        char[] r = registers;
+        if (offset >= 0 && offset + quantity <= r.length)
+            toBytes(r, offset, quantity, dst, dstOffset);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = registers;
+                checkRange(r, offset, quantity);
+                toBytes(r, offset, quantity, dst, dstOffset);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkRange(r, offset, quantity);
+    }
+
+    static private void toBytes(char[] r, int offset, int quantity, byte[] dst, int dstOffset) {
+        for (int i = 0, j = dstOffset; i < quantity; i++, j += 2) {
+            char c = r[offset + i];
+            dst[j] = (byte) (c >> 8);
+            dst[j + 1] = (byte) c;
+        }
+    }
+
+    @Override
+    public void setImpl(int offset, Integer value) throws IllegalDataAddressException, IllegalDataValueException {
+        write(offset, value);
+    }
+
+    @Override
+    public void setRange(int offset, int[] range) throws IllegalDataAddressException, IllegalDataValueException {
+        if (!Modbus.checkWriteRegisterCount(range.length))
+            throw new IllegalDataAddressException(offset);
+        write(offset, range);
+        notifyObservers(offset, range.length);
+    }
+
+    @Override
+    public void setInt32At(int offset, int i32) throws IllegalDataAddressException, IllegalDataValueException {
+        write(offset, DataUtils.wordLow(i32), DataUtils.wordHigh(i32));
+        notifyObservers(offset, 2);
+    }
+
+    @Override
+    public void setInt64At(int offset, long i64) throws IllegalDataAddressException, IllegalDataValueException {
+        int low = (int) i64;
+        int high = (int) (i64 >> 32);
+        write(offset, DataUtils.wordLow(low), DataUtils.wordHigh(low), DataUtils.wordLow(high), DataUtils.wordHigh(high));
+        notifyObservers(offset, 4);
+    }
+
+    private void write(int offset, int... values) throws IllegalDataAddressException, IllegalDataValueException {
+        for (int value : values) {
+            if (!Modbus.checkRegisterValue(value))
+                throw new IllegalDataValueException();
+        }
+        long stamp = lock.writeLock();
+        try {
+            char[] r = registers;
+            checkRange(r, offset, values.length);
+            for (int i = 0; i < values.length; i++)
+                r[offset + i] = (char) values[i];
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void notifyObservers(int offset, int quantity) {
+        setChanged();
+        notifyObservers(new int[]{offset, quantity});
+    }
+
+    @Override
+    public int[] getRegisters() {
+        long stamp = lock.readLock();
+        try {
+            char[] r = registers;
+            int[] copy = new int[r.length];
+            for (int i = 0; i < r.length; i++)
+                copy[i] = r[i];
+            return copy;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void setRegisters(int[] registers) {
+        char[] r = new char[registers.length];
+        for (int i = 0; i < r.length; i++)
+            r[i] = (char) registers[i];
+        replace(r);
+    }
+
+    @Override
+    public byte[] getBytes() {
+        long stamp = lock.readLock();
+        try {
+            char[] r = registers;
+            byte[] bytes = new byte[r.length * 2];
+            toBytes(r, 0, r.length, bytes, 0);
+            return bytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void setBytesBe(byte[] bytes) {
+        char[] r = new char[bytes.length / 2];
+        for (int i = 0, j = 0; i < r.length; i++, j += 2)
+            r[i] = (char) (((bytes[j] & 0xff) << 8) | (bytes[j + 1] & 0xff));
+        replace(r);
+    }
+
+    @Override
+    public void setBytesLe(byte[] bytes) {
+        char[] r = new char[bytes.length / 2];
+        for (int i = 0, j = 0; i < r.length; i++, j += 2)
+            r[i] = (char) (((bytes[j + 1] & 0xff) << 8) | (bytes[j] & 0xff));
+        replace(r);
+    }
+
+    private void replace(char[] r) {
+        long stamp = lock.writeLock();
+        try {
+            registers = r;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void checkAddress(int offset) throws IllegalDataAddressException {
+        if (DataUtils.wordLow(offset) > (getQuantity() - 1))
+            throw new IllegalDataAddressException(offset);
+    }
+
+    static private void checkRange(char[] r, int offset, int quantity) throws IllegalDataAddressException {
+        if (offset < 0 || offset + quantity > r.length)
+            throw new IllegalDataAddressException(offset);
+    }
+}
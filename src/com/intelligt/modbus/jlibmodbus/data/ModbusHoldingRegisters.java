@@ -31,13 +31,33 @@ import java.util.Arrays;
 
 /**
  * since 1.2.8.4 it extends Observable to notify observers if register values was changed.
+ * <p>
+ * The registers are guarded by the monitor of the instance, so synchronized (registers) {...} keeps the request
+ * handlers out. A multi-register value is written and read atomically by #setRange/#getRange and the 32/64-bit
+ * accessors (#setInt32At, #getFloat64At etc.) as well. The monitor is held for an array copy only and never
+ * while blocking, so it doesn't hold up the carrier of a virtual thread.
  *
  * @see java.util.Observable
  * @see java.util.Observer
  */
 public class ModbusHoldingRegisters extends ModbusValues<Integer> {
 
+    /*
+     * true if a subclass overrides #getRange but not #getRangeBytes, then #getRangeBytes reads through #getRange.
+     */
+    static final private ClassValue<Boolean> RANGE_OVERRIDDEN = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getRange", int.class, int.class).getDeclaringClass() != ModbusHoldingRegisters.class
+                        && type.getMethod("getRangeBytes", int.class, int.class, byte[].class, int.class).getDeclaringClass() == ModbusHoldingRegisters.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
     private int[] registers = new int[0];
+    final private boolean rangeOverridden = RANGE_OVERRIDDEN.get(getClass());
 
     public ModbusHoldingRegisters(int size) {
         registers = new int[(Modbus.checkEndAddress(size) ? size : Modbus.MAX_START_ADDRESS)];
@@ -91,13 +111,13 @@ public class ModbusHoldingRegisters extends ModbusValues<Integer> {
     }
 
     public void setInt32At(int offset, int i32) throws IllegalDataAddressException, IllegalDataValueException {
-        setInt16At(offset, DataUtils.wordLow(i32));
-        setInt16At(offset + 1, DataUtils.wordHigh(i32));
+        setRange(offset, new int[]{DataUtils.wordLow(i32), DataUtils.wordHigh(i32)});
     }
 
     public void setInt64At(int offset, long i64) throws IllegalDataAddressException, IllegalDataValueException {
-        setInt32At(offset, (int) (i64 & 0xffffffff));
-        setInt32At(offset + 2, (int) ((i64 >> 32) & 0xffffffff));
+        int low = (int) i64;
+        int high = (int) (i64 >> 32);
+        setRange(offset, new int[]{DataUtils.wordLow(low), DataUtils.wordHigh(low), DataUtils.wordLow(high), DataUtils.wordHigh(high)});
     }
 
     public void setFloat32At(int offset, float f32) throws IllegalDataAddressException, IllegalDataValueException {
@@ -118,11 +138,15 @@ public class ModbusHoldingRegisters extends ModbusValues<Integer> {
     }
 
     public int getInt32At(int offset) throws IllegalDataAddressException {
-        return (getInt16At(offset)&0xffff) | ((getInt16At(offset + 1)&0xffff) << 16);
+        checkAddress(offset);
+        int[] r = getRange(offset, 2);
+        return (r[0] & 0xffff) | ((r[1] & 0xffff) << 16);
     }
 
     public long getInt64At(int offset) throws IllegalDataAddressException {
-        return (getInt32At(offset)&0xffffffffL) | ((getInt32At(offset + 2)&0xffffffffL) << 32);
+        checkAddress(offset);
+        int[] r = getRange(offset, 4);
+        return (r[0] & 0xffffL) | ((r[1] & 0xffffL) << 16) | ((r[2] & 0xffffL) << 32) | ((r[3] & 0xffffL) << 48);
     }
 
     public float getFloat32At(int offset) throws IllegalDataAddressException {
@@ -182,6 +206,31 @@ public class ModbusHoldingRegisters extends ModbusValues<Integer> {
         }
     }
 
+    /**
+     * copies the range of the registers to dst in big-endian byte order (the way they are transmitted).
+     * If a subclass overrides #getRange only, the range is read by #getRange.
+     */
+    public void getRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException {
+        if (rangeOverridden) {
+            int[] range = getRange(offset, quantity);
+            for (int i = 0, j = dstOffset; i < range.length; i++, j += 2) {
+                dst[j] = (byte) (range[i] >> 8);
+                dst[j + 1] = (byte) range[i];
+            }
+            return;
+        }
+        checkRange(offset, quantity);
+        if (!Modbus.checkReadRegisterCount(quantity))
+            throw new IllegalDataAddressException(offset);
+        synchronized (this) {
+            for (int i = 0, j = dstOffset; i < quantity; i++, j += 2) {
+                int r = registers[offset + i];
+                dst[j] = (byte) (r >> 8);
+                dst[j + 1] = (byte) r;
+            }
+        }
+    }
+
     private void checkRange(int offset, int quantity) throws IllegalDataAddressException {
         if (offset + quantity > getQuantity())
             throw new IllegalDataAddressException(offset);
@@ -0,0 +1,401 @@
+package com.intelligt.modbus.jlibmodbus.data;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataAddressException;
+import com.intelligt.modbus.jlibmodbus.exception.IllegalDataValueException;
+import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * the coils (or discrete inputs) packed 64 per long, one bit per coil instead of one byte of ModbusCoils.
+ * <p>
+ * The ranges are read and written by shifts and masks a word at a time, #getRangeBytes and #setRangeBytes
+ * produce and consume the bytes in the wire format directly. A range is written atomically and the observers
+ * are notified once with {offset, quantity} of the range.
+ * <p>
+ * The methods similar to BitSet (#flip, #cardinality, #nextSetBit, #toBitSet etc.) are intended for the application.
+ */
+public class ModbusPackedCoils extends ModbusCoils {
+
+    /*
+     * ReentrantLock like ModbusHoldingRegisters, the monitor would pin the carrier of a virtual thread.
+     */
+    final private ReentrantLock lock = new ReentrantLock();
+    private long[] words;
+    private int size;
+
+    public ModbusPackedCoils(int size) {
+        super(0);
+        this.size = Modbus.checkEndAddress(size) ? size : Modbus.MAX_START_ADDRESS;
+        this.words = new long[wordCount(this.size)];
+    }
+
+    public ModbusPackedCoils(byte[] bytes) {
+        super(0);
+        setBytes(bytes, bytes.length * 8);
+    }
+
+    static private int wordCount(int bitCount) {
+        return (bitCount + 63) >>> 6;
+    }
+
+    /**
+     * @return n (up to 64) bits starting from the bit "from", the rest of the bits are zero.
+     */
+    private long bits(int from, int n) {
+        int w = from >>> 6;
+        int shift = from & 63;
+        long v = words[w] >>> shift;
+        if (shift != 0 && shift + n > 64)
+            v |= words[w + 1] << (64 - shift);
+        return n == 64 ? v : v & ((1L << n) - 1);
+    }
+
+    /**
+     * replaces n (up to 64) bits starting from the bit "from" by the low bits of v.
+     */
+    private void setBits(int from, int n, long v) {
+        long mask = n == 64 ? -1L : (1L << n) - 1;
+        v &= mask;
+        int w = from >>> 6;
+        int shift = from & 63;
+        words[w] = (words[w] & ~(mask << shift)) | (v << shift);
+        if (shift != 0 && shift + n > 64) {
+            int rest = 64 - shift;
+            words[w + 1] = (words[w + 1] & ~(mask >>> rest)) | (v >>> rest);
+        }
+    }
+
+    @Override
+    void setSize(int size) {
+        lock.lock();
+        try {
+            if (this.size != size) {
+                words = Arrays.copyOf(words, wordCount(size));
+                if (size < this.size && (size & 63) != 0)
+                    words[words.length - 1] &= (1L << size) - 1;
+                this.size = size;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getQuantity() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getByteCount() {
+        lock.lock();
+        try {
+            return DataUtils.bytesForBits(size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Boolean get(int offset) throws IllegalDataAddressException {
+        lock.lock();
+        try {
+            checkRange(offset, 1);
+            return (words[offset >>> 6] & (1L << offset)) != 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setImpl(int offset, Boolean coil) throws IllegalDataAddressException, IllegalDataValueException {
+        lock.lock();
+        try {
+            checkRange(offset, 1);
+            if (coil)
+                words[offset >>> 6] |= 1L << offset;
+            else
+                words[offset >>> 6] &= ~(1L << offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean[] getRange(int offset, int quantity) throws IllegalDataAddressException, IllegalDataValueException {
+        if (!Modbus.checkReadCoilCount(quantity))
+            throw new IllegalDataValueException();
+        boolean[] range = new boolean[quantity];
+        lock.lock();
+        try {
+            checkRange(offset, quantity);
+            for (int i = 0; i < quantity; i += 64) {
+                int n = Math.min(64, quantity - i);
+                long v = bits(offset + i, n);
+                for (int j = 0; j < n; j++) {
+                    range[i + j] = (v & (1L << j)) != 0;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return range;
+    }
+
+    @Override
+    public void setRange(int offset, boolean[] range) throws IllegalDataAddressException, IllegalDataValueException {
+        if (!Modbus.checkWriteCoilCount(range.length))
+            throw new IllegalDataValueException();
+        lock.lock();
+        try {
+            checkRange(offset, range.length);
+            for (int i = 0; i < range.length; i += 64) {
+                int n = Math.min(64, range.length - i);
+                long v = 0;
+                for (int j = 0; j < n; j++) {
+                    if (range[i + j])
+                        v |= 1L << j;
+                }
+                setBits(offset + i, n, v);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyObservers(offset, range.length);
+    }
+
+    @Override
+    public void getRangeBytes(int offset, int quantity, byte[] dst, int dstOffset) throws IllegalDataAddressException, IllegalDataValueException {
+        if (!Modbus.checkReadCoilCount(quantity))
+            throw new IllegalDataValueException();
+        lock.lock();
+        try {
+            checkRange(offset, quantity);
+            int byteCount = DataUtils.bytesForBits(quantity);
+            for (int i = 0; i < byteCount; i += 8) {
+                long v = bits(offset + i * 8, Math.min(64, quantity - i * 8));
+                for (int j = i, end = Math.min(i + 8, byteCount); j < end; j++, v >>>= 8) {
+                    dst[dstOffset + j] = (byte) v;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setRangeBytes(int offset, byte[] src, int srcOffset, int quantity) throws IllegalDataAddressException, IllegalDataValueException {
+        if (!Modbus.checkWriteCoilCount(quantity))
+            throw new IllegalDataValueException();
+        lock.lock();
+        try {
+            checkRange(offset, quantity);
+            write(offset, src, srcOffset, quantity);
+        } finally {
+            lock.unlock();
+        }
+        notifyObservers(offset, quantity);
+    }
+
+    private void write(int offset, byte[] src, int srcOffset, int quantity) {
+        int byteCount = DataUtils.bytesForBits(quantity);
+        for (int i = 0; i < byteCount; i += 8) {
+            long v = 0;
+            for (int j = Math.min(i + 8, byteCount) - 1; j >= i; j--) {
+                v = (v << 8) | (src[srcOffset + j] & 0xff);
+            }
+            setBits(offset + i * 8, Math.min(64, quantity - i * 8), v);
+        }
+    }
+
+    @Override
+    public byte[] getBytes() {
+        lock.lock();
+        try {
+            byte[] bytes = new byte[DataUtils.bytesForBits(size)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
+            }
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setBytesBe(byte[] bytes) {
+        setBytes(bytes, bytes.length * 8);
+    }
+
+    @Override
+    public void setBytes(byte[] bytes, int quantity) {
+        lock.lock();
+        try {
+            words = new long[wordCount(quantity)];
+            size = quantity;
+            write(0, bytes, 0, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * inverts the coil.
+     */
+    public void flip(int offset) throws IllegalDataAddressException {
+        lock.lock();
+        try {
+            checkRange(offset, 1);
+            words[offset >>> 6] ^= 1L << offset;
+        } finally {
+            lock.unlock();
+        }
+        notifyObservers(offset, 1);
+    }
+
+    /**
+     * sets all of the coils to false.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            Arrays.fill(words, 0);
+        } finally {
+            lock.unlock();
+        }
+        notifyObservers(0, getQuantity());
+    }
+
+    /**
+     * @return the number of the coils set to true.
+     */
+    public int cardinality() {
+        lock.lock();
+        try {
+            int count = 0;
+            for (long w : words) {
+                count += Long.bitCount(w);
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the offset of the first coil set to true starting from the offset, or -1 if there is no such coil.
+     */
+    public int nextSetBit(int offset) {
+        lock.lock();
+        try {
+            if (offset < 0)
+                throw new IndexOutOfBoundsException("offset < 0: " + offset);
+            int w = offset >>> 6;
+            if (w >= words.length)
+                return -1;
+            long word = words[w] & (-1L << offset);
+            while (true) {
+                if (word != 0)
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                if (++w == words.length)
+                    return -1;
+                word = words[w];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the offset of the first coil set to false starting from the offset, or the quantity if there is no such coil.
+     */
+    public int nextClearBit(int offset) {
+        lock.lock();
+        try {
+            if (offset < 0)
+                throw new IndexOutOfBoundsException("offset < 0: " + offset);
+            int w = offset >>> 6;
+            if (w >= words.length)
+                return Math.max(offset, size);
+            long word = ~words[w] & (-1L << offset);
+            while (true) {
+                if (word != 0)
+                    return Math.min(size, (w << 6) + Long.numberOfTrailingZeros(word));
+                if (++w == words.length)
+                    return size;
+                word = ~words[w];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the coils as a BitSet.
+     */
+    public BitSet toBitSet() {
+        lock.lock();
+        try {
+            return BitSet.valueOf(words);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * replaces the coils by the bits of the BitSet, the bits beyond the quantity are ignored.
+     */
+    public void setBitSet(BitSet bits) {
+        long[] src = bits.toLongArray();
+        lock.lock();
+        try {
+            Arrays.fill(words, 0);
+            System.arraycopy(src, 0, words, 0, Math.min(src.length, words.length));
+            if ((size & 63) != 0 && words.length > 0)
+                words[words.length - 1] &= (1L << size) - 1;
+        } finally {
+            lock.unlock();
+        }
+        notifyObservers(0, getQuantity());
+    }
+
+    private void notifyObservers(int offset, int quantity) {
+        setChanged();
+        notifyObservers(new int[]{offset, quantity});
+    }
+
+    private void checkRange(int offset, int quantity) throws IllegalDataAddressException {
+        if (offset < 0 || offset + quantity > size)
+            throw new IllegalDataAddressException(offset);
+    }
+}
@@ -0,0 +1,44 @@
+package com.intelligt.modbus.jlibmodbus.exception;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * thrown instead of sending a request while the circuit breaker of the slave is open.
+ *
+ * @see com.intelligt.modbus.jlibmodbus.master.ModbusCircuitBreaker
+ */
+public class ModbusCircuitOpenException extends ModbusIOException {
+
+    final static private long serialVersionUID = 1L;
+
+    final private int serverAddress;
+
+    public ModbusCircuitOpenException(int serverAddress) {
+        super("Circuit breaker is open for the slave " + serverAddress);
+        this.serverAddress = serverAddress;
+    }
+
+    public int getServerAddress() {
+        return serverAddress;
+    }
+}
@@ -0,0 +1,36 @@
+package com.intelligt.modbus.jlibmodbus.exception;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * thrown if the slave has not responded in time. The connection is still usable,
+ * the responses which came late or didn't match the request have been dropped.
+ */
+public class ModbusResponseTimeoutException extends ModbusIOException {
+
+    final static private long serialVersionUID = 1L;
+
+    public ModbusResponseTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,422 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.serial.SerialParameters;
+import com.intelligt.modbus.jlibmodbus.serial.SerialPortException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * the only user of a serial (RS-485) bus. The application threads submit the requests instead of calling
+ * the master, a single dispatcher thread executes them one after another.
+ * <p>
+ * A request of a higher priority is always sent first. Within a priority the slaves are served round-robin,
+ * one request per slave per turn, so a slave with a long queue (or a chatty consumer polling it)
+ * cannot starve the others.
+ * <p>
+ * The silent interval of at least t3.5 (derived from the serial parameters) is kept between the end of
+ * a transaction and the next request, it is measured with System#nanoTime rather than derived from the read timeouts.
+ * After a broadcast request the turnaround delay is kept instead, to let the slaves process it.
+ */
+public class ModbusBusArbiter {
+
+    final static public int PRIORITY_LOW = 0;
+    final static public int PRIORITY_NORMAL = 5;
+    final static public int PRIORITY_HIGH = 10;
+    final static public int DEFAULT_TURNAROUND_DELAY = 100;
+    /*
+     * the last part of the interframe gap is spun, parkNanos is not accurate enough
+     */
+    final static private long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(100);
+
+    final private ModbusMasterSerial master;
+    final private long t35;
+    final private ReentrantLock lock = new ReentrantLock();
+    final private Condition notEmpty = lock.newCondition();
+    final private TreeMap<Integer, Level> levels = new TreeMap<Integer, Level>(Collections.<Integer>reverseOrder());
+    private volatile long turnaroundDelay = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TURNAROUND_DELAY);
+    private long busIdleSince = 0;
+    private long silentInterval = 0;
+    private int size = 0;
+    private boolean running = false;
+    private Thread dispatcher = null;
+
+    /**
+     * creates an arbiter owning a new ModbusMasterRTU.
+     *
+     * @param parameters the serial port parameters
+     * @throws SerialPortException if the serial port cannot be created
+     */
+    public ModbusBusArbiter(SerialParameters parameters) throws SerialPortException {
+        this(new ModbusMasterRTU(parameters), parameters);
+    }
+
+    /**
+     * @param master     the master of the bus, it must not be used by anyone else.
+     * @param parameters the serial port parameters the master was created with
+     */
+    public ModbusBusArbiter(ModbusMasterSerial master, SerialParameters parameters) {
+        this.master = master;
+        this.t35 = parameters.getT35Nanos();
+    }
+
+    public ModbusMasterSerial getMaster() {
+        return master;
+    }
+
+    /**
+     * @return t3.5 for the bus, in nanoseconds
+     */
+    public long getInterFrameDelayNanos() {
+        return t35;
+    }
+
+    /**
+     * @return the delay after a broadcast request, in milliseconds
+     */
+    public int getTurnaroundDelay() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(turnaroundDelay);
+    }
+
+    /**
+     * @param turnaroundDelay the delay after a broadcast request, in milliseconds (the specification recommends 100..200ms)
+     */
+    public void setTurnaroundDelay(int turnaroundDelay) {
+        this.turnaroundDelay = TimeUnit.MILLISECONDS.toNanos(Math.max(0, turnaroundDelay));
+    }
+
+    /**
+     * connects the master and starts the dispatcher thread.
+     *
+     * @throws ModbusIOException if the serial port cannot be opened
+     */
+    public void start() throws ModbusIOException {
+        lock.lock();
+        try {
+            if (running)
+                return;
+            master.connect();
+            running = true;
+            busIdleSince = System.nanoTime();
+            silentInterval = t35;
+            dispatcher = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            }, getClass().getSimpleName());
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * stops the dispatcher, the requests waiting in the queues are completed by ModbusIOException.
+     * The request in progress is completed normally.
+     *
+     * @throws ModbusIOException if an error occurred while closing the serial port
+     */
+    public void stop() throws ModbusIOException {
+        Thread t;
+        List<PendingRequest> dropped = new ArrayList<PendingRequest>();
+        lock.lock();
+        try {
+            if (!running)
+                return;
+            running = false;
+            for (Level level : levels.values()) {
+                level.drainTo(dropped);
+            }
+            levels.clear();
+            size = 0;
+            notEmpty.signalAll();
+            t = dispatcher;
+            dispatcher = null;
+        } finally {
+            lock.unlock();
+        }
+        for (PendingRequest p : dropped) {
+            p.future.completeExceptionally(new ModbusIOException("Bus arbiter stopped."));
+        }
+        if (t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        master.disconnect();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of the requests waiting in the queues
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * queues the request with the normal priority.
+     *
+     * @param request an instance of ModbusRequest
+     * @return a future completed by the response or by the exception thrown by ModbusMaster#processRequest
+     */
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        return submit(request, PRIORITY_NORMAL);
+    }
+
+    /**
+     * queues the request.
+     *
+     * @param request  an instance of ModbusRequest
+     * @param priority the priority, the requests of a higher priority are sent first
+     * @return a future completed by the response or by the exception thrown by ModbusMaster#processRequest,
+     * if it is cancelled before the request is sent, the request is dropped from the queue.
+     */
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request, int priority) {
+        final PendingRequest p = new PendingRequest(request, priority);
+        lock.lock();
+        try {
+            if (!running) {
+                p.future.completeExceptionally(new ModbusIOException("Bus arbiter is not running."));
+                return p.future;
+            }
+            Level level = levels.get(priority);
+            if (level == null) {
+                level = new Level();
+                levels.put(priority, level);
+            }
+            level.add(p);
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        p.future.whenComplete(new BiConsumer<ModbusResponse, Throwable>() {
+            @Override
+            public void accept(ModbusResponse response, Throwable throwable) {
+                if (p.future.isCancelled())
+                    remove(p);
+            }
+        });
+        return p.future;
+    }
+
+    /**
+     * drops the cancelled request from the queue, so it isn't counted by #getQueueSize.
+     */
+    private void remove(PendingRequest p) {
+        lock.lock();
+        try {
+            Level level = levels.get(p.priority);
+            if (level != null && level.remove(p))
+                size--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * queues the request and waits for it to be completed.
+     *
+     * @param request  an instance of ModbusRequest
+     * @param priority the priority, the requests of a higher priority are sent first
+     * @return the response
+     * @throws ModbusProtocolException if modbus-exception is received
+     * @throws ModbusNumberException   if response is invalid
+     * @throws ModbusIOException       if remote slave is unavailable or the arbiter is stopped
+     */
+    public ModbusResponse processRequest(ModbusRequest request, int priority) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        try {
+            return submit(request, priority).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusIOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ModbusProtocolException)
+                throw (ModbusProtocolException) cause;
+            if (cause instanceof ModbusNumberException)
+                throw (ModbusNumberException) cause;
+            if (cause instanceof ModbusIOException)
+                throw (ModbusIOException) cause;
+            throw new ModbusIOException(cause);
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            PendingRequest p;
+            long idleSince;
+            long gap;
+            lock.lock();
+            try {
+                while (running && size == 0) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (!running)
+                    return;
+                p = poll();
+                idleSince = busIdleSince;
+                gap = silentInterval;
+            } finally {
+                lock.unlock();
+            }
+            /*
+             * the request has been cancelled while it was waiting in the queue
+             */
+            if (p.future.isDone())
+                continue;
+            waitUntil(idleSince + gap);
+            ModbusRequest request = p.request;
+            try {
+                if (!master.isConnected())
+                    master.connect();
+                p.future.complete(master.processRequest(request));
+            } catch (Exception e) {
+                p.future.completeExceptionally(e);
+            } finally {
+                lock.lock();
+                try {
+                    busIdleSince = System.nanoTime();
+                    silentInterval = request.getServerAddress() == Modbus.BROADCAST_ID ? Math.max(t35, turnaroundDelay) : t35;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private PendingRequest poll() {
+        for (Map.Entry<Integer, Level> e : levels.entrySet()) {
+            PendingRequest p = e.getValue().poll();
+            if (p != null) {
+                size--;
+                return p;
+            }
+        }
+        throw new IllegalStateException("Queue is empty");
+    }
+
+    static private void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD)
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+            else
+                Thread.yield();
+        }
+    }
+
+    static private class PendingRequest {
+        final private ModbusRequest request;
+        final private int priority;
+        final private CompletableFuture<ModbusResponse> future = new CompletableFuture<ModbusResponse>();
+
+        PendingRequest(ModbusRequest request, int priority) {
+            this.request = request;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * the requests of the same priority, a queue per slave and the slaves served round-robin.
+     */
+    static private class Level {
+        final private Map<Integer, ArrayDeque<PendingRequest>> queues = new HashMap<Integer, ArrayDeque<PendingRequest>>();
+        final private ArrayDeque<Integer> turn = new ArrayDeque<Integer>();
+
+        void add(PendingRequest p) {
+            int serverAddress = p.request.getServerAddress();
+            ArrayDeque<PendingRequest> queue = queues.get(serverAddress);
+            if (queue == null) {
+                queue = new ArrayDeque<PendingRequest>();
+                queues.put(serverAddress, queue);
+            }
+            if (queue.isEmpty())
+                turn.add(serverAddress);
+            queue.add(p);
+        }
+
+        PendingRequest poll() {
+            Integer serverAddress = turn.poll();
+            if (serverAddress == null)
+                return null;
+            ArrayDeque<PendingRequest> queue = queues.get(serverAddress);
+            PendingRequest p = queue.poll();
+            if (!queue.isEmpty())
+                turn.add(serverAddress);
+            return p;
+        }
+
+        boolean remove(PendingRequest p) {
+            Integer serverAddress = p.request.getServerAddress();
+            ArrayDeque<PendingRequest> queue = queues.get(serverAddress);
+            if (queue == null || !queue.remove(p))
+                return false;
+            if (queue.isEmpty())
+                turn.remove(serverAddress);
+            return true;
+        }
+
+        void drainTo(List<PendingRequest> list) {
+            for (ArrayDeque<PendingRequest> queue : queues.values()) {
+                list.addAll(queue);
+                queue.clear();
+            }
+            turn.clear();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * a circuit breaker per slave address.
+ * <p>
+ * CLOSED: the requests are sent as usual, after the failure threshold of consecutive failures (no response)
+ * the breaker gets OPEN. OPEN: the requests fail at once by ModbusCircuitOpenException without using the bus.
+ * When the open interval elapses, the breaker gets HALF_OPEN and lets a single probe request through:
+ * a response closes the breaker, a failure opens it again for twice as long, up to the maximum open interval.
+ * <p>
+ * Any response, even a modbus-exception, means that the slave is alive.
+ * An instance is used by a single master, it is accessed under the lock of that master.
+ *
+ * @see ModbusMaster#setCircuitBreaker(ModbusCircuitBreaker)
+ * @see com.intelligt.modbus.jlibmodbus.exception.ModbusCircuitOpenException
+ */
+public class ModbusCircuitBreaker {
+
+    final static public int DEFAULT_FAILURE_THRESHOLD = 3;
+    final static public int DEFAULT_OPEN_INTERVAL = 1000;
+    final static public int DEFAULT_MAX_OPEN_INTERVAL = 60000;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    final private Circuit[] circuits = new Circuit[256];
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long openInterval = TimeUnit.MILLISECONDS.toNanos(DEFAULT_OPEN_INTERVAL);
+    private long maxOpenInterval = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_OPEN_INTERVAL);
+
+    public ModbusCircuitBreaker() {
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @param failureThreshold the number of consecutive failures opening the breaker
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    /**
+     * @return the first open interval, in milliseconds
+     */
+    public int getOpenInterval() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(openInterval);
+    }
+
+    /**
+     * @param openInterval the time before the first probe, in milliseconds
+     */
+    public void setOpenInterval(int openInterval) {
+        this.openInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, openInterval));
+    }
+
+    /**
+     * @return the maximum open interval, in milliseconds
+     */
+    public int getMaxOpenInterval() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(maxOpenInterval);
+    }
+
+    /**
+     * @param maxOpenInterval the limit of the exponential backoff of the probes, in milliseconds
+     */
+    public void setMaxOpenInterval(int maxOpenInterval) {
+        this.maxOpenInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxOpenInterval));
+    }
+
+    /**
+     * @param serverAddress a slave address
+     * @return the current state of the breaker of the slave
+     */
+    public State getState(int serverAddress) {
+        Circuit c = circuits[serverAddress & 0xff];
+        if (c == null)
+            return State.CLOSED;
+        if (c.state == State.OPEN && System.nanoTime() - c.openedAt >= c.interval)
+            return State.HALF_OPEN;
+        return c.state;
+    }
+
+    /**
+     * checks the breaker before a request is sent, an OPEN breaker becomes HALF_OPEN when the interval elapses.
+     *
+     * @param serverAddress a slave address
+     * @return true if the request may be sent
+     */
+    public boolean allowRequest(int serverAddress) {
+        Circuit c = circuits[serverAddress & 0xff];
+        if (c == null || c.state == State.CLOSED)
+            return true;
+        if (c.state == State.OPEN && System.nanoTime() - c.openedAt >= c.interval) {
+            c.state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param serverAddress a slave address which has responded
+     */
+    public void onSuccess(int serverAddress) {
+        Circuit c = circuits[serverAddress & 0xff];
+        if (c != null) {
+            c.state = State.CLOSED;
+            c.failures = 0;
+            c.interval = 0;
+        }
+    }
+
+    /**
+     * @param serverAddress a slave address which has not responded
+     */
+    public void onFailure(int serverAddress) {
+        Circuit c = circuit(serverAddress);
+        c.failures++;
+        if (c.state == State.HALF_OPEN) {
+            open(c, Math.min(c.interval * 2, maxOpenInterval));
+        } else if (c.state == State.CLOSED && c.failures >= failureThreshold) {
+            open(c, Math.min(openInterval, maxOpenInterval));
+        }
+    }
+
+    /**
+     * is called when a request has completed without #onSuccess or #onFailure, e.g. the connection has failed
+     * before the request has been sent. If it was the probe, the breaker is opened again for the same interval,
+     * otherwise nothing happens.
+     *
+     * @param serverAddress a slave address
+     */
+    public void onAbort(int serverAddress) {
+        Circuit c = circuits[serverAddress & 0xff];
+        if (c != null && c.state == State.HALF_OPEN)
+            open(c, c.interval);
+    }
+
+    /**
+     * closes the breaker of the slave.
+     *
+     * @param serverAddress a slave address
+     */
+    public void reset(int serverAddress) {
+        circuits[serverAddress & 0xff] = null;
+    }
+
+    private void open(Circuit c, long interval) {
+        c.state = State.OPEN;
+        c.openedAt = System.nanoTime();
+        c.interval = interval;
+    }
+
+    private Circuit circuit(int serverAddress) {
+        Circuit c = circuits[serverAddress & 0xff];
+        if (c == null) {
+            c = new Circuit();
+            circuits[serverAddress & 0xff] = c;
+        }
+        return c;
+    }
+
+    static private class Circuit {
+        private volatile State state = State.CLOSED;
+        private int failures = 0;
+        private long openedAt = 0;
+        private long interval = 0;
+    }
+}
@@ -2,17 +2,22 @@ package com.intelligt.modbus.jlibmodbus.master;
 
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.data.CommStatus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusCircuitOpenException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusResponseTimeoutException;
 import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestBuilder;
 import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestFactory;
+import com.intelligt.modbus.jlibmodbus.msg.base.AbstractMultipleRequest;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusFileRecord;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
 import com.intelligt.modbus.jlibmodbus.msg.base.mei.MEIReadDeviceIdentification;
 import com.intelligt.modbus.jlibmodbus.msg.base.mei.ReadDeviceIdentificationCode;
+import com.intelligt.modbus.jlibmodbus.msg.request.ReadHoldingRegistersRequest;
+import com.intelligt.modbus.jlibmodbus.msg.request.ReadInputRegistersRequest;
 import com.intelligt.modbus.jlibmodbus.msg.response.*;
 import com.intelligt.modbus.jlibmodbus.net.ModbusConnection;
 import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransport;
@@ -21,6 +26,10 @@ import com.intelligt.modbus.jlibmodbus.utils.FrameEventListener;
 import com.intelligt.modbus.jlibmodbus.utils.FrameEventListenerList;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusExceptionCode;
 
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
  * [http://www.sbp-invertor.ru]
@@ -46,6 +55,17 @@ abstract public class ModbusMaster implements FrameEventListenerList {
 
     final private ModbusConnection conn;
     final private BroadcastResponse broadcastResponse = new BroadcastResponse();
+    /*
+     * a lock instead of the monitor, a virtual thread waiting for the response doesn't pin its carrier.
+     */
+    final private ReentrantLock lock = new ReentrantLock();
+    private volatile ModbusRttEstimator rttEstimator = null;
+    private volatile ModbusCircuitBreaker circuitBreaker = null;
+    /*
+     * reused by the allocation-free read methods
+     */
+    private ReadHoldingRegistersRequest holdingRegistersRequest = null;
+    private ReadInputRegistersRequest inputRegistersRequest = null;
     private int transactionId = 0;
     private long requestTime = 0;
 
@@ -126,9 +146,29 @@ abstract public class ModbusMaster implements FrameEventListenerList {
      * @see com.intelligt.modbus.jlibmodbus.msg.request
      * @see com.intelligt.modbus.jlibmodbus.msg.request
      */
-    synchronized public ModbusResponse processRequest(ModbusRequest request) throws ModbusProtocolException, ModbusIOException {
+    public ModbusResponse processRequest(ModbusRequest request) throws ModbusProtocolException, ModbusIOException {
+        lock.lock();
+        try {
+            int serverAddress = request.getServerAddress();
+            ModbusCircuitBreaker breaker = serverAddress != Modbus.BROADCAST_ID ? circuitBreaker : null;
+            if (breaker != null && !breaker.allowRequest(serverAddress))
+                throw new ModbusCircuitOpenException(serverAddress);
+            return processRequestImpl(request, breaker);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ModbusResponse processRequestImpl(ModbusRequest request, ModbusCircuitBreaker breaker) throws ModbusProtocolException, ModbusIOException {
+        ModbusRttEstimator estimator = request.getServerAddress() != Modbus.BROADCAST_ID ? rttEstimator : null;
+        int responseTimeout = getConnection().getReadTimeout();
+        boolean sent = false;
         try {
+            if (estimator != null)
+                getConnection().setReadTimeout(estimator.getTimeout(request.getServerAddress(), request.getFunction(), responseTimeout));
             sendRequest(request);
+            sent = true;
+            long sentTime = System.nanoTime();
             if (request.getServerAddress() != Modbus.BROADCAST_ID) {
                 do {
                     try {
@@ -139,6 +179,10 @@ abstract public class ModbusMaster implements FrameEventListenerList {
                          * it means that operation is in processing and you should be waiting for the answer
                          */
                         if (msg.getModbusExceptionCode() != ModbusExceptionCode.ACKNOWLEDGE) {
+                            if (estimator != null)
+                                estimator.onResponse(request.getServerAddress(), request.getFunction(), System.nanoTime() - sentTime);
+                            if (breaker != null)
+                                breaker.onSuccess(request.getServerAddress());
                             if (msg.isException())
                                 throw new ModbusProtocolException(msg.getModbusExceptionCode());
                             return msg;
@@ -150,7 +194,7 @@ abstract public class ModbusMaster implements FrameEventListenerList {
                 /*
                  * throw an exception if there is a response timeout
                  */
-                throw new ModbusIOException("Response timeout.");
+                throw new ModbusResponseTimeoutException("Response timeout.");
             } else {
             /*
              return because slaves do not respond broadcast requests
@@ -159,11 +203,97 @@ abstract public class ModbusMaster implements FrameEventListenerList {
                 return broadcastResponse;
             }
         } catch (ModbusIOException mioe) {
+            /*
+             * only a request which has been sent and not answered in time tells something about the round-trip time
+             */
+            if (estimator != null && sent && isResponseTimeout(mioe))
+                estimator.onTimeout(request.getServerAddress(), request.getFunction());
+            if (breaker != null && sent) {
+                breaker.onFailure(request.getServerAddress());
+                /*
+                 * the slave hasn't responded, but the connection is fine: keep it for the other slaves.
+                 * a late response can't be taken for the response to the next request only if the transaction ids differ.
+                 */
+                if (isResponseTimeout(mioe) && hasUniqueTransactionIds())
+                    throw mioe;
+            }
             disconnect();
             throw mioe;
+        } finally {
+            if (estimator != null)
+                getConnection().setReadTimeout(responseTimeout);
+            /*
+             * a probe which has failed before it has been sent (connect or send error) must not leave the breaker HALF_OPEN
+             */
+            if (breaker != null)
+                breaker.onAbort(request.getServerAddress());
+        }
+    }
+
+    /**
+     * @return true if each request gets its own transaction id, so a late response is never matched to the next request.
+     */
+    protected boolean hasUniqueTransactionIds() {
+        return false;
+    }
+
+    /**
+     * tells a response timeout from a connection failure, it is used if the circuit breaker is enabled.
+     *
+     * @param e the exception thrown while waiting for the response
+     * @return true if the slave has not responded in time and the connection is still usable
+     */
+    protected boolean isResponseTimeout(ModbusIOException e) {
+        if (e instanceof ModbusResponseTimeoutException)
+            return true;
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * enables the circuit breakers: the requests to a slave which has stopped responding fail at once
+     * by ModbusCircuitOpenException. A response timeout doesn't close the connection if the transaction ids are unique
+     * (ModbusTCP with Modbus#setAutoIncrementTransactionId), otherwise the connection is reopened to drop a late response.
+     *
+     * @param circuitBreaker a circuit breaker, or null to disable it (default).
+     * @see ModbusCircuitBreaker
+     */
+    public void setCircuitBreaker(ModbusCircuitBreaker circuitBreaker) {
+        lock.lock();
+        try {
+            this.circuitBreaker = circuitBreaker;
+        } finally {
+            lock.unlock();
         }
     }
 
+    public ModbusCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * enables the adaptive response timeouts: the timeout of each request is derived from the round-trip times
+     * measured for its server address and function code, the response timeout is used as the upper bound.
+     *
+     * @param rttEstimator an estimator, or null to use the response timeout for every request (default).
+     * @see ModbusRttEstimator
+     */
+    public void setRttEstimator(ModbusRttEstimator rttEstimator) {
+        lock.lock();
+        try {
+            this.rttEstimator = rttEstimator;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ModbusRttEstimator getRttEstimator() {
+        return rttEstimator;
+    }
+
     /**
      * ModbusMaster will block for only this amount of time.
      * If the timeout expires, a ModbusTransportException is raised, though the ModbusMaster is still valid.
@@ -220,6 +350,140 @@ abstract public class ModbusMaster implements FrameEventListenerList {
         return response.getRegisters();
     }
 
+    /**
+     * reads the holding registers into the caller's array, see {@link #readHoldingRegisters(int, int, int)}.
+     * The request and the response are reused, so a successful call doesn't allocate any objects.
+     *
+     * @param serverAddress a slave address
+     * @param startAddress  starting register address
+     * @param quantity      the number of registers
+     * @param dst           the destination array
+     * @param offset        the position of the first register in the array
+     * @throws ModbusProtocolException if modbus-exception is received
+     * @throws ModbusNumberException   if response is invalid
+     * @throws ModbusIOException       if remote slave is unavailable
+     */
+    final public void readHoldingRegisters(int serverAddress, int startAddress, int quantity, int[] dst, int offset) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        checkDestination(dst.length, offset, quantity);
+        lock.lock();
+        try {
+            readRegisters(holdingRegistersRequest(), serverAddress, startAddress, quantity).getRegisters(dst, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * reads the holding registers into the caller's array, see {@link #readHoldingRegisters(int, int, int, int[], int)}.
+     */
+    final public void readHoldingRegisters(int serverAddress, int startAddress, int quantity, short[] dst, int offset) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        checkDestination(dst.length, offset, quantity);
+        lock.lock();
+        try {
+            readRegisters(holdingRegistersRequest(), serverAddress, startAddress, quantity).getRegisters(dst, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * reads the holding registers and puts their raw bytes (big-endian, 2 bytes per register) into the buffer,
+     * see {@link #readHoldingRegisters(int, int, int, int[], int)}.
+     */
+    final public void readHoldingRegisters(int serverAddress, int startAddress, int quantity, ByteBuffer dst) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        checkDestination(dst.remaining(), 0, quantity * 2);
+        lock.lock();
+        try {
+            readRegisters(holdingRegistersRequest(), serverAddress, startAddress, quantity).getBytes(dst);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * reads the input registers into the caller's array, see {@link #readInputRegisters(int, int, int)}.
+     * The request and the response are reused, so a successful call doesn't allocate any objects.
+     *
+     * @param serverAddress a slave address
+     * @param startAddress  starting register address
+     * @param quantity      the number of registers
+     * @param dst           the destination array
+     * @param offset        the position of the first register in the array
+     * @throws ModbusProtocolException if modbus-exception is received
+     * @throws ModbusNumberException   if response is invalid
+     * @throws ModbusIOException       if remote slave is unavailable
+     */
+    final public void readInputRegisters(int serverAddress, int startAddress, int quantity, int[] dst, int offset) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        checkDestination(dst.length, offset, quantity);
+        lock.lock();
+        try {
+            readRegisters(inputRegistersRequest(), serverAddress, startAddress, quantity).getRegisters(dst, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * reads the input registers into the caller's array, see {@link #readInputRegisters(int, int, int, int[], int)}.
+     */
+    final public void readInputRegisters(int serverAddress, int startAddress, int quantity, short[] dst, int offset) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        checkDestination(dst.length, offset, quantity);
+        lock.lock();
+        try {
+            readRegisters(inputRegistersRequest(), serverAddress, startAddress, quantity).getRegisters(dst, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * reads the input registers and puts their raw bytes (big-endian, 2 bytes per register) into the buffer,
+     * see {@link #readInputRegisters(int, int, int, int[], int)}.
+     */
+    final public void readInputRegisters(int serverAddress, int startAddress, int quantity, ByteBuffer dst) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        checkDestination(dst.remaining(), 0, quantity * 2);
+        lock.lock();
+        try {
+            readRegisters(inputRegistersRequest(), serverAddress, startAddress, quantity).getBytes(dst);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static private void checkDestination(int length, int offset, int count) {
+        if (offset < 0 || count < 0 || offset + count > length)
+            throw new IndexOutOfBoundsException("Destination is too small: length " + length + ", offset " + offset + ", count " + count);
+    }
+
+    private ReadHoldingRegistersRequest holdingRegistersRequest() {
+        if (holdingRegistersRequest == null)
+            holdingRegistersRequest = new ReadHoldingRegistersRequest();
+        return holdingRegistersRequest;
+    }
+
+    private ReadInputRegistersRequest inputRegistersRequest() {
+        if (inputRegistersRequest == null)
+            inputRegistersRequest = new ReadInputRegistersRequest();
+        return inputRegistersRequest;
+    }
+
+    /*
+     * it must be called under the lock, the request and its response belong to the master.
+     */
+    private ReadHoldingRegistersResponse readRegisters(AbstractMultipleRequest request, int serverAddress, int startAddress, int quantity) throws
+            ModbusProtocolException, ModbusNumberException, ModbusIOException {
+        request.setServerAddress(serverAddress);
+        request.setStartAddress(startAddress);
+        request.setQuantity(quantity);
+        return (ReadHoldingRegistersResponse) processRequest(request);
+    }
+
     /**
      * This function code is used to read from 1 to 2000 contiguous status of coils in a remote
      * device. The Request PDU specifies the starting address, i.e. the address of the first coil
@@ -236,7 +500,7 @@ abstract public class ModbusMaster implements FrameEventListenerList {
      * @throws ModbusNumberException   if response is invalid
      * @throws ModbusIOException       if remote slave is unavailable
      */
-    final synchronized public boolean[] readCoils(int serverAddress, int startAddress, int quantity) throws
+    final public boolean[] readCoils(int serverAddress, int startAddress, int quantity) throws
             ModbusProtocolException, ModbusNumberException, ModbusIOException {
         ModbusRequest request = ModbusRequestBuilder.getInstance().buildReadCoils(serverAddress, startAddress, quantity);
         ReadCoilsResponse response = (ReadCoilsResponse) processRequest(request);
@@ -0,0 +1,663 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.msg.response.BroadcastResponse;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.utils.ModbusExceptionCode;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * ModbusTCP master engine which serves a lot of devices with a small number of threads.
+ * Every device gets a non-blocking SocketChannel, all the channels are multiplexed by one or several selectors.
+ * The responses are assembled from the per-channel buffers and dispatched to the callbacks.
+ * <p>
+ * The callbacks are invoked by a selector thread, so they should never block.
+ * A request instance belongs to the engine until its callback is invoked.
+ */
+final public class ModbusMasterEngineNIO {
+
+    final static public int DEFAULT_SELECTOR_COUNT = 1;
+    final static public int DEFAULT_MAX_OUTSTANDING = 1;
+    final static private int RECEIVE_BUFFER_SIZE = 4 * Modbus.MAX_TCP_ADU_LENGTH;
+
+    final private SelectorLoop[] loops;
+    private int nextLoop = 0;
+    private volatile boolean running = false;
+    private volatile int responseTimeout = Modbus.MAX_RESPONSE_TIMEOUT;
+    private volatile int maxOutstanding = DEFAULT_MAX_OUTSTANDING;
+
+    public ModbusMasterEngineNIO() {
+        this(DEFAULT_SELECTOR_COUNT);
+    }
+
+    /**
+     * @param selectorCount the number of selector threads, the devices are distributed among them evenly.
+     */
+    public ModbusMasterEngineNIO(int selectorCount) {
+        if (selectorCount < 1)
+            throw new IllegalArgumentException("Illegal selector count: " + selectorCount);
+        loops = new SelectorLoop[selectorCount];
+    }
+
+    synchronized public void start() throws ModbusIOException {
+        if (running)
+            return;
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new SelectorLoop(Selector.open());
+            }
+        } catch (IOException e) {
+            for (SelectorLoop loop : loops) {
+                if (loop != null)
+                    loop.closeSelector();
+            }
+            throw new ModbusIOException(e);
+        }
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            Thread t = new Thread(loops[i], getClass().getSimpleName() + "-" + i);
+            t.setDaemon(true);
+            loops[i].thread = t;
+            t.start();
+        }
+    }
+
+    synchronized public void stop() {
+        if (!running)
+            return;
+        running = false;
+        for (SelectorLoop loop : loops) {
+            loop.selector.wakeup();
+            if (loop.thread != Thread.currentThread()) {
+                try {
+                    loop.thread.join(responseTimeout);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    /**
+     * @param timeout the time to wait for each response, in milliseconds.
+     */
+    public void setResponseTimeout(int timeout) {
+        this.responseTimeout = timeout;
+    }
+
+    public int getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    /**
+     * sets the number of requests which can be sent to a single device without waiting for the responses.
+     * A lot of devices cannot handle more than one transaction at a time, so it is 1 by default.
+     * The rest of the requests are queued.
+     *
+     * @param maxOutstanding the number of transactions in flight per device.
+     */
+    public void setMaxOutstanding(int maxOutstanding) {
+        if (maxOutstanding < 1 || maxOutstanding > Modbus.TRANSACTION_ID_MAX_VALUE)
+            throw new IllegalArgumentException("Illegal window size: " + maxOutstanding);
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    /**
+     * registers a device and starts connecting to it.
+     *
+     * @param parameters tcp parameters of the device
+     * @return the device handle to submit requests with
+     * @throws ModbusIOException if the engine is not running
+     */
+    public Device addDevice(TcpParameters parameters) throws ModbusIOException {
+        SelectorLoop loop;
+        synchronized (this) {
+            if (!running)
+                throw new ModbusIOException("The engine is not running.");
+            loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+        }
+        final Device device = new Device(new TcpParameters(parameters), loop);
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                device.connect();
+            }
+        });
+        return device;
+    }
+
+    /**
+     * closes the connection to the device, the requests in progress are failed.
+     *
+     * @param device the device handle
+     */
+    public void removeDevice(final Device device) {
+        device.removed = true;
+        device.loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                device.close(new ModbusIOException("Device removed."));
+            }
+        });
+    }
+
+    /**
+     * queues the request. If the connection to the device is closed, the engine reconnects.
+     *
+     * @param device   the device handle
+     * @param request  an instance of ModbusRequest
+     * @param callback receives the result
+     */
+    public void submit(final Device device, final ModbusRequest request, final ResponseCallback callback) {
+        if (!running || device.removed) {
+            fail(request, callback, new ModbusIOException(running ? "Device removed." : "The engine is not running."));
+            return;
+        }
+        device.loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                device.enqueue(new Transaction(request, callback));
+            }
+        });
+    }
+
+    static private void fail(ModbusRequest request, ResponseCallback callback, Exception cause) {
+        try {
+            callback.onFailure(request, cause);
+        } catch (RuntimeException e) {
+            Modbus.log().warning("Callback failed: " + e.getLocalizedMessage());
+        }
+    }
+
+    static private void succeed(ModbusRequest request, ResponseCallback callback, ModbusResponse response) {
+        try {
+            callback.onResponse(request, response);
+        } catch (RuntimeException e) {
+            Modbus.log().warning("Callback failed: " + e.getLocalizedMessage());
+        }
+    }
+
+    static private class Transaction {
+        final private ModbusRequest request;
+        final private ResponseCallback callback;
+        private Timeout timeout = null;
+
+        Transaction(ModbusRequest request, ResponseCallback callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+
+        void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+    }
+
+    /**
+     * a response or connection deadline. A completed transaction just cancels its timeout,
+     * the cancelled ones are dropped when they reach the head of the queue.
+     */
+    static private class Timeout implements Comparable<Timeout> {
+        final private long deadline;
+        private Device device;
+        private Transaction transaction;
+
+        /**
+         * @param transaction the transaction waiting for the response, null - the connection deadline
+         */
+        Timeout(long deadline, Device device, Transaction transaction) {
+            this.deadline = deadline;
+            this.device = device;
+            this.transaction = transaction;
+        }
+
+        boolean isCancelled() {
+            return device == null;
+        }
+
+        void cancel() {
+            device = null;
+            transaction = null;
+        }
+
+        @Override
+        public int compareTo(Timeout o) {
+            return Long.signum(deadline - o.deadline);
+        }
+    }
+
+    /**
+     * a handle of a device registered in the engine.
+     * All the fields except the parameters are owned by the selector thread.
+     */
+    final public class Device {
+        final private TcpParameters parameters;
+        final private SelectorLoop loop;
+        final private Queue<Transaction> backlog = new ArrayDeque<Transaction>();
+        final private Map<Integer, Transaction> inFlight = new LinkedHashMap<Integer, Transaction>();
+        final private ByteBuffer in = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(Modbus.MAX_TCP_ADU_LENGTH);
+        private SocketChannel channel = null;
+        private SelectionKey key = null;
+        private volatile boolean connected = false;
+        private Timeout connectTimeout = null;
+        private int transactionId = 0;
+        private volatile boolean removed = false;
+
+        private Device(TcpParameters parameters, SelectorLoop loop) {
+            this.parameters = parameters;
+            this.loop = loop;
+        }
+
+        public TcpParameters getParameters() {
+            return parameters;
+        }
+
+        public boolean isConnected() {
+            return connected;
+        }
+
+        private void connect() {
+            if (channel != null || removed || !running)
+                return;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_KEEPALIVE, parameters.isKeepAlive());
+                connectTimeout = loop.schedule(parameters.getConnectionTimeout(), this, null);
+                loop.active.add(this);
+                if (channel.connect(new InetSocketAddress(parameters.getHost(), parameters.getPort()))) {
+                    key = channel.register(loop.selector, SelectionKey.OP_READ, this);
+                    connected();
+                } else {
+                    key = channel.register(loop.selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                close(new ModbusIOException(e));
+            }
+        }
+
+        private void finishConnect() {
+            try {
+                if (channel.finishConnect()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    connected();
+                }
+            } catch (IOException e) {
+                close(new ModbusIOException(e));
+            }
+        }
+
+        private void connected() {
+            connected = true;
+            cancelConnectTimeout();
+            pump();
+        }
+
+        private void enqueue(Transaction t) {
+            if (removed || !running) {
+                fail(t.request, t.callback, new ModbusIOException(running ? "Device removed." : "The engine is stopped."));
+                return;
+            }
+            backlog.add(t);
+            if (channel == null) {
+                connect();
+            } else if (connected) {
+                pump();
+            }
+        }
+
+        /**
+         * moves the requests from the backlog to the output buffer while the window allows it.
+         */
+        private void pump() {
+            while (!backlog.isEmpty() && inFlight.size() < maxOutstanding && channel != null) {
+                Transaction t = backlog.poll();
+                ModbusRequest request = t.request;
+                if (request.getServerAddress() != Modbus.BROADCAST_ID) {
+                    int id = nextTransactionId();
+                    request.setTransactionId(id);
+                }
+                if (!encode(request)) {
+                    fail(request, t.callback, new ModbusIOException("Cannot encode the request."));
+                    continue;
+                }
+                if (request.getServerAddress() == Modbus.BROADCAST_ID) {
+                    BroadcastResponse response = new BroadcastResponse();
+                    response.setFunction(request.getFunction());
+                    succeed(request, t.callback, response);
+                } else {
+                    t.timeout = loop.schedule(responseTimeout, this, t);
+                    inFlight.put(request.getTransactionId(), t);
+                }
+            }
+            write();
+        }
+
+        private int nextTransactionId() {
+            do {
+                transactionId = transactionId >= Modbus.TRANSACTION_ID_MAX_VALUE ? 0 : transactionId + 1;
+            } while (inFlight.containsKey(transactionId));
+            return transactionId;
+        }
+
+        private boolean encode(ModbusRequest request) {
+            if (out.remaining() < ModbusMessageCodec.MBAP_HEADER_LENGTH + request.size()) {
+                ByteBuffer b = ByteBuffer.allocate(out.capacity() + Modbus.MAX_TCP_ADU_LENGTH);
+                out.flip();
+                b.put(out);
+                out = b;
+            }
+            try {
+                ModbusMessageCodec.encodeTcp(request, out);
+                return true;
+            } catch (ModbusIOException e) {
+                return false;
+            }
+        }
+
+        private void write() {
+            if (out.position() == 0 || !connected)
+                return;
+            out.flip();
+            try {
+                channel.write(out);
+            } catch (IOException e) {
+                out.clear();
+                close(new ModbusIOException(e));
+                return;
+            }
+            out.compact();
+            if (key.isValid()) {
+                key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        private void read() {
+            int count;
+            try {
+                count = channel.read(in);
+            } catch (IOException e) {
+                close(new ModbusIOException(e));
+                return;
+            }
+            if (count < 0) {
+                close(new ModbusIOException("Connection closed by the remote side."));
+                return;
+            }
+            in.flip();
+            while (true) {
+                int length;
+                try {
+                    length = ModbusMessageCodec.getTcpFrameLength(in);
+                } catch (ModbusNumberException e) {
+                    /*
+                     * the stream cannot be synchronized anymore
+                     */
+                    in.clear();
+                    close(new ModbusIOException(e));
+                    return;
+                }
+                if (length < 0 || in.remaining() < length)
+                    break;
+                dispatch();
+            }
+            in.compact();
+            pump();
+        }
+
+        /**
+         * decodes the complete frame at the position of the receive buffer and moves the position past it.
+         */
+        private void dispatch() {
+            int transactionId = in.getShort(in.position()) & 0xffff;
+            Transaction t = inFlight.remove(transactionId);
+            if (t == null) {
+                Modbus.log().warning("Unexpected response, transaction id: " + transactionId);
+                in.position(in.position() + (in.getShort(in.position() + 4) & 0xffff) + ModbusMessageCodec.MBAP_HEADER_LENGTH);
+                return;
+            }
+            try {
+                ModbusResponse response = (ModbusResponse) ModbusMessageCodec.decodeTcp(in, t.request);
+                t.request.validateResponse(response);
+                /*
+                 * if you have received an ACKNOWLEDGE,
+                 * it means that operation is in processing and you should be waiting for the answer
+                 */
+                if (response.getModbusExceptionCode() == ModbusExceptionCode.ACKNOWLEDGE) {
+                    inFlight.put(transactionId, t);
+                    return;
+                }
+                t.cancelTimeout();
+                if (response.isException()) {
+                    fail(t.request, t.callback, new ModbusProtocolException(response.getModbusExceptionCode()));
+                } else {
+                    succeed(t.request, t.callback, response);
+                }
+            } catch (ModbusNumberException e) {
+                t.cancelTimeout();
+                fail(t.request, t.callback, e);
+            } catch (ModbusIOException e) {
+                t.cancelTimeout();
+                fail(t.request, t.callback, e);
+            }
+        }
+
+        /**
+         * is called by the selector loop when the timeout expires.
+         */
+        private void expire(Timeout timeout) {
+            Transaction t = timeout.transaction;
+            if (t == null) {
+                connectTimeout = null;
+                if (!connected && channel != null)
+                    close(new ModbusIOException("Connection timeout."));
+                return;
+            }
+            t.timeout = null;
+            if (inFlight.remove(t.request.getTransactionId()) == t) {
+                fail(t.request, t.callback, new ModbusIOException("Response timeout."));
+                pump();
+            }
+        }
+
+        private void cancelConnectTimeout() {
+            if (connectTimeout != null) {
+                connectTimeout.cancel();
+                connectTimeout = null;
+            }
+        }
+
+        private void close(ModbusIOException cause) {
+            connected = false;
+            if (key != null)
+                key.cancel();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    Modbus.log().warning(e.getLocalizedMessage());
+                }
+            }
+            key = null;
+            channel = null;
+            in.clear();
+            out.clear();
+            loop.active.remove(this);
+            cancelConnectTimeout();
+            List<Transaction> failed = new ArrayList<Transaction>(inFlight.values());
+            failed.addAll(backlog);
+            inFlight.clear();
+            backlog.clear();
+            for (Transaction t : failed) {
+                t.cancelTimeout();
+                fail(t.request, t.callback, cause);
+            }
+        }
+    }
+
+    private class SelectorLoop implements Runnable {
+        final private Selector selector;
+        final private Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        /*
+         * devices which are connected or connecting
+         */
+        final private Set<Device> active = new HashSet<Device>();
+        /*
+         * the deadlines of the devices of the loop, the selector waits until the nearest one
+         */
+        final private PriorityQueue<Timeout> timeouts = new PriorityQueue<Timeout>();
+        private Thread thread = null;
+
+        SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        Timeout schedule(int millis, Device device, Transaction transaction) {
+            Timeout timeout = new Timeout(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), device, transaction);
+            timeouts.add(timeout);
+            return timeout;
+        }
+
+        /**
+         * fires the expired timeouts.
+         *
+         * @return the time to the nearest deadline in milliseconds (at least 1), or 0 if there is none
+         */
+        private long expire() {
+            long now = System.nanoTime();
+            Timeout timeout;
+            while ((timeout = timeouts.peek()) != null) {
+                if (timeout.isCancelled()) {
+                    timeouts.poll();
+                } else if (timeout.deadline - now <= 0) {
+                    timeouts.poll();
+                    timeout.device.expire(timeout);
+                } else {
+                    return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout.deadline - now + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long wait = 0;
+                while (running) {
+                    try {
+                        selector.select(wait);
+                    } catch (IOException e) {
+                        Modbus.log().warning(e.getLocalizedMessage());
+                        break;
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey k = it.next();
+                        it.remove();
+                        Device device = (Device) k.attachment();
+                        try {
+                            if (k.isValid() && k.isConnectable())
+                                device.finishConnect();
+                            if (k.isValid() && k.isReadable())
+                                device.read();
+                            if (k.isValid() && k.isWritable())
+                                device.write();
+                        } catch (CancelledKeyException e) {
+                            device.close(new ModbusIOException(new ClosedChannelException()));
+                        }
+                    }
+                    wait = expire();
+                }
+            } finally {
+                ModbusIOException cause = new ModbusIOException("The engine is stopped.");
+                for (Device device : new ArrayList<Device>(active)) {
+                    device.close(cause);
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                closeSelector();
+            }
+        }
+
+        void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.intelligt.modbus.jlibmodbus.serial.SerialParameters;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPortException;
 import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsParameters;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -74,4 +75,17 @@ final public class ModbusMasterFactory {
     static public ModbusMaster createModbusMasterTCP(TcpParameters tcpParameters) {
         return new ModbusMasterTCP(tcpParameters);
     }
+
+    /**
+     * Creates a Modbus/TCP Security master.
+     *
+     * @param tlsParameters - a TlsParameters instance
+     * @return the newly created master
+     * @see ModbusMaster
+     * @see ModbusMasterTCP
+     * @see TlsParameters
+     */
+    static public ModbusMaster createModbusMasterTLS(TlsParameters tlsParameters) {
+        return new ModbusMasterTCP(tlsParameters);
+    }
 }
@@ -38,6 +38,15 @@ abstract public class ModbusMasterSerial extends ModbusMaster {
         super(conn);
     }
 
+    /**
+     * a serial port cannot be broken by a silent slave, a failed read means the slave hasn't responded in time.
+     * If the port itself is lost, the next write fails and the master is disconnected.
+     */
+    @Override
+    protected boolean isResponseTimeout(ModbusIOException e) {
+        return true;
+    }
+
     @Override
     final public int readExceptionStatus(int serverAddress) throws
             ModbusProtocolException, ModbusNumberException, ModbusIOException {
@@ -8,9 +8,15 @@ import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
 import com.intelligt.modbus.jlibmodbus.net.ModbusConnectionFactory;
 import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsParameters;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
+import com.intelligt.modbus.jlibmodbus.utils.VirtualThreads;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -36,9 +42,15 @@ import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 final public class ModbusMasterTCP extends ModbusMaster {
     final private boolean keepAlive;
+    final private ExecutorService executor = VirtualThreads.newSingleExecutor(getClass().getSimpleName());
 
+    /**
+     * @param parameters tcp parameters, if it's an instance of TlsParameters the Modbus/TCP Security is used
+     */
     public ModbusMasterTCP(TcpParameters parameters) {
-        super(ModbusConnectionFactory.getTcpMaster(parameters));
+        super(parameters instanceof TlsParameters ?
+                ModbusConnectionFactory.getTlsMaster((TlsParameters) parameters) :
+                ModbusConnectionFactory.getTcpMaster(parameters));
         keepAlive = parameters.isKeepAlive();
         try {
             if (isKeepAlive()) {
@@ -54,6 +66,11 @@ final public class ModbusMasterTCP extends ModbusMaster {
         return nextId > Modbus.TRANSACTION_ID_MAX_VALUE ? 0 : nextId;
     }
 
+    @Override
+    protected boolean hasUniqueTransactionIds() {
+        return Modbus.isAutoIncrementTransactionId();
+    }
+
     public boolean isKeepAlive() {
         return keepAlive;
     }
@@ -88,6 +105,29 @@ final public class ModbusMasterTCP extends ModbusMaster {
         return msg;
     }
 
+    /**
+     * processes the request and returns immediately: on a virtual thread per request if they are enabled
+     * (Modbus#setVirtualThreadsEnabled), else on a single daemon thread. The requests are still sent one at a time,
+     * they wait for each other in #processRequest.
+     *
+     * @param request an instance of ModbusRequest
+     * @return a future which is completed either by the response or by the exception thrown by #processRequest.
+     */
+    public CompletableFuture<ModbusResponse> submit(final ModbusRequest request) {
+        final CompletableFuture<ModbusResponse> future = new CompletableFuture<ModbusResponse>();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.complete(processRequest(request));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
     @Override
     public int readExceptionStatus(int serverAddress) throws ModbusNumberException, ModbusIOException, ModbusProtocolException {
         throw new IllegalFunctionException(ModbusFunctionCode.READ_EXCEPTION_STATUS.toInt());
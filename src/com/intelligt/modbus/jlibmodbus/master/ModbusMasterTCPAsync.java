@@ -0,0 +1,350 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusResponseFactory;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.msg.response.BroadcastResponse;
+import com.intelligt.modbus.jlibmodbus.net.ModbusConnection;
+import com.intelligt.modbus.jlibmodbus.net.ModbusConnectionFactory;
+import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransport;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.utils.ModbusExceptionCode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * Asynchronous ModbusTCP master which keeps several transactions in flight over a single socket.
+ * Each submitted request gets a unique transaction id, a dedicated reader thread matches the responses
+ * by that id, so the futures may complete in any order.
+ * The number of outstanding requests is limited by the window size; #submit blocks while the window is full.
+ * <p>
+ * Note that the request instance is modified (the transaction id is set) and belongs to the master
+ * until its future is completed. Futures are completed on the reader thread.
+ */
+final public class ModbusMasterTCPAsync {
+
+    final static public int DEFAULT_MAX_OUTSTANDING = 16;
+
+    final private ModbusConnection conn;
+    final private int maxOutstanding;
+    final private Semaphore window;
+    final private ConcurrentMap<Integer, PendingRequest> pending = new ConcurrentHashMap<Integer, PendingRequest>();
+    final private Object sendLock = new Object();
+    private int transactionId = 0;
+    private volatile int responseTimeout = Modbus.MAX_RESPONSE_TIMEOUT;
+    private volatile boolean running = false;
+    private ScheduledThreadPoolExecutor timer = null;
+    private Thread reader = null;
+
+    public ModbusMasterTCPAsync(TcpParameters parameters) {
+        this(parameters, DEFAULT_MAX_OUTSTANDING);
+    }
+
+    /**
+     * @param parameters     tcp parameters of the remote slave (or gateway)
+     * @param maxOutstanding the maximum number of requests waiting for a response at the same time
+     */
+    public ModbusMasterTCPAsync(TcpParameters parameters, int maxOutstanding) {
+        if (maxOutstanding < 1 || maxOutstanding > Modbus.TRANSACTION_ID_MAX_VALUE)
+            throw new IllegalArgumentException("Illegal window size: " + maxOutstanding);
+        this.conn = ModbusConnectionFactory.getTcpMaster(new TcpParameters(parameters));
+        this.maxOutstanding = maxOutstanding;
+        this.window = new Semaphore(maxOutstanding, true);
+    }
+
+    synchronized public void connect() throws ModbusIOException {
+        if (isConnected())
+            return;
+        conn.open();
+        /*
+         * the reader waits for the responses forever, response timeouts are handled by the timer.
+         */
+        conn.setReadTimeout(0);
+        running = true;
+        timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("timer"));
+        timer.setRemoveOnCancelPolicy(true);
+        reader = new DaemonThreadFactory("reader").newThread(new Runnable() {
+            @Override
+            public void run() {
+                readLoop();
+            }
+        });
+        reader.start();
+    }
+
+    synchronized public void disconnect() throws ModbusIOException {
+        if (!running)
+            return;
+        running = false;
+        try {
+            conn.close();
+        } finally {
+            failAll(new ModbusIOException("Connection closed."));
+            timer.shutdownNow();
+            if (reader != Thread.currentThread()) {
+                try {
+                    reader.join(responseTimeout);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            reader = null;
+            timer = null;
+        }
+    }
+
+    public boolean isConnected() {
+        return running && conn.isOpened();
+    }
+
+    public int getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    /**
+     * @param timeout the time to wait for each response, in milliseconds.
+     */
+    public void setResponseTimeout(int timeout) {
+        this.responseTimeout = timeout;
+    }
+
+    public int getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    /**
+     * @return the number of requests waiting for a response at the moment.
+     */
+    public int getOutstanding() {
+        return maxOutstanding - window.availablePermits();
+    }
+
+    /**
+     * sends the request and returns immediately. If the window is full, the calling thread blocks
+     * until one of the outstanding transactions is completed.
+     *
+     * @param request an instance of ModbusRequest
+     * @return a future which is completed either by the response or by ModbusProtocolException (modbus-exception
+     * is received), ModbusNumberException (invalid response) or ModbusIOException (timeout or connection failure).
+     */
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<ModbusResponse>();
+        if (!isConnected()) {
+            future.completeExceptionally(new ModbusIOException("Not connected."));
+            return future;
+        }
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new ModbusIOException(e));
+            return future;
+        }
+        if (request.getServerAddress() == Modbus.BROADCAST_ID) {
+            try {
+                send(request);
+                BroadcastResponse response = new BroadcastResponse();
+                response.setFunction(request.getFunction());
+                future.complete(response);
+            } catch (ModbusIOException e) {
+                future.completeExceptionally(e);
+            } finally {
+                window.release();
+            }
+            return future;
+        }
+        PendingRequest p = new PendingRequest(request, future);
+        synchronized (sendLock) {
+            int id = nextTransactionId();
+            request.setTransactionId(id);
+            pending.put(id, p);
+        }
+        try {
+            p.timeout = timer.schedule(new TimeoutTask(request.getTransactionId(), p), responseTimeout, TimeUnit.MILLISECONDS);
+            send(request);
+        } catch (Exception e) {
+            if (pending.remove(request.getTransactionId(), p)) {
+                p.completeExceptionally(e instanceof ModbusIOException ? e : new ModbusIOException(e));
+            }
+        }
+        return future;
+    }
+
+    private int nextTransactionId() {
+        /*
+         * the window is never bigger than the id space, so there is always a free id.
+         */
+        do {
+            transactionId = transactionId >= Modbus.TRANSACTION_ID_MAX_VALUE ? 0 : transactionId + 1;
+        } while (pending.containsKey(transactionId));
+        return transactionId;
+    }
+
+    private void send(ModbusRequest request) throws ModbusIOException {
+        synchronized (sendLock) {
+            ModbusTransport transport = conn.getTransport();
+            if (transport == null)
+                throw new ModbusIOException("transport is null");
+            transport.send(request);
+        }
+    }
+
+    private void readLoop() {
+        ModbusTransport transport = conn.getTransport();
+        while (running) {
+            ModbusMessage msg;
+            try {
+                msg = transport.readMessage(ModbusResponseFactory.getInstance());
+            } catch (ModbusNumberException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+                continue;
+            } catch (ModbusIOException e) {
+                if (running) {
+                    Modbus.log().warning(e.getLocalizedMessage());
+                    failAll(e);
+                    try {
+                        disconnect();
+                    } catch (ModbusIOException ioe) {
+                        Modbus.log().warning(ioe.getLocalizedMessage());
+                    }
+                }
+                return;
+            }
+            dispatch((ModbusResponse) msg);
+        }
+    }
+
+    private void dispatch(ModbusResponse response) {
+        PendingRequest p = pending.get(response.getTransactionId());
+        if (p == null) {
+            Modbus.log().warning("Unexpected response, transaction id: " + response.getTransactionId());
+            return;
+        }
+        /*
+         * if you have received an ACKNOWLEDGE,
+         * it means that operation is in processing and you should be waiting for the answer
+         */
+        if (response.getModbusExceptionCode() == ModbusExceptionCode.ACKNOWLEDGE)
+            return;
+        if (!pending.remove(response.getTransactionId(), p))
+            return;
+        try {
+            p.request.validateResponse(response);
+            if (response.isException()) {
+                p.completeExceptionally(new ModbusProtocolException(response.getModbusExceptionCode()));
+            } else {
+                p.complete(response);
+            }
+        } catch (ModbusNumberException e) {
+            p.completeExceptionally(e);
+        }
+    }
+
+    private void failAll(Exception cause) {
+        List<Integer> ids = new ArrayList<Integer>(pending.keySet());
+        for (Integer id : ids) {
+            PendingRequest p = pending.remove(id);
+            if (p != null) {
+                p.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private class PendingRequest {
+        final private ModbusRequest request;
+        final private CompletableFuture<ModbusResponse> future;
+        private volatile ScheduledFuture<?> timeout = null;
+
+        PendingRequest(ModbusRequest request, CompletableFuture<ModbusResponse> future) {
+            this.request = request;
+            this.future = future;
+        }
+
+        void complete(ModbusResponse response) {
+            finish();
+            future.complete(response);
+        }
+
+        void completeExceptionally(Throwable cause) {
+            finish();
+            future.completeExceptionally(cause);
+        }
+
+        private void finish() {
+            ScheduledFuture<?> t = timeout;
+            if (t != null)
+                t.cancel(false);
+            window.release();
+        }
+    }
+
+    private class TimeoutTask implements Runnable {
+        final private int id;
+        final private PendingRequest p;
+
+        TimeoutTask(int id, PendingRequest p) {
+            this.id = id;
+            this.p = p;
+        }
+
+        @Override
+        public void run() {
+            if (pending.remove(id, p)) {
+                p.completeExceptionally(new ModbusIOException("Response timeout."));
+            }
+        }
+    }
+
+    static private class DaemonThreadFactory implements ThreadFactory {
+        final private String name;
+
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setName(ModbusMasterTCPAsync.class.getSimpleName() + "-" + name);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.msg.response.BroadcastResponse;
+import com.intelligt.modbus.jlibmodbus.utils.ModbusExceptionCode;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * Asynchronous ModbusUDP master which polls any number of devices through a single DatagramChannel.
+ * Each request gets a transaction id which is unique among the outstanding requests,
+ * a response is accepted if both its transaction id and its source address match the request.
+ * If there is no response within the response timeout the same datagram is sent again,
+ * the future fails when the retries are exhausted.
+ * <p>
+ * The request instance is modified (the transaction id is set) and belongs to the master
+ * until its future is completed. Futures are completed on the reader thread or on the timer thread.
+ */
+final public class ModbusMasterUDP {
+
+    final static public int DEFAULT_MAX_OUTSTANDING = 256;
+    final static public int DEFAULT_RETRIES = 2;
+
+    final private int localPort;
+    final private int maxOutstanding;
+    final private Semaphore window;
+    final private ConcurrentMap<Integer, PendingRequest> pending = new ConcurrentHashMap<Integer, PendingRequest>();
+    final private Object idLock = new Object();
+    private int transactionId = 0;
+    private volatile int responseTimeout = Modbus.MAX_RESPONSE_TIMEOUT;
+    private volatile int retries = DEFAULT_RETRIES;
+    private volatile boolean running = false;
+    private DatagramChannel channel = null;
+    private ScheduledThreadPoolExecutor timer = null;
+    private Thread reader = null;
+
+    public ModbusMasterUDP() {
+        this(0, DEFAULT_MAX_OUTSTANDING);
+    }
+
+    /**
+     * @param localPort      the local port to send the requests from, 0 - any free port
+     * @param maxOutstanding the maximum number of requests waiting for a response at the same time
+     */
+    public ModbusMasterUDP(int localPort, int maxOutstanding) {
+        if (maxOutstanding < 1 || maxOutstanding > Modbus.TRANSACTION_ID_MAX_VALUE)
+            throw new IllegalArgumentException("Illegal window size: " + maxOutstanding);
+        this.localPort = localPort;
+        this.maxOutstanding = maxOutstanding;
+        this.window = new Semaphore(maxOutstanding, true);
+    }
+
+    synchronized public void open() throws ModbusIOException {
+        if (running)
+            return;
+        try {
+            channel = DatagramChannel.open();
+            channel.bind(new InetSocketAddress(localPort));
+        } catch (IOException e) {
+            closeChannel();
+            throw new ModbusIOException(e);
+        }
+        running = true;
+        timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("timer"));
+        timer.setRemoveOnCancelPolicy(true);
+        final DatagramChannel c = channel;
+        reader = new DaemonThreadFactory("reader").newThread(new Runnable() {
+            @Override
+            public void run() {
+                readLoop(c);
+            }
+        });
+        reader.start();
+    }
+
+    synchronized public void close() {
+        if (!running)
+            return;
+        running = false;
+        closeChannel();
+        failAll(new ModbusIOException("The master is closed."));
+        timer.shutdownNow();
+        if (reader != Thread.currentThread()) {
+            try {
+                reader.join(responseTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        reader = null;
+        timer = null;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+            channel = null;
+        }
+    }
+
+    public boolean isOpened() {
+        return running;
+    }
+
+    /**
+     * @return the local address of the channel, or null if the master is closed.
+     */
+    synchronized public SocketAddress getLocalAddress() throws ModbusIOException {
+        try {
+            return channel != null ? channel.getLocalAddress() : null;
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+    }
+
+    public int getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    /**
+     * @param timeout the time to wait for each response before the request is sent again, in milliseconds.
+     */
+    public void setResponseTimeout(int timeout) {
+        this.responseTimeout = timeout;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @param retries the number of times a request is sent again if there is no response.
+     */
+    public void setRetries(int retries) {
+        if (retries < 0)
+            throw new IllegalArgumentException("Illegal number of retries: " + retries);
+        this.retries = retries;
+    }
+
+    public int getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    /**
+     * @return the number of requests waiting for a response at the moment.
+     */
+    public int getOutstanding() {
+        return maxOutstanding - window.availablePermits();
+    }
+
+    /**
+     * sends the request to the device and returns immediately. If the window is full, the calling thread blocks
+     * until one of the outstanding transactions is completed.
+     *
+     * @param device  the address of the device (or the gateway)
+     * @param request an instance of ModbusRequest
+     * @return a future which is completed either by the response or by ModbusProtocolException (modbus-exception
+     * is received), ModbusNumberException (invalid response) or ModbusIOException (timeout or i/o failure).
+     */
+    public CompletableFuture<ModbusResponse> submit(InetSocketAddress device, ModbusRequest request) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<ModbusResponse>();
+        if (!running) {
+            future.completeExceptionally(new ModbusIOException("The master is closed."));
+            return future;
+        }
+        if (device.isUnresolved()) {
+            future.completeExceptionally(new ModbusIOException("Unresolved address: " + device));
+            return future;
+        }
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new ModbusIOException(e));
+            return future;
+        }
+        PendingRequest p = new PendingRequest(device, request, future);
+        if (request.getServerAddress() != Modbus.BROADCAST_ID) {
+            synchronized (idLock) {
+                int id = nextTransactionId();
+                request.setTransactionId(id);
+                pending.put(id, p);
+            }
+        }
+        try {
+            ModbusMessageCodec.encodeTcp(request, p.datagram);
+            p.datagram.flip();
+        } catch (ModbusIOException e) {
+            pending.remove(request.getTransactionId(), p);
+            p.completeExceptionally(e);
+            return future;
+        }
+        if (request.getServerAddress() == Modbus.BROADCAST_ID) {
+            try {
+                send(p);
+                BroadcastResponse response = new BroadcastResponse();
+                response.setFunction(request.getFunction());
+                p.complete(response);
+            } catch (ModbusIOException e) {
+                p.completeExceptionally(e);
+            }
+            return future;
+        }
+        transmit(p);
+        return future;
+    }
+
+    private int nextTransactionId() {
+        /*
+         * the window is never bigger than the id space, so there is always a free id.
+         */
+        do {
+            transactionId = transactionId >= Modbus.TRANSACTION_ID_MAX_VALUE ? 0 : transactionId + 1;
+        } while (pending.containsKey(transactionId));
+        return transactionId;
+    }
+
+    /**
+     * sends the datagram and schedules the retry.
+     */
+    private void transmit(PendingRequest p) {
+        try {
+            p.timeout = timer.schedule(new TimeoutTask(p), responseTimeout, TimeUnit.MILLISECONDS);
+            send(p);
+        } catch (Exception e) {
+            if (pending.remove(p.request.getTransactionId(), p)) {
+                p.completeExceptionally(e instanceof ModbusIOException ? e : new ModbusIOException(e));
+            }
+        }
+    }
+
+    private void send(PendingRequest p) throws ModbusIOException {
+        DatagramChannel c = channel;
+        if (c == null)
+            throw new ModbusIOException("The master is closed.");
+        try {
+            c.send(p.datagram.duplicate(), p.device);
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+    }
+
+    private void readLoop(DatagramChannel c) {
+        ByteBuffer in = ByteBuffer.allocate(Modbus.MAX_TCP_ADU_LENGTH);
+        while (running) {
+            SocketAddress sender;
+            in.clear();
+            try {
+                sender = c.receive(in);
+            } catch (IOException e) {
+                if (running)
+                    Modbus.log().warning(e.getLocalizedMessage());
+                return;
+            }
+            in.flip();
+            dispatch(sender, in);
+        }
+    }
+
+    private void dispatch(SocketAddress sender, ByteBuffer in) {
+        int length;
+        try {
+            length = ModbusMessageCodec.getTcpFrameLength(in);
+        } catch (ModbusNumberException e) {
+            Modbus.log().warning(e.getLocalizedMessage());
+            return;
+        }
+        if (length < 0 || length != in.remaining()) {
+            Modbus.log().warning("Illegal length of the datagram: " + in.remaining());
+            return;
+        }
+        int transactionId = in.getShort(in.position()) & 0xffff;
+        PendingRequest p = pending.get(transactionId);
+        if (p == null || !p.device.equals(sender)) {
+            Modbus.log().warning("Unexpected response, transaction id: " + transactionId + ", source: " + sender);
+            return;
+        }
+        ModbusResponse response;
+        try {
+            response = (ModbusResponse) ModbusMessageCodec.decodeTcp(in, p.request);
+        } catch (ModbusNumberException e) {
+            if (pending.remove(transactionId, p))
+                p.completeExceptionally(e);
+            return;
+        } catch (ModbusIOException e) {
+            if (pending.remove(transactionId, p))
+                p.completeExceptionally(e);
+            return;
+        }
+        /*
+         * if you have received an ACKNOWLEDGE,
+         * it means that operation is in processing and you should be waiting for the answer
+         */
+        if (response.getModbusExceptionCode() == ModbusExceptionCode.ACKNOWLEDGE)
+            return;
+        if (!pending.remove(transactionId, p))
+            return;
+        try {
+            p.request.validateResponse(response);
+            if (response.isException()) {
+                p.completeExceptionally(new ModbusProtocolException(response.getModbusExceptionCode()));
+            } else {
+                p.complete(response);
+            }
+        } catch (ModbusNumberException e) {
+            p.completeExceptionally(e);
+        }
+    }
+
+    private void failAll(Exception cause) {
+        List<Integer> ids = new ArrayList<Integer>(pending.keySet());
+        for (Integer id : ids) {
+            PendingRequest p = pending.remove(id);
+            if (p != null) {
+                p.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private class PendingRequest {
+        final private InetSocketAddress device;
+        final private ModbusRequest request;
+        final private CompletableFuture<ModbusResponse> future;
+        final private ByteBuffer datagram = ByteBuffer.allocate(Modbus.MAX_TCP_ADU_LENGTH);
+        private volatile ScheduledFuture<?> timeout = null;
+        private int attempts = 0;
+
+        PendingRequest(InetSocketAddress device, ModbusRequest request, CompletableFuture<ModbusResponse> future) {
+            this.device = device;
+            this.request = request;
+            this.future = future;
+        }
+
+        void complete(ModbusResponse response) {
+            finish();
+            future.complete(response);
+        }
+
+        void completeExceptionally(Throwable cause) {
+            finish();
+            future.completeExceptionally(cause);
+        }
+
+        private void finish() {
+            ScheduledFuture<?> t = timeout;
+            if (t != null)
+                t.cancel(false);
+            window.release();
+        }
+    }
+
+    private class TimeoutTask implements Runnable {
+        final private PendingRequest p;
+
+        TimeoutTask(PendingRequest p) {
+            this.p = p;
+        }
+
+        @Override
+        public void run() {
+            int id = p.request.getTransactionId();
+            if (pending.get(id) != p)
+                return;
+            if (p.attempts < retries && running) {
+                p.attempts++;
+                transmit(p);
+            } else if (pending.remove(id, p)) {
+                p.completeExceptionally(new ModbusIOException("Response timeout."));
+            }
+        }
+    }
+
+    static private class DaemonThreadFactory implements ThreadFactory {
+        final private String name;
+
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setName(ModbusMasterUDP.class.getSimpleName() + "-" + name);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
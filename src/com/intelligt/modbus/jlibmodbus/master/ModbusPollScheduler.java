@@ -0,0 +1,399 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * runs the scan groups periodically over a set of ModbusMaster instances.
+ * <p>
+ * The releases of a group are aligned to a fixed grid (start + k * period), so a late execution
+ * doesn't make the following ones drift. The released groups are executed earliest-deadline-first
+ * (the deadline of a release is the next release) by a fixed number of worker threads. A worker skips
+ * the groups whose masters are all busy, so a slow device stalls only its own connections.
+ * <p>
+ * If a group is still running or waiting when its next release comes, that release is skipped and counted
+ * as an overrun: a device which cannot keep up is polled as fast as it responds, the queue doesn't grow.
+ * Give a group several masters connected to the same device to let it run on any of them.
+ */
+public class ModbusPollScheduler {
+
+    final static private Comparator<ScanGroup> BY_RELEASE = new Comparator<ScanGroup>() {
+        @Override
+        public int compare(ScanGroup a, ScanGroup b) {
+            return compareNanos(a.release, b.release);
+        }
+    };
+    final static private Comparator<ScanGroup> BY_DEADLINE = new Comparator<ScanGroup>() {
+        @Override
+        public int compare(ScanGroup a, ScanGroup b) {
+            return compareNanos(a.release + a.period, b.release + b.period);
+        }
+    };
+
+    final private int workerCount;
+    final private ReentrantLock lock = new ReentrantLock();
+    final private Condition changed = lock.newCondition();
+    final private PriorityQueue<ScanGroup> waiting = new PriorityQueue<ScanGroup>(16, BY_RELEASE);
+    final private List<ScanGroup> released = new ArrayList<ScanGroup>();
+    final private Map<ModbusMaster, Boolean> busy = new IdentityHashMap<ModbusMaster, Boolean>();
+    final private List<Thread> workers = new ArrayList<Thread>();
+    private boolean running = false;
+
+    /**
+     * @param workerCount the maximum number of the requests in progress at the same time
+     */
+    public ModbusPollScheduler(int workerCount) {
+        if (workerCount < 1)
+            throw new IllegalArgumentException("Illegal worker count: " + workerCount);
+        this.workerCount = workerCount;
+    }
+
+    static private int compareNanos(long a, long b) {
+        long d = a - b;
+        return d < 0 ? -1 : (d > 0 ? 1 : 0);
+    }
+
+    /**
+     * adds a scan group, it is released at once if the scheduler is running.
+     *
+     * @param plan    the requests to execute
+     * @param period  the scan period, in milliseconds
+     * @param masters the connections the group can be executed over
+     * @return the scan group
+     */
+    public ScanGroup addGroup(ModbusReadPlan plan, long period, ModbusMaster... masters) {
+        if (period <= 0)
+            throw new IllegalArgumentException("Illegal period: " + period);
+        if (masters.length == 0)
+            throw new IllegalArgumentException("No master specified");
+        ScanGroup group = new ScanGroup(plan, TimeUnit.MILLISECONDS.toNanos(period), masters);
+        lock.lock();
+        try {
+            group.release = System.nanoTime();
+            waiting.add(group);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return group;
+    }
+
+    /**
+     * removes a scan group, if it is being executed, the execution is completed.
+     *
+     * @param group the scan group
+     */
+    public void removeGroup(ScanGroup group) {
+        lock.lock();
+        try {
+            group.removed = true;
+            waiting.remove(group);
+            released.remove(group);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void start() {
+        lock.lock();
+        try {
+            if (running)
+                return;
+            running = true;
+            for (int i = 0; i < workerCount; i++) {
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        work();
+                    }
+                }, getClass().getSimpleName() + "-" + i);
+                t.setDaemon(true);
+                workers.add(t);
+                t.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        List<Thread> threads;
+        lock.lock();
+        try {
+            running = false;
+            changed.signalAll();
+            threads = new ArrayList<Thread>(workers);
+            workers.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void work() {
+        while (true) {
+            ScanGroup group;
+            ModbusMaster master;
+            lock.lock();
+            try {
+                while (true) {
+                    if (!running)
+                        return;
+                    long now = System.nanoTime();
+                    while (!waiting.isEmpty() && compareNanos(waiting.peek().release, now) <= 0) {
+                        released.add(waiting.poll());
+                    }
+                    group = null;
+                    master = null;
+                    Collections.sort(released, BY_DEADLINE);
+                    for (Iterator<ScanGroup> it = released.iterator(); it.hasNext() && group == null; ) {
+                        ScanGroup g = it.next();
+                        master = g.acquire();
+                        if (master != null) {
+                            it.remove();
+                            group = g;
+                        }
+                    }
+                    if (group != null)
+                        break;
+                    if (waiting.isEmpty()) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(waiting.peek().release - now);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            long start = System.nanoTime();
+            Exception exception = execute(group, master);
+            long end = System.nanoTime();
+            lock.lock();
+            try {
+                busy.remove(master);
+                group.complete(start, end, exception);
+                if (!group.removed)
+                    waiting.add(group);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Exception execute(ScanGroup group, ModbusMaster master) {
+        try {
+            if (!master.isConnected())
+                master.connect();
+            int failed = group.plan.execute(master);
+            return failed == 0 ? null : group.firstTagException();
+        } catch (ModbusIOException e) {
+            Modbus.log().warning(e.getLocalizedMessage());
+            return e;
+        } catch (RuntimeException e) {
+            Modbus.log().warning(e.toString());
+            return e;
+        }
+    }
+
+    /**
+     * a set of requests executed periodically, it also collects the timing statistics.
+     * The statistics are updated by the workers, the getters are not synchronized to them.
+     */
+    public class ScanGroup {
+        final private ModbusReadPlan plan;
+        final private long period;
+        final private List<ModbusMaster> masters;
+        private long release = 0;
+        private boolean removed = false;
+        private volatile long executions = 0;
+        private volatile long failures = 0;
+        private volatile long overruns = 0;
+        private volatile long deadlineMisses = 0;
+        private volatile long lastDuration = 0;
+        private volatile long maxJitter = 0;
+        private volatile long totalJitter = 0;
+        private volatile Exception lastException = null;
+
+        private ScanGroup(ModbusReadPlan plan, long period, ModbusMaster[] masters) {
+            this.plan = plan;
+            this.period = period;
+            this.masters = Collections.unmodifiableList(Arrays.asList(masters.clone()));
+        }
+
+        private ModbusMaster acquire() {
+            for (ModbusMaster m : masters) {
+                if (!busy.containsKey(m)) {
+                    busy.put(m, Boolean.TRUE);
+                    return m;
+                }
+            }
+            return null;
+        }
+
+        private void complete(long start, long end, Exception exception) {
+            long jitter = start - release;
+            long deadline = release + period;
+            executions++;
+            totalJitter += jitter;
+            maxJitter = Math.max(maxJitter, jitter);
+            lastDuration = end - start;
+            lastException = exception;
+            if (exception != null)
+                failures++;
+            if (compareNanos(end, deadline) > 0)
+                deadlineMisses++;
+            /*
+             * skip the releases missed, stay on the grid
+             */
+            long missed = compareNanos(end, deadline) > 0 ? (end - deadline) / period + 1 : 0;
+            overruns += missed;
+            release = deadline + missed * period;
+        }
+
+        private Exception firstTagException() {
+            for (ModbusReadPlan.Block block : plan.getBlocks()) {
+                for (ModbusTag tag : block.getTags()) {
+                    if (tag.getException() != null)
+                        return tag.getException();
+                }
+            }
+            return null;
+        }
+
+        public ModbusReadPlan getPlan() {
+            return plan;
+        }
+
+        /**
+         * @return the scan period, in milliseconds
+         */
+        public long getPeriod() {
+            return TimeUnit.NANOSECONDS.toMillis(period);
+        }
+
+        public List<ModbusMaster> getMasters() {
+            return masters;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        /**
+         * @return the number of executions completed with an exception
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return the number of the releases skipped because the previous execution wasn't completed in time
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * @return the number of executions completed after the next release time
+         */
+        public long getDeadlineMisses() {
+            return deadlineMisses;
+        }
+
+        /**
+         * @return the duration of the last execution, in nanoseconds
+         */
+        public long getLastDurationNanos() {
+            return lastDuration;
+        }
+
+        /**
+         * @return the maximum delay between a release and the start of its execution, in nanoseconds
+         */
+        public long getMaxJitterNanos() {
+            return maxJitter;
+        }
+
+        /**
+         * @return the mean delay between a release and the start of its execution, in nanoseconds
+         */
+        public long getMeanJitterNanos() {
+            long n = executions;
+            return n == 0 ? 0 : totalJitter / n;
+        }
+
+        /**
+         * @return the exception of the last execution, or null if it has been successful
+         */
+        public Exception getLastException() {
+            return lastException;
+        }
+
+        /**
+         * resets the statistics.
+         */
+        public void resetStatistics() {
+            lock.lock();
+            try {
+                executions = 0;
+                failures = 0;
+                overruns = 0;
+                deadlineMisses = 0;
+                lastDuration = 0;
+                maxJitter = 0;
+                totalJitter = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
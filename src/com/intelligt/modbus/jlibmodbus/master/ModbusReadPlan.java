@@ -0,0 +1,190 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.exception.ModbusCircuitOpenException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * the requests computed by ModbusReadPlanner. A plan doesn't depend on a master, so it is computed once
+ * and executed every poll cycle.
+ *
+ * @see ModbusReadPlanner
+ */
+public class ModbusReadPlan {
+
+    final private List<Block> blocks;
+
+    ModbusReadPlan(List<Block> blocks) {
+        this.blocks = Collections.unmodifiableList(blocks);
+    }
+
+    /**
+     * @return the requests of the plan
+     */
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return the number of the requests
+     */
+    public int size() {
+        return blocks.size();
+    }
+
+    /**
+     * sends the requests one after another and scatters the results back to the tags.
+     * If a slave responds with a modbus-exception (or an invalid response), doesn't respond in time or
+     * its circuit breaker is open, the tags of the request keep that exception and the rest of the plan
+     * is executed as usual.
+     *
+     * @param master a connected master
+     * @return the number of the requests failed
+     * @throws ModbusIOException if the connection is lost, the rest of the plan is not executed.
+     */
+    public int execute(ModbusMaster master) throws ModbusIOException {
+        int failed = 0;
+        for (Block block : blocks) {
+            try {
+                block.read(master);
+            } catch (ModbusProtocolException e) {
+                block.setException(e);
+                failed++;
+            } catch (ModbusNumberException e) {
+                block.setException(e);
+                failed++;
+            } catch (ModbusCircuitOpenException e) {
+                block.setException(e);
+                failed++;
+            } catch (ModbusIOException e) {
+                block.setException(e);
+                if (!master.isResponseTimeout(e))
+                    throw e;
+                failed++;
+                /*
+                 * the master may have closed the connection to drop a late response
+                 */
+                master.connect();
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * a single read request and the tags it covers.
+     */
+    static public class Block {
+        final private int serverAddress;
+        final private ModbusTag.Table table;
+        final private int startAddress;
+        final private List<ModbusTag> tags = new ArrayList<ModbusTag>();
+        private int endAddress;
+
+        Block(int serverAddress, ModbusTag.Table table, int startAddress) {
+            this.serverAddress = serverAddress;
+            this.table = table;
+            this.startAddress = startAddress;
+            this.endAddress = startAddress;
+        }
+
+        void add(ModbusTag tag) {
+            tags.add(tag);
+            endAddress = Math.max(endAddress, tag.getEndAddress());
+        }
+
+        public int getServerAddress() {
+            return serverAddress;
+        }
+
+        public ModbusTag.Table getTable() {
+            return table;
+        }
+
+        public int getStartAddress() {
+            return startAddress;
+        }
+
+        int getEndAddress() {
+            return endAddress;
+        }
+
+        public int getQuantity() {
+            return endAddress - startAddress;
+        }
+
+        public List<ModbusTag> getTags() {
+            return Collections.unmodifiableList(tags);
+        }
+
+        void read(ModbusMaster master) throws ModbusProtocolException, ModbusNumberException, ModbusIOException {
+            switch (table) {
+                case COILS:
+                    scatter(master.readCoils(serverAddress, startAddress, getQuantity()));
+                    break;
+                case DISCRETE_INPUTS:
+                    scatter(master.readDiscreteInputs(serverAddress, startAddress, getQuantity()));
+                    break;
+                case HOLDING_REGISTERS:
+                    scatter(master.readHoldingRegisters(serverAddress, startAddress, getQuantity()));
+                    break;
+                case INPUT_REGISTERS:
+                    scatter(master.readInputRegisters(serverAddress, startAddress, getQuantity()));
+                    break;
+            }
+        }
+
+        private void scatter(int[] registers) throws ModbusNumberException {
+            if (registers.length < getQuantity())
+                throw new ModbusNumberException("Register count mismatch", registers.length);
+            for (ModbusTag tag : tags) {
+                tag.setRegisters(registers, tag.getAddress() - startAddress);
+            }
+        }
+
+        private void scatter(boolean[] bits) throws ModbusNumberException {
+            if (bits.length < getQuantity())
+                throw new ModbusNumberException("Bit count mismatch", bits.length);
+            for (ModbusTag tag : tags) {
+                tag.setBits(bits, tag.getAddress() - startAddress);
+            }
+        }
+
+        void setException(Exception e) {
+            for (ModbusTag tag : tags) {
+                tag.setException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Block{" + serverAddress + ", " + table + ", " + startAddress + ", " + getQuantity() + ", tags=" + tags.size() + "}";
+        }
+    }
+}
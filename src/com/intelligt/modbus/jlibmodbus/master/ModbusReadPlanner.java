@@ -0,0 +1,142 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * groups scattered tags into as few read requests (FC01, FC02, FC03, FC04) as possible.
+ * <p>
+ * The tags of the same slave and table are sorted by address and merged into a block while
+ * the block fits into a single request and the unused gap between the neighbour tags is not greater
+ * than the gap tolerance. Reading a few unused registers costs much less than one more round trip,
+ * so the default tolerance is pretty large; set it to 0 to read only the addresses referenced by tags,
+ * e.g. if the device responds ILLEGAL_DATA_ADDRESS on the holes of its map.
+ * A tag is never split between two requests.
+ */
+public class ModbusReadPlanner {
+
+    final static public int DEFAULT_REGISTER_GAP = 16;
+    final static public int DEFAULT_BIT_GAP = 128;
+
+    private int registerGap = DEFAULT_REGISTER_GAP;
+    private int bitGap = DEFAULT_BIT_GAP;
+    private int maxRegisterCount = ModbusTag.Table.HOLDING_REGISTERS.getMaxReadCount();
+    private int maxBitCount = ModbusTag.Table.COILS.getMaxReadCount();
+
+    public ModbusReadPlanner() {
+    }
+
+    public int getRegisterGap() {
+        return registerGap;
+    }
+
+    /**
+     * @param registerGap the maximum number of unused registers read to save a request
+     */
+    public void setRegisterGap(int registerGap) {
+        this.registerGap = Math.max(0, registerGap);
+    }
+
+    public int getBitGap() {
+        return bitGap;
+    }
+
+    /**
+     * @param bitGap the maximum number of unused coils (discrete inputs) read to save a request
+     */
+    public void setBitGap(int bitGap) {
+        this.bitGap = Math.max(0, bitGap);
+    }
+
+    public int getMaxRegisterCount() {
+        return maxRegisterCount;
+    }
+
+    /**
+     * some devices accept less registers per request than the protocol allows.
+     *
+     * @param maxRegisterCount the maximum quantity of registers read by a single request
+     */
+    public void setMaxRegisterCount(int maxRegisterCount) {
+        this.maxRegisterCount = Math.max(1, Math.min(maxRegisterCount, ModbusTag.Table.HOLDING_REGISTERS.getMaxReadCount()));
+    }
+
+    public int getMaxBitCount() {
+        return maxBitCount;
+    }
+
+    /**
+     * @param maxBitCount the maximum quantity of coils (discrete inputs) read by a single request
+     */
+    public void setMaxBitCount(int maxBitCount) {
+        this.maxBitCount = Math.max(1, Math.min(maxBitCount, ModbusTag.Table.COILS.getMaxReadCount()));
+    }
+
+    /**
+     * computes the requests reading all the tags.
+     *
+     * @param tags the tags to read
+     * @return the read plan
+     */
+    public ModbusReadPlan plan(Collection<ModbusTag> tags) {
+        List<ModbusTag> sorted = new ArrayList<ModbusTag>(tags);
+        Collections.sort(sorted, new Comparator<ModbusTag>() {
+            @Override
+            public int compare(ModbusTag a, ModbusTag b) {
+                if (a.getServerAddress() != b.getServerAddress())
+                    return a.getServerAddress() < b.getServerAddress() ? -1 : 1;
+                if (a.getTable() != b.getTable())
+                    return a.getTable().compareTo(b.getTable());
+                if (a.getAddress() != b.getAddress())
+                    return a.getAddress() < b.getAddress() ? -1 : 1;
+                return a.getWidth() < b.getWidth() ? 1 : (a.getWidth() == b.getWidth() ? 0 : -1);
+            }
+        });
+        List<ModbusReadPlan.Block> blocks = new ArrayList<ModbusReadPlan.Block>();
+        ModbusReadPlan.Block block = null;
+        for (ModbusTag tag : sorted) {
+            if (block == null || !fits(block, tag)) {
+                block = new ModbusReadPlan.Block(tag.getServerAddress(), tag.getTable(), tag.getAddress());
+                blocks.add(block);
+            }
+            block.add(tag);
+        }
+        return new ModbusReadPlan(blocks);
+    }
+
+    private boolean fits(ModbusReadPlan.Block block, ModbusTag tag) {
+        if (block.getServerAddress() != tag.getServerAddress() || block.getTable() != tag.getTable())
+            return false;
+        boolean bit = tag.getTable().isBit();
+        int gap = tag.getAddress() - block.getEndAddress();
+        if (gap > (bit ? bitGap : registerGap))
+            return false;
+        int end = Math.max(block.getEndAddress(), tag.getEndAddress());
+        return end - block.getStartAddress() <= (bit ? maxBitCount : maxRegisterCount);
+    }
+}
@@ -0,0 +1,212 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * estimates the response timeout per (server address, function code) from the measured round-trip times,
+ * the same way TCP derives its retransmission timeout (RFC 6298):
+ * <pre>
+ * RTTVAR = 3/4 * RTTVAR + 1/4 * |SRTT - RTT|
+ * SRTT   = 7/8 * SRTT + 1/8 * RTT
+ * RTO    = SRTT + max(min timeout, 4 * RTTVAR)
+ * </pre>
+ * Each timeout doubles the RTO of the pair up to the maximum backoff, a response resets the backoff.
+ * A pair which has never responded starts from the estimate of the whole connection and backs off up to the
+ * response timeout of the master once, so a slow device is heard at least once. Every PROBE_PERIOD-th consecutive
+ * timeout is waited with the full response timeout, it lets a device which has become slower to be measured again.
+ * <p>
+ * The result is always limited by the response timeout of the master, so a device missing from a bus costs
+ * a few round-trips of the other devices instead of the timeout of the slowest one.
+ * <p>
+ * An instance is used by a single master, it is accessed under the lock of that master.
+ *
+ * @see ModbusMaster#setRttEstimator(ModbusRttEstimator)
+ */
+public class ModbusRttEstimator {
+
+    final static public int DEFAULT_MIN_TIMEOUT = 10;
+    final static public int DEFAULT_MAX_BACKOFF = 4;
+    final static public int PROBE_PERIOD = 16;
+
+    final private Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+    /*
+     * all the samples of the connection
+     */
+    final private Entry connection = new Entry();
+    private long minTimeout = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_TIMEOUT);
+    private int maxBackoff = DEFAULT_MAX_BACKOFF;
+
+    public ModbusRttEstimator() {
+    }
+
+    /**
+     * @return the lower bound of the timeout, in milliseconds
+     */
+    public int getMinTimeout() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(minTimeout);
+    }
+
+    /**
+     * @param minTimeout the lower bound of the timeout, in milliseconds.
+     *                   Keep it above the jitter of the OS scheduler and the serial port driver.
+     */
+    public void setMinTimeout(int minTimeout) {
+        this.minTimeout = TimeUnit.MILLISECONDS.toNanos(Math.max(1, minTimeout));
+    }
+
+    public int getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * @param maxBackoff the maximum factor the timeout is multiplied by after the consecutive timeouts
+     */
+    public void setMaxBackoff(int maxBackoff) {
+        this.maxBackoff = Math.max(1, maxBackoff);
+    }
+
+    /**
+     * @param serverAddress a slave address
+     * @param function      a function code
+     * @param limit         the response timeout of the master, in milliseconds
+     * @return the timeout for the next request, in milliseconds
+     */
+    public int getTimeout(int serverAddress, int function, int limit) {
+        Entry e = entry(serverAddress, function);
+        Entry base = e.srtt < 0 ? connection : e;
+        if (base.srtt < 0 || (e.consecutiveTimeouts > 0 && e.consecutiveTimeouts % PROBE_PERIOD == 0))
+            return limit;
+        long rto = (base.srtt + Math.max(minTimeout, 4 * base.rttvar)) * e.backoff;
+        long ms = TimeUnit.NANOSECONDS.toMillis(rto) + 1;
+        if (ms >= limit) {
+            e.probed = true;
+            return limit;
+        }
+        return (int) ms;
+    }
+
+    /**
+     * records the round-trip time of a successful transaction.
+     *
+     * @param serverAddress a slave address
+     * @param function      a function code
+     * @param rtt           the time from the request sent to the response received, in nanoseconds
+     */
+    public void onResponse(int serverAddress, int function, long rtt) {
+        Entry e = entry(serverAddress, function);
+        e.update(rtt);
+        connection.update(rtt);
+    }
+
+    /**
+     * records a transaction failed by the timeout (or a connection error).
+     *
+     * @param serverAddress a slave address
+     * @param function      a function code
+     */
+    public void onTimeout(int serverAddress, int function) {
+        Entry e = entry(serverAddress, function);
+        boolean climb = e.srtt < 0 && !e.probed;
+        e.backoff = climb ? e.backoff * 2 : Math.min(e.backoff * 2, maxBackoff);
+        e.timeouts++;
+        e.consecutiveTimeouts++;
+    }
+
+    /**
+     * @param serverAddress a slave address
+     * @param function      a function code
+     * @return the smoothed round-trip time, in nanoseconds, or -1 if no response has been received yet
+     */
+    public long getSmoothedRtt(int serverAddress, int function) {
+        Entry e = entries.get(key(serverAddress, function));
+        return e == null ? -1 : e.srtt;
+    }
+
+    /**
+     * @param serverAddress a slave address
+     * @param function      a function code
+     * @return the round-trip time variation, in nanoseconds
+     */
+    public long getRttVariation(int serverAddress, int function) {
+        Entry e = entries.get(key(serverAddress, function));
+        return e == null ? 0 : e.rttvar;
+    }
+
+    /**
+     * @param serverAddress a slave address
+     * @param function      a function code
+     * @return the number of the timeouts registered
+     */
+    public long getTimeouts(int serverAddress, int function) {
+        Entry e = entries.get(key(serverAddress, function));
+        return e == null ? 0 : e.timeouts;
+    }
+
+    /**
+     * forgets all the measurements.
+     */
+    public void reset() {
+        entries.clear();
+        connection.srtt = -1;
+        connection.rttvar = 0;
+    }
+
+    static private int key(int serverAddress, int function) {
+        return ((serverAddress & 0xff) << 8) | (function & 0xff);
+    }
+
+    private Entry entry(int serverAddress, int function) {
+        int key = key(serverAddress, function);
+        Entry e = entries.get(key);
+        if (e == null) {
+            e = new Entry();
+            entries.put(key, e);
+        }
+        return e;
+    }
+
+    static private class Entry {
+        private long srtt = -1;
+        private long rttvar = 0;
+        private int backoff = 1;
+        private boolean probed = false;
+        private long timeouts = 0;
+        private int consecutiveTimeouts = 0;
+
+        void update(long rtt) {
+            if (srtt < 0) {
+                srtt = rtt;
+                rttvar = rtt / 2;
+            } else {
+                rttvar = (3 * rttvar + Math.abs(srtt - rtt)) / 4;
+                srtt = (7 * srtt + rtt) / 8;
+            }
+            backoff = 1;
+            consecutiveTimeouts = 0;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * a value of a remote device to be polled: a range of coils, discrete inputs, holding or input registers.
+ * The tags are grouped into the requests by ModbusReadPlanner, after ModbusReadPlan#execute
+ * each tag holds either its own slice of the response or the exception occurred.
+ *
+ * @see ModbusReadPlanner
+ */
+public class ModbusTag {
+
+    public enum Table {
+        COILS(true),
+        DISCRETE_INPUTS(true),
+        HOLDING_REGISTERS(false),
+        INPUT_REGISTERS(false);
+
+        final private boolean bit;
+
+        Table(boolean bit) {
+            this.bit = bit;
+        }
+
+        public boolean isBit() {
+            return bit;
+        }
+
+        /**
+         * @return the maximum quantity of the items that can be read by a single request
+         */
+        public int getMaxReadCount() {
+            return bit ? Modbus.MAX_READ_COIL_COUNT : Modbus.MAX_READ_REGISTER_COUNT;
+        }
+    }
+
+    final private int serverAddress;
+    final private Table table;
+    final private int address;
+    final private int width;
+    private int[] registers = null;
+    private boolean[] bits = null;
+    private Exception exception = null;
+
+    /**
+     * @param serverAddress a slave address
+     * @param table         the table the value is located in
+     * @param address       the address of the first register (coil)
+     * @param width         the number of the registers (coils) the value occupies, a value is never split between requests
+     * @throws ModbusNumberException if the address range is invalid
+     */
+    public ModbusTag(int serverAddress, Table table, int address, int width) throws ModbusNumberException {
+        if (!Modbus.checkServerAddress(serverAddress))
+            throw new ModbusNumberException("Error in server address", serverAddress);
+        if (width < 1 || width > table.getMaxReadCount())
+            throw new ModbusNumberException("Error in tag width", width);
+        if (!Modbus.checkStartAddress(address) || !Modbus.checkEndAddress(address + width))
+            throw new ModbusNumberException("Error in tag address", address);
+        this.serverAddress = serverAddress;
+        this.table = table;
+        this.address = address;
+        this.width = width;
+    }
+
+    public int getServerAddress() {
+        return serverAddress;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public int getAddress() {
+        return address;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the address next to the last one of the tag
+     */
+    public int getEndAddress() {
+        return address + width;
+    }
+
+    /**
+     * @return true if the last poll has been successful
+     */
+    public boolean isValid() {
+        return exception == null && (registers != null || bits != null);
+    }
+
+    /**
+     * @return the register values read by the last poll, or null if the table is a bit table or the poll failed
+     */
+    public int[] getRegisters() {
+        return registers;
+    }
+
+    /**
+     * @return the coils (discrete inputs) read by the last poll, or null if the table is a register table or the poll failed
+     */
+    public boolean[] getBits() {
+        return bits;
+    }
+
+    /**
+     * @return the exception thrown by the request the tag has been read by, or null.
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    void setRegisters(int[] registers, int offset) {
+        if (this.registers == null)
+            this.registers = new int[width];
+        System.arraycopy(registers, offset, this.registers, 0, width);
+        this.exception = null;
+    }
+
+    void setBits(boolean[] bits, int offset) {
+        if (this.bits == null)
+            this.bits = new boolean[width];
+        System.arraycopy(bits, offset, this.bits, 0, width);
+        this.exception = null;
+    }
+
+    void setException(Exception exception) {
+        this.exception = exception;
+        this.registers = null;
+        this.bits = null;
+    }
+
+    @Override
+    public String toString() {
+        return "ModbusTag{" + serverAddress + ", " + table + ", " + address + ", " + width + "}";
+    }
+}
@@ -0,0 +1,46 @@
+package com.intelligt.modbus.jlibmodbus.master;
+
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * receives the result of a request processed asynchronously.
+ * Exactly one of the methods is invoked for every submitted request.
+ */
+public interface ResponseCallback {
+    /**
+     * @param request  the submitted request
+     * @param response the valid response (not a modbus-exception)
+     */
+    void onResponse(ModbusRequest request, ModbusResponse response);
+
+    /**
+     * @param request the submitted request
+     * @param cause   ModbusProtocolException if modbus-exception is received,
+     *                ModbusNumberException if the response is invalid,
+     *                ModbusIOException if the remote slave is unavailable or the response timeout has expired.
+     */
+    void onFailure(ModbusRequest request, Exception cause);
+}
@@ -0,0 +1,155 @@
+package com.intelligt.modbus.jlibmodbus.msg;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * encodes and decodes whole frames in ByteBuffers, without the stream layer.
+ * A frame is assembled in a single buffer, so it can be written by a single system call,
+ * and a frame received completely is decoded straight from the receive buffer.
+ * <p>
+ * The methods work at the current position of the buffer and advance it.
+ */
+final public class ModbusMessageCodec {
+
+    /**
+     * 2 bytes for transaction id, 2 bytes for protocol id, 2 bytes for length
+     */
+    final static public int MBAP_HEADER_LENGTH = 6;
+
+    private ModbusMessageCodec() {
+    }
+
+    /**
+     * writes the server address and the PDU.
+     *
+     * @param msg    the message
+     * @param buffer the destination buffer
+     * @throws ModbusIOException if the buffer is too small
+     */
+    static public void encode(ModbusMessage msg, ByteBuffer buffer) throws ModbusIOException {
+        msg.encode(buffer);
+    }
+
+    /**
+     * reads the server address, the function code and the rest of the PDU.
+     *
+     * @param frame   the buffer containing the frame
+     * @param factory creates the message by the function code
+     * @return the message
+     * @throws ModbusNumberException if the frame is invalid
+     * @throws ModbusIOException     if the frame is shorter than expected
+     */
+    static public ModbusMessage decode(ByteBuffer frame, ModbusMessageFactory factory) throws ModbusNumberException, ModbusIOException {
+        if (frame.remaining() < Modbus.MIN_PDU_LENGTH)
+            throw new ModbusIOException("Unexpected end of frame");
+        int serverAddress = frame.get() & 0xff;
+        int functionCode = frame.get() & 0xff;
+        ModbusMessage msg = factory.createMessage(functionCode);
+        msg.setServerAddress(serverAddress);
+        msg.decode(frame);
+        return msg;
+    }
+
+    /**
+     * writes the MBAP header and the message.
+     *
+     * @param msg    the message
+     * @param buffer the destination buffer
+     * @throws ModbusIOException if the buffer is too small, the position of the buffer is not changed then
+     */
+    static public void encodeTcp(ModbusMessage msg, ByteBuffer buffer) throws ModbusIOException {
+        int start = buffer.position();
+        try {
+            buffer.putShort((short) msg.getTransactionId());
+            buffer.putShort((short) msg.getProtocolId());
+            buffer.putShort((short) msg.size());
+            msg.encode(buffer);
+            /*
+             * the length field follows the bytes actually written, a message whose #size() is wrong
+             * mustn't desynchronize the stream of the frames.
+             */
+            buffer.putShort(start + 4, (short) (buffer.position() - start - MBAP_HEADER_LENGTH));
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw new ModbusIOException("Buffer overflow", e);
+        } catch (ModbusIOException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * reads a whole MBAP frame. The buffer must contain the complete frame,
+     * see {@link #getTcpFrameLength(ByteBuffer)}; its position is moved to the end of the frame even if the frame is invalid.
+     *
+     * @param frame   the buffer containing the frame
+     * @param factory creates the message by the function code
+     * @return the message with the transaction id and the protocol id set
+     * @throws ModbusNumberException if the frame is invalid
+     * @throws ModbusIOException     if the frame is incomplete
+     */
+    static public ModbusMessage decodeTcp(ByteBuffer frame, ModbusMessageFactory factory) throws ModbusNumberException, ModbusIOException {
+        int length = getTcpFrameLength(frame);
+        if (length < 0 || frame.remaining() < length)
+            throw new ModbusIOException("Incomplete frame");
+        int end = frame.position() + length;
+        int limit = frame.limit();
+        int transactionId = frame.getShort() & 0xffff;
+        int protocolId = frame.getShort() & 0xffff;
+        frame.getShort();
+        frame.limit(end);
+        try {
+            ModbusMessage msg = decode(frame, factory);
+            msg.setTransactionId(transactionId);
+            msg.setProtocolId(protocolId);
+            return msg;
+        } finally {
+            frame.limit(limit);
+            frame.position(end);
+        }
+    }
+
+    /**
+     * looks at the MBAP header at the position of the buffer, the buffer is not changed.
+     *
+     * @param buffer the buffer
+     * @return the length of the whole frame (the header included), or -1 if the header isn't received completely.
+     * @throws ModbusNumberException if the length field is out of the allowed range, the stream cannot be synchronized then.
+     */
+    static public int getTcpFrameLength(ByteBuffer buffer) throws ModbusNumberException {
+        if (buffer.remaining() < MBAP_HEADER_LENGTH)
+            return -1;
+        int length = buffer.getShort(buffer.position() + 4) & 0xffff;
+        if (length < Modbus.MIN_PDU_LENGTH || length > Modbus.MAX_PDU_LENGTH)
+            throw new ModbusNumberException("Illegal length of the frame", length);
+        return MBAP_HEADER_LENGTH + length;
+    }
+}
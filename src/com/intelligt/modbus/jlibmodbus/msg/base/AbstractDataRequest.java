@@ -2,10 +2,13 @@ package com.intelligt.modbus.jlibmodbus.msg.base;
 
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -52,6 +55,32 @@ abstract public class AbstractDataRequest extends ModbusRequest {
         writeData(fifo);
     }
 
+    @Override
+    final protected void decodePDU(ByteBuffer buffer) throws ModbusNumberException, IOException {
+        setStartAddress(buffer.getShort() & 0xffff);
+        decodeData(buffer);
+    }
+
+    @Override
+    protected void encodeRequest(ByteBuffer buffer) throws IOException {
+        buffer.putShort((short) getStartAddress());
+        encodeData(buffer);
+    }
+
+    /**
+     * the ByteBuffer counterpart of #writeData.
+     */
+    protected void encodeData(ByteBuffer buffer) throws IOException {
+        writeData(new ByteBufferOutputStream(buffer));
+    }
+
+    /**
+     * the ByteBuffer counterpart of #readData.
+     */
+    protected void decodeData(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        readData(new ByteBufferInputStream(buffer));
+    }
+
     public int getStartAddress() {
         return startAddress;
     }
@@ -5,6 +5,7 @@ import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -44,6 +45,16 @@ abstract public class AbstractMultipleRequest extends AbstractDataRequest {
         fifo.writeShortBE(quantity);
     }
 
+    @Override
+    protected void decodeData(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        setQuantity(buffer.getShort() & 0xffff);
+    }
+
+    @Override
+    protected void encodeData(ByteBuffer buffer) throws IOException {
+        buffer.putShort((short) quantity);
+    }
+
     @Override
     protected int dataSize() {
         return 2;
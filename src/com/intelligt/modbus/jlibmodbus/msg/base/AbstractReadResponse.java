@@ -2,10 +2,13 @@ package com.intelligt.modbus.jlibmodbus.msg.base;
 
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -58,6 +61,32 @@ abstract public class AbstractReadResponse extends ModbusResponse {
         writeData(fifo);
     }
 
+    @Override
+    final protected void decodeResponse(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        setByteCount(buffer.get() & 0xff);
+        decodeData(buffer);
+    }
+
+    @Override
+    final protected void encodeResponse(ByteBuffer buffer) throws IOException {
+        buffer.put((byte) getByteCount());
+        encodeData(buffer);
+    }
+
+    /**
+     * the ByteBuffer counterpart of #readData.
+     */
+    protected void decodeData(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        readData(new ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * the ByteBuffer counterpart of #writeData.
+     */
+    protected void encodeData(ByteBuffer buffer) throws IOException {
+        writeData(new ByteBufferOutputStream(buffer));
+    }
+
     abstract protected void readData(ModbusInputStream fifo) throws IOException, ModbusNumberException;
 
     abstract protected void writeData(ModbusOutputStream fifo) throws IOException;
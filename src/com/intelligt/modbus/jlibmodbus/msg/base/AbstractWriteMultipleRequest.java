@@ -6,6 +6,7 @@ import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -54,6 +55,21 @@ abstract public class AbstractWriteMultipleRequest extends AbstractMultipleReque
             Modbus.log().warning(getByteCount() + " bytes expected, but " + size + " received.");
     }
 
+    @Override
+    protected void encodeData(ByteBuffer buffer) throws IOException {
+        super.encodeData(buffer);
+        buffer.put((byte) getByteCount());
+        buffer.put(getBytes(), 0, getByteCount());
+    }
+
+    @Override
+    protected void decodeData(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        super.decodeData(buffer);
+        setByteCount(buffer.get() & 0xff);
+        values = new byte[byteCount];
+        buffer.get(values);
+    }
+
     public int getByteCount() {
         return byteCount;
     }
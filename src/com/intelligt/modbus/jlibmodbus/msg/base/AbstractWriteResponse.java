@@ -2,10 +2,13 @@ package com.intelligt.modbus.jlibmodbus.msg.base;
 
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -52,6 +55,36 @@ public abstract class AbstractWriteResponse extends ModbusResponse {
         writeValue(fifo);
     }
 
+    @Override
+    final protected void decodeResponse(ByteBuffer buffer) throws IOException {
+        try {
+            setStartAddress(buffer.getShort() & 0xffff);
+        } catch (ModbusNumberException e) {
+            e.printStackTrace();
+        }
+        decodeValue(buffer);
+    }
+
+    @Override
+    final protected void encodeResponse(ByteBuffer buffer) throws IOException {
+        buffer.putShort((short) getStartAddress());
+        encodeValue(buffer);
+    }
+
+    /**
+     * the ByteBuffer counterpart of #readValue.
+     */
+    protected void decodeValue(ByteBuffer buffer) throws IOException {
+        readValue(new ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * the ByteBuffer counterpart of #writeValue.
+     */
+    protected void encodeValue(ByteBuffer buffer) throws IOException {
+        writeValue(new ByteBufferOutputStream(buffer));
+    }
+
     abstract protected void readValue(ModbusInputStream fifo) throws IOException;
 
     abstract protected void writeValue(ModbusOutputStream fifo) throws IOException;
@@ -66,8 +99,11 @@ public abstract class AbstractWriteResponse extends ModbusResponse {
         this.startAddress = startAddress;
     }
 
+    /**
+     * @return 2 bytes of the address and 2 bytes of the value, a response carrying more fields must override it.
+     */
     @Override
-    final protected int responseSize() {
+    protected int responseSize() {
         return 4;
     }
 }
@@ -59,9 +59,9 @@ public class ModbusFileRecord {
     }
 
     public void writeRegisters(int[] registers) throws IllegalDataValueException {
-        if (registers.length > getRegisters().length)
+        if (registers.length > getRecordLength())
             throw new IllegalDataValueException();
-        this.length = registers.length;
+        setRegisters(registers);
     }
 
     public int getFileNumber() {
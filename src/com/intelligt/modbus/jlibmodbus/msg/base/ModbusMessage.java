@@ -3,10 +3,15 @@ package com.intelligt.modbus.jlibmodbus.msg.base;
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -57,6 +62,58 @@ abstract public class ModbusMessage {
         }
     }
 
+    /**
+     * writes the server address and the PDU into the buffer at its current position.
+     *
+     * @param buffer the destination buffer
+     * @throws ModbusIOException if the buffer is too small
+     * @see com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec
+     */
+    public void encode(ByteBuffer buffer) throws ModbusIOException {
+        try {
+            buffer.put((byte) getServerAddress());
+            encodePDU(buffer);
+        } catch (BufferOverflowException e) {
+            throw new ModbusIOException("Buffer overflow", e);
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+    }
+
+    /**
+     * reads the PDU data, it follows the function code, from the buffer at its current position.
+     *
+     * @param buffer the buffer containing the frame
+     * @throws ModbusNumberException if the frame is invalid
+     * @throws ModbusIOException     if the frame is shorter than expected
+     * @see com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec
+     */
+    public void decode(ByteBuffer buffer) throws ModbusNumberException, ModbusIOException {
+        try {
+            decodePDU(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new ModbusIOException("Unexpected end of frame", e);
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+    }
+
+    /**
+     * the ByteBuffer counterpart of #writePDU. A message which doesn't implement it is written through
+     * a stream over the buffer.
+     */
+    protected void encodePDU(ByteBuffer buffer) throws IOException {
+        writePDU(new ByteBufferOutputStream(buffer));
+    }
+
+    /**
+     * the ByteBuffer counterpart of #readPDU. A message which doesn't implement it is read through
+     * a stream over the buffer.
+     */
+    protected void decodePDU(ByteBuffer buffer) throws ModbusNumberException, IOException {
+        readPDU(new ByteBufferInputStream(buffer));
+    }
+
     abstract public void readPDU(ModbusInputStream fifo) throws ModbusNumberException, IOException;
 
     abstract protected void writePDU(ModbusOutputStream fifo) throws IOException;
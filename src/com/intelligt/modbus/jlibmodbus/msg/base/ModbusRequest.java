@@ -4,11 +4,13 @@ import com.intelligt.modbus.jlibmodbus.data.DataHolder;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
 import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageFactory;
 import com.intelligt.modbus.jlibmodbus.msg.ModbusResponseFactory;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -78,6 +80,19 @@ abstract public class ModbusRequest extends ModbusMessage implements ModbusMessa
         writeRequest(fifo);
     }
 
+    @Override
+    final protected void encodePDU(ByteBuffer buffer) throws IOException {
+        buffer.put((byte) getFunction());
+        encodeRequest(buffer);
+    }
+
+    /**
+     * the ByteBuffer counterpart of #writeRequest.
+     */
+    protected void encodeRequest(ByteBuffer buffer) throws IOException {
+        writeRequest(new ByteBufferOutputStream(buffer));
+    }
+
     @Override
     final protected int pduSize() {
         return 1 + requestSize();
@@ -1,12 +1,15 @@
 package com.intelligt.modbus.jlibmodbus.msg.base;
 
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusExceptionCode;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -66,6 +69,40 @@ public abstract class ModbusResponse extends ModbusMessage {
         }
     }
 
+    @Override
+    final protected void encodePDU(ByteBuffer buffer) throws IOException {
+        if (isException()) {
+            buffer.put((byte) ModbusFunctionCode.getExceptionValue(getFunction()));
+            buffer.put((byte) getModbusExceptionCode().getValue());
+        } else {
+            buffer.put((byte) getFunction());
+            encodeResponse(buffer);
+        }
+    }
+
+    @Override
+    final protected void decodePDU(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        if (isException()) {
+            setModbusExceptionCode(buffer.get() & 0xff);
+        } else {
+            decodeResponse(buffer);
+        }
+    }
+
+    /**
+     * the ByteBuffer counterpart of #writeResponse.
+     */
+    protected void encodeResponse(ByteBuffer buffer) throws IOException {
+        writeResponse(new ByteBufferOutputStream(buffer));
+    }
+
+    /**
+     * the ByteBuffer counterpart of #readResponse.
+     */
+    protected void decodeResponse(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        readResponse(new ByteBufferInputStream(buffer));
+    }
+
     abstract protected void readResponse(ModbusInputStream fifo) throws IOException, ModbusNumberException;
 
     abstract protected void writeResponse(ModbusOutputStream fifo) throws IOException;
@@ -80,7 +117,10 @@ public abstract class ModbusResponse extends ModbusMessage {
 
     @Override
     final protected int pduSize() {
-        return 1 + responseSize();
+        /*
+         * an exception response consists of the function code and the exception code
+         */
+        return 1 + (isException() ? 1 : responseSize());
     }
 
     abstract protected int responseSize();
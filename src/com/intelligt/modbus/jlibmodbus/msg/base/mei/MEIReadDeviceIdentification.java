@@ -43,7 +43,6 @@ public class MEIReadDeviceIdentification implements ModbusEncapsulatedInterface
     private int nextObjectId = 0;
     private int numberOfObjects = 0;
     private DataObject[] objects = new DataObject[0];
-    private int responseSize = 0;
 
     private int firstObjectIndex = 0;
 
@@ -108,16 +107,29 @@ public class MEIReadDeviceIdentification implements ModbusEncapsulatedInterface
                 Modbus.log().warning(length + " bytes expected, but " + read + " received.");
             objects[i] = new DataObject(id, value);
         }
-        setResponseSize(size);
     }
 
+    /**
+     * @return the size of the fields written by #writeResponse.
+     */
     @Override
     public int getResponseSize() {
-        return responseSize;
+        /*
+         * read device id code, conformity level, more follows, next object id and number of objects
+         */
+        int size = 5;
+        for (int i = getFirstObjectIndex(); i < getFirstObjectIndex() + getNumberOfObjects(); i++) {
+            size += 2 + objects[i].getValue().length;
+        }
+        return size;
     }
 
+    /**
+     * @deprecated the response size is calculated by the objects written, see #getResponseSize.
+     */
+    @Deprecated
     public void setResponseSize(int responseSize) {
-        this.responseSize = responseSize;
+        //do nothing
     }
 
     @Override
@@ -162,7 +174,6 @@ public class MEIReadDeviceIdentification implements ModbusEncapsulatedInterface
             }
             number_of_objects++;
         }
-        setResponseSize(size);
         if ((objects.length - getFirstObjectIndex()) > number_of_objects) {
             setNextObjectId(number_of_objects + 1);
         } else {
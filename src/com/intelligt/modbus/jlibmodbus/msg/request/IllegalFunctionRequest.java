@@ -7,6 +7,7 @@ import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
 import com.intelligt.modbus.jlibmodbus.msg.response.IllegalFunctionResponse;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
+import com.intelligt.modbus.jlibmodbus.utils.ModbusExceptionCode;
 
 import java.io.IOException;
 
@@ -60,6 +61,7 @@ public class IllegalFunctionRequest extends ModbusRequest {
     public ModbusResponse process(DataHolder dataHolder) throws ModbusNumberException {
         IllegalFunctionResponse response = (IllegalFunctionResponse) getResponse();
         response.setFunctionCode(getFunction());
+        response.setModbusExceptionCode(ModbusExceptionCode.ILLEGAL_FUNCTION.getValue());
         return response;
     }
 
@@ -49,7 +49,7 @@ public class ReadCoilsRequest extends AbstractMultipleRequest {
                 /*
                  * registers quantity equals to rounded value of coils quantity/16
                  */
-                Modbus.checkEndAddress(startAddress + (int) Math.ceil((double) quantity / 16));
+                Modbus.checkEndAddress(startAddress + (quantity + 15) / 16);
     }
 
     @Override
@@ -61,8 +61,8 @@ public class ReadCoilsRequest extends AbstractMultipleRequest {
     public ModbusResponse process(DataHolder dataHolder) throws ModbusNumberException {
         ReadCoilsResponse response = (ReadCoilsResponse) getResponse();
         try {
-            boolean[] range = dataHolder.readCoilRange(getStartAddress(), getQuantity());
-            response.setCoils(range);
+            byte[] buffer = response.allocateBuffer(getQuantity());
+            dataHolder.readCoilRangeBytes(getStartAddress(), getQuantity(), buffer, 0);
         } catch (ModbusProtocolException e) {
             response.setException();
             response.setModbusExceptionCode(e.getException().getValue());
@@ -45,8 +45,8 @@ final public class ReadDiscreteInputsRequest extends ReadCoilsRequest {
     public ModbusResponse process(DataHolder dataHolder) throws ModbusNumberException {
         ReadDiscreteInputsResponse response = (ReadDiscreteInputsResponse) getResponse();
         try {
-            boolean[] range = dataHolder.readDiscreteInputRange(getStartAddress(), getQuantity());
-            response.setCoils(range);
+            byte[] buffer = response.allocateBuffer(getQuantity());
+            dataHolder.readDiscreteInputRangeBytes(getStartAddress(), getQuantity(), buffer, 0);
         } catch (ModbusProtocolException e) {
             response.setException();
             response.setModbusExceptionCode(e.getException().getValue());
@@ -102,7 +102,7 @@ final public class ReadFileRecordRequest extends ModbusRequest {
             /*
             TODO: it's required to reduce the number of data-copying-operations here
              */
-            response.setFileRecords((ModbusFileRecord[]) records.toArray());
+            response.setFileRecords(records.toArray(new ModbusFileRecord[records.size()]));
         } catch (ModbusProtocolException e) {
             response.setException();
             response.setModbusExceptionCode(e.getException().getValue());
@@ -47,8 +47,8 @@ public class ReadHoldingRegistersRequest extends AbstractMultipleRequest {
         ReadHoldingRegistersResponse response = (ReadHoldingRegistersResponse) getResponse();
         response.setServerAddress(getServerAddress());
         try {
-            int[] range = dataHolder.readHoldingRegisterRange(getStartAddress(), getQuantity());
-            response.setBuffer(range);
+            byte[] buffer = response.allocateBuffer(getQuantity() * 2);
+            dataHolder.readHoldingRegisterRangeBytes(getStartAddress(), getQuantity(), buffer, 0);
         } catch (ModbusProtocolException e) {
             response.setException();
             response.setModbusExceptionCode(e.getException().getValue());
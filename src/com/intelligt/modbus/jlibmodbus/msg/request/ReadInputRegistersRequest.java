@@ -40,8 +40,8 @@ final public class ReadInputRegistersRequest extends ReadHoldingRegistersRequest
         ReadInputRegistersResponse response = (ReadInputRegistersResponse) getResponse();
         response.setServerAddress(getServerAddress());
         try {
-            int[] range = dataHolder.readInputRegisterRange(getStartAddress(), getQuantity());
-            response.setBuffer(range);
+            byte[] buffer = response.allocateBuffer(getQuantity() * 2);
+            dataHolder.readInputRegisterRangeBytes(getStartAddress(), getQuantity(), buffer, 0);
         } catch (ModbusProtocolException e) {
             response.setException();
             response.setModbusExceptionCode(e.getException().getValue());
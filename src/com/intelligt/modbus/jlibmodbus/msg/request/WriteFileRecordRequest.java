@@ -87,7 +87,7 @@ final public class WriteFileRecordRequest extends ModbusRequest {
 
     @Override
     public int requestSize() {
-        return 1 + READ_SUB_REQ_LENGTH * getFileRecord().getRecordLength() * 2;
+        return 1 + READ_SUB_REQ_LENGTH + getFileRecord().getRecordLength() * 2;
     }
 
     @Override
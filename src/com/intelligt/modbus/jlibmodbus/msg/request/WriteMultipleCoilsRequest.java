@@ -12,6 +12,7 @@ import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -59,7 +60,7 @@ final public class WriteMultipleCoilsRequest extends AbstractWriteMultipleReques
         response.setStartAddress(getStartAddress());
         response.setQuantity(getQuantity());
         try {
-            dataHolder.writeCoilRange(getStartAddress(), getCoils());
+            dataHolder.writeCoilRangeBytes(getStartAddress(), getBytes(), 0, getQuantity());
         } catch (ModbusProtocolException e) {
             response.setException();
             response.setModbusExceptionCode(e.getException().getValue());
@@ -79,12 +80,21 @@ final public class WriteMultipleCoilsRequest extends AbstractWriteMultipleReques
     @Override
     public void readData(ModbusInputStream fifo) throws IOException, ModbusNumberException {
         super.readData(fifo);
-        if ((int) Math.ceil((double) getQuantity() / 8) != getByteCount()) {
+        checkData();
+    }
+
+    @Override
+    protected void decodeData(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        super.decodeData(buffer);
+        checkData();
+    }
+
+    private void checkData() throws ModbusNumberException {
+        if (DataUtils.bytesForBits(getQuantity()) != getByteCount()) {
             throw new ModbusNumberException("Byte count not matches quantity/8", getByteCount());
         }
         if (!checkAddressRange(getStartAddress(), getQuantity()))
             throw new ModbusNumberException("Coil count greater than max coil count", getQuantity());
-        setCoils(DataUtils.toBitsArray(getBytes(), getQuantity()));
     }
 
     public boolean[] getCoils() {
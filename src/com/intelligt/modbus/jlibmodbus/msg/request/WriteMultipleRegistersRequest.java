@@ -12,6 +12,7 @@ import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /*
@@ -89,6 +90,16 @@ final public class WriteMultipleRegistersRequest extends AbstractWriteMultipleRe
     @Override
     public void readData(ModbusInputStream fifo) throws IOException, ModbusNumberException {
         super.readData(fifo);
+        checkData();
+    }
+
+    @Override
+    protected void decodeData(ByteBuffer buffer) throws IOException, ModbusNumberException {
+        super.decodeData(buffer);
+        checkData();
+    }
+
+    private void checkData() throws ModbusNumberException {
         if (getQuantity() * 2 != getByteCount()) {
             throw new ModbusNumberException("Byte count not matches quantity*2", getByteCount());
         }
@@ -12,6 +12,7 @@ import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -79,6 +80,20 @@ public class WriteSingleRegisterRequest extends AbstractDataRequest {
         }
     }
 
+    @Override
+    final protected void decodeData(ByteBuffer buffer) {
+        try {
+            setValue(buffer.getShort() & 0xffff);
+        } catch (ModbusNumberException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    final protected void encodeData(ByteBuffer buffer) {
+        buffer.putShort((short) getValue());
+    }
+
     @Override
     public int getFunction() {
         return ModbusFunctionCode.WRITE_SINGLE_REGISTER.toInt();
@@ -74,7 +74,7 @@ final public class GetCommEventLogResponse extends ModbusResponse {
 
     @Override
     protected int responseSize() {
-        return EVENTS_OFFSET + events.size();
+        return 1 + EVENTS_OFFSET + events.size();
     }
 
     @Override
@@ -31,6 +31,13 @@ import java.io.IOException;
 public class IllegalFunctionResponse extends ModbusResponse {
     private int functionCode = 0;
 
+    /**
+     * the function code is set when the request is processed, see IllegalFunctionRequest.
+     */
+    public IllegalFunctionResponse() {
+        this(0);
+    }
+
     public IllegalFunctionResponse(int functionCode) {
         super();
         this.functionCode = functionCode;
@@ -49,6 +49,13 @@ final public class MaskWriteRegisterResponse extends AbstractWriteResponse {
         fifo.writeShortBE(getMaskOr());
     }
 
+    @Override
+    protected int responseSize() {
+        /*
+         * the address, the AND mask and the OR mask
+         */
+        return 6;
+    }
 
     @Override
     public int getFunction() {
@@ -10,6 +10,7 @@ import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /*
@@ -46,7 +47,7 @@ public class ReadCoilsResponse extends AbstractReadResponse {
     }
 
     static public int calcByteCount(int coilCount) {
-        return (int) Math.ceil((double) coilCount / 8);
+        return DataUtils.bytesForBits(coilCount);
     }
 
     /**
@@ -72,6 +73,20 @@ public class ReadCoilsResponse extends AbstractReadResponse {
         setByteCount(calcByteCount(coils));
     }
 
+    /**
+     * sets the byte count and returns the buffer to put the packed coils into,
+     * it lets a slave fill the response straight from the data holder.
+     *
+     * @param coilCount the number of the coils
+     * @return the buffer
+     * @throws ModbusNumberException if the byte count is out of range
+     */
+    final public byte[] allocateBuffer(int coilCount) throws ModbusNumberException {
+        setByteCount(calcByteCount(coilCount));
+        this.buffer = new byte[getByteCount()];
+        return buffer;
+    }
+
     @Override
     final protected void readData(ModbusInputStream fifo) throws IOException {
         buffer = new byte[getByteCount()];
@@ -85,6 +100,17 @@ public class ReadCoilsResponse extends AbstractReadResponse {
         fifo.write(buffer);
     }
 
+    @Override
+    final protected void decodeData(ByteBuffer src) {
+        buffer = new byte[getByteCount()];
+        src.get(buffer);
+    }
+
+    @Override
+    final protected void encodeData(ByteBuffer dst) {
+        dst.put(buffer);
+    }
+
     @Override
     public int getFunction() {
         return ModbusFunctionCode.READ_COILS.toInt();
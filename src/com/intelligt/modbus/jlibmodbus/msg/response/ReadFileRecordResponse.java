@@ -82,7 +82,7 @@ final public class ReadFileRecordResponse extends AbstractReadResponse {
     }
 
     public ModbusFileRecord[] getFileRecords() {
-        return (ModbusFileRecord[]) records.toArray();
+        return records.toArray(new ModbusFileRecord[records.size()]);
     }
 
     public void setFileRecords(ModbusFileRecord[] fileRecords) throws ModbusNumberException {
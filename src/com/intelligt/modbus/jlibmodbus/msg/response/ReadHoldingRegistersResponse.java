@@ -10,6 +10,7 @@ import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /*
@@ -47,17 +48,57 @@ public class ReadHoldingRegistersResponse extends AbstractReadResponse {
      * @return registers bytes
      */
     synchronized final public byte[] getBytes() {
-        return Arrays.copyOf(buffer, buffer.length);
+        return Arrays.copyOf(buffer, getByteCount());
+    }
+
+    /**
+     * puts the raw bytes of the registers (big-endian) into the buffer.
+     *
+     * @param dst the destination buffer
+     * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer
+     */
+    synchronized final public void getBytes(ByteBuffer dst) {
+        dst.put(buffer, 0, getByteCount());
     }
 
     @Deprecated
     synchronized final public int[] getRegisters() {
-        return DataUtils.BeToIntArray(buffer);
+        int[] registers = new int[getByteCount() / 2];
+        getRegisters(registers, 0);
+        return registers;
+    }
+
+    /**
+     * copies the register values into the array, no objects are allocated.
+     *
+     * @param dst    the destination array
+     * @param offset the position of the first register in the array
+     * @return the number of registers copied
+     */
+    synchronized final public int getRegisters(int[] dst, int offset) {
+        int count = getByteCount() / 2;
+        for (int i = 0, j = 0; i < count; i++, j += 2)
+            dst[offset + i] = ((buffer[j] & 0xff) << 8) | (buffer[j + 1] & 0xff);
+        return count;
+    }
+
+    /**
+     * copies the register values into the array, no objects are allocated.
+     *
+     * @param dst    the destination array
+     * @param offset the position of the first register in the array
+     * @return the number of registers copied
+     */
+    synchronized final public int getRegisters(short[] dst, int offset) {
+        int count = getByteCount() / 2;
+        for (int i = 0, j = 0; i < count; i++, j += 2)
+            dst[offset + i] = (short) (((buffer[j] & 0xff) << 8) | (buffer[j + 1] & 0xff));
+        return count;
     }
 
     synchronized final public ModbusHoldingRegisters getHoldingRegisters() {
         ModbusHoldingRegisters mhr = new ModbusHoldingRegisters();
-        mhr.setBytesBe(buffer);
+        mhr.setBytesBe(getBytes());
         return mhr;
     }
 
@@ -66,9 +107,27 @@ public class ReadHoldingRegistersResponse extends AbstractReadResponse {
         setByteCount(this.buffer.length);
     }
 
+    /**
+     * sets the byte count and returns the buffer to put the raw bytes of the registers (big-endian) into,
+     * it lets a slave fill the response straight from the data holder.
+     *
+     * @param byteCount the number of the bytes
+     * @return the buffer, its length may be greater than the byte count
+     * @throws ModbusNumberException if the byte count is out of range
+     */
+    synchronized final public byte[] allocateBuffer(int byteCount) throws ModbusNumberException {
+        setByteCount(byteCount);
+        if (buffer.length < byteCount)
+            buffer = new byte[byteCount];
+        return buffer;
+    }
+
     @Override
     synchronized final protected void readData(ModbusInputStream fifo) throws IOException {
-        if (buffer.length != getByteCount())
+        /*
+         * the buffer only grows, a response reused by a master doesn't allocate it every time.
+         */
+        if (buffer.length < getByteCount())
             buffer = new byte[getByteCount()];
         int size;
         if ((size = fifo.read(buffer, 0, getByteCount())) < getByteCount())
@@ -80,6 +139,18 @@ public class ReadHoldingRegistersResponse extends AbstractReadResponse {
         fifo.write(buffer, 0, getByteCount());
     }
 
+    @Override
+    synchronized final protected void decodeData(ByteBuffer src) {
+        if (buffer.length < getByteCount())
+            buffer = new byte[getByteCount()];
+        src.get(buffer, 0, getByteCount());
+    }
+
+    @Override
+    synchronized final protected void encodeData(ByteBuffer dst) {
+        dst.put(buffer, 0, getByteCount());
+    }
+
     @Override
     public int getFunction() {
         return ModbusFunctionCode.READ_HOLDING_REGISTERS.toInt();
@@ -77,7 +77,7 @@ final public class WriteFileRecordResponse extends ModbusResponse {
 
     @Override
     protected int responseSize() {
-        return 1 + READ_SUB_REQ_LENGTH * record.getRecordLength() * 2;
+        return 1 + READ_SUB_REQ_LENGTH + record.getRecordLength() * 2;
     }
 
     @Override
@@ -8,6 +8,7 @@ import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -52,6 +53,20 @@ public class WriteSingleRegisterResponse extends AbstractWriteResponse {
         fifo.writeShortBE(getValue());
     }
 
+    @Override
+    final protected void decodeValue(ByteBuffer buffer) {
+        try {
+            setValue(buffer.getShort() & 0xffff);
+        } catch (ModbusNumberException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    final protected void encodeValue(ByteBuffer buffer) {
+        buffer.putShort((short) getValue());
+    }
+
     protected boolean checkValue() {
         return Modbus.checkRegisterValue(getValue());
     }
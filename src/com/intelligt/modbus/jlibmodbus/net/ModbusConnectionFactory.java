@@ -1,9 +1,13 @@
 package com.intelligt.modbus.jlibmodbus.net;
 
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransportFactory;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
 import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsChannel;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsParameters;
 
+import java.io.IOException;
 import java.net.Socket;
 
 /*
@@ -44,4 +48,24 @@ public class ModbusConnectionFactory {
     static public ModbusConnection getTcpSlave(Socket socket) throws ModbusIOException {
         return new ModbusSlaveConnectionTCP(socket);
     }
+
+    static public ModbusConnection getTlsMaster(TlsParameters tlsParameters) {
+        return new ModbusMasterConnectionTLS(tlsParameters);
+    }
+
+    /**
+     * @param socket        an accepted socket, it must have a channel (be accepted by a ServerSocketChannel)
+     * @param tlsParameters the server parameters
+     * @return the connection, the handshake is performed on the first read
+     */
+    static public ModbusConnection getTlsSlave(Socket socket, TlsParameters tlsParameters) throws ModbusIOException {
+        if (socket.getChannel() == null)
+            throw new ModbusIOException("The socket has no channel");
+        try {
+            TlsChannel channel = new TlsChannel(socket.getChannel(), tlsParameters.createServerEngine());
+            return new ModbusSlaveConnectionTCP(socket, ModbusTransportFactory.createTLS(channel, tlsParameters.getConnectionTimeout()));
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+    }
 }
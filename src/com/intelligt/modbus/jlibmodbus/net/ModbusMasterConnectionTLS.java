@@ -0,0 +1,119 @@
+package com.intelligt.modbus.jlibmodbus.net;
+
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingOutputStream;
+import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransport;
+import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransportFactory;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsChannel;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsParameters;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * Modbus/TCP Security client connection. The connection is persistent: the handshake is performed once by #open(),
+ * the session is resumed by the next connections to the same server while it's cached by the SSLContext.
+ */
+class ModbusMasterConnectionTLS extends ModbusConnection {
+
+    final private TlsParameters parameters;
+    private ModbusTransport transport = null;
+    private TlsChannel channel = null;
+
+    ModbusMasterConnectionTLS(TlsParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    @Override
+    public LoggingOutputStream getOutputStream() {
+        return transport.getOutputStream();
+    }
+
+    @Override
+    public LoggingInputStream getInputStream() {
+        return transport.getInputStream();
+    }
+
+    @Override
+    public ModbusTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * @return the TLS session of the connection or null if the connection is closed.
+     */
+    public TlsChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    protected void openImpl() throws ModbusIOException {
+        if (!isOpened()) {
+            if (parameters != null && parameters.getSSLContext() != null) {
+                InetSocketAddress isa = new InetSocketAddress(parameters.getHost(), parameters.getPort());
+                SocketChannel socketChannel = null;
+                try {
+                    socketChannel = SocketChannel.open();
+                    socketChannel.socket().connect(isa, parameters.getConnectionTimeout());
+                    socketChannel.socket().setKeepAlive(parameters.isKeepAlive());
+                    socketChannel.socket().setTcpNoDelay(true);
+
+                    channel = new TlsChannel(socketChannel, parameters.createClientEngine());
+                    channel.handshake(parameters.getHandshakeTimeout());
+                    transport = ModbusTransportFactory.createTLS(channel, parameters.getConnectionTimeout());
+                    setReadTimeout(getReadTimeout());
+                } catch (Exception e) {
+                    try {
+                        if (socketChannel != null)
+                            socketChannel.close();
+                    } catch (IOException e1) {
+                        // ignored
+                    }
+                    channel = null;
+                    throw new ModbusIOException(e);
+                }
+            } else {
+                throw new ModbusIOException("TLS parameters or SSL context is null");
+            }
+        }
+    }
+
+    @Override
+    protected void closeImpl() throws ModbusIOException {
+        try {
+            if (transport != null) {
+                transport.close();
+            }
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        } finally {
+            transport = null;
+            channel = null;
+        }
+    }
+}
@@ -39,9 +39,17 @@ public class ModbusSlaveConnectionTCP extends ModbusConnection {
     private final TcpClientInfo clientInfo;
 
     ModbusSlaveConnectionTCP(Socket socket) throws ModbusIOException {
+        this(socket, createTransport(socket));
+    }
+
+    /**
+     * @param socket    the accepted socket
+     * @param transport the transport over the socket, e.g. Modbus/TCP Security one
+     */
+    ModbusSlaveConnectionTCP(Socket socket, ModbusTransport transport) throws ModbusIOException {
         try {
             this.socket = socket;
-            transport = ModbusTransportFactory.createTCP(socket);
+            this.transport = transport;
             clientInfo = new TcpClientInfo(new TcpParameters(socket.getInetAddress(), socket.getPort(), socket.getKeepAlive()), false);
 
             open();
@@ -50,6 +58,14 @@ public class ModbusSlaveConnectionTCP extends ModbusConnection {
         }
     }
 
+    static private ModbusTransport createTransport(Socket socket) throws ModbusIOException {
+        try {
+            return ModbusTransportFactory.createTCP(socket);
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+    }
+
     @Override
     public LoggingOutputStream getOutputStream() {
         return transport.getOutputStream();
@@ -73,7 +89,12 @@ public class ModbusSlaveConnectionTCP extends ModbusConnection {
     @Override
     protected void closeImpl() throws ModbusIOException {
         try {
-            if (socket != null)
+            /*
+             * the transport closes the socket, the TLS one sends close_notify before
+             */
+            if (transport != null)
+                transport.close();
+            else if (socket != null)
                 socket.close();
         } catch (IOException e) {
             throw new ModbusIOException(e);
@@ -3,7 +3,7 @@ package com.intelligt.modbus.jlibmodbus.net.stream;
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusChecksumException;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
-import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
+import com.intelligt.modbus.jlibmodbus.utils.AsciiCodec;
 
 import java.io.IOException;
 
@@ -31,6 +31,7 @@ import java.io.IOException;
 public class InputStreamASCII extends InputStreamSerial {
 
     private int lrc = 0;
+    final private byte[] ascii = new byte[2 * Modbus.MAX_RTU_ADU_LENGTH];
 
     public InputStreamASCII(SerialPort serial) {
         super(serial);
@@ -74,17 +75,29 @@ public class InputStreamASCII extends InputStreamSerial {
 
     @Override
     public int read() throws IOException {
-        int b;
-        char c = (char) readRaw();
-        b = DataUtils.fromAscii(c, (char) readRaw());
+        int h = readRaw();
+        int b = AsciiCodec.decode(h, readRaw());
+        /*
+         * an invalid character pair is read as 0, the frame fails the LRC check then
+         */
+        if (b < 0)
+            b = 0;
         lrcAdd((byte) b);
         return b;
     }
 
+    /**
+     * reads the characters of len bytes by a single call and decodes them.
+     */
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        for (int i = off; i < len; i++) {
-            b[i] = (byte) read();
+        int count = 0;
+        while (count < len) {
+            int n = Math.min(len - count, ascii.length / 2);
+            if (super.read(ascii, 0, 2 * n) < 2 * n)
+                throw new IOException("Unexpected end of frame");
+            lrc = AsciiCodec.decode(lrc, ascii, 0, n, b, off + count);
+            count += n;
         }
         return len;
     }
@@ -29,7 +29,7 @@ import java.io.IOException;
  */
 public class InputStreamRTU extends InputStreamSerial {
 
-    private int crc = CRC16.INITIAL_VALUE;
+    final private CRC16 crc = new CRC16();
 
     public InputStreamRTU(SerialPort serial) {
         super(serial);
@@ -47,24 +47,24 @@ public class InputStreamRTU extends InputStreamSerial {
 
     @Override
     public void frameInit() {
-        crc = CRC16.INITIAL_VALUE;
+        crc.reset();
     }
 
     @Override
     public int read() throws IOException {
         int b = super.read();
-        crc = CRC16.calc(crc, (byte) b);
+        crc.update(b);
         return b;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         int c = super.read(b, off, len);
-        crc = CRC16.calc(crc, b, off, len);
+        crc.update(b, off, c);
         return c;
     }
 
     private int getCrc() {
-        return crc;
+        return crc.getCrc();
     }
 }
\ No newline at end of file
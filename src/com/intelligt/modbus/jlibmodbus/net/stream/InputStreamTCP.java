@@ -59,6 +59,11 @@ public class InputStreamTCP extends LoggingInputStream {
                 return count;
             }
 
+            @Override
+            public int available() throws IOException {
+                return in.available();
+            }
+
             @Override
             public void setReadTimeout(int readTimeout) {
                 try {
@@ -0,0 +1,98 @@
+package com.intelligt.modbus.jlibmodbus.net.stream;
+
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * reads the decrypted data from a TlsChannel waiting for it no longer than the read timeout.
+ */
+public class InputStreamTLS extends LoggingInputStream {
+
+    public InputStreamTLS(final TlsChannel channel) {
+        super(new ModbusInputStream() {
+
+            final private ByteBuffer in = createBuffer(channel);
+            private volatile int readTimeout = 0;
+
+            /**
+             * @return false if the connection is closed by the peer
+             */
+            private boolean fill() throws IOException {
+                if (in.hasRemaining())
+                    return true;
+                in.clear();
+                try {
+                    return channel.read(in, readTimeout) > 0;
+                } finally {
+                    in.flip();
+                }
+            }
+
+            @Override
+            public int read() throws IOException {
+                if (!fill()) {
+                    throw new IOException("Input stream is closed");
+                }
+                return in.get() & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = 0;
+                while (count < len && fill()) {
+                    int k = Math.min(len - count, in.remaining());
+                    in.get(b, off + count, k);
+                    count += k;
+                }
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return in.remaining();
+            }
+
+            @Override
+            public void setReadTimeout(int readTimeout) {
+                this.readTimeout = readTimeout;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        });
+    }
+
+    static private ByteBuffer createBuffer(TlsChannel channel) {
+        ByteBuffer b = ByteBuffer.allocate(channel.getSession().getApplicationBufferSize());
+        b.flip();
+        return b;
+    }
+}
@@ -0,0 +1,121 @@
+package com.intelligt.modbus.jlibmodbus.net.stream;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * reads the frames of the received datagrams, a read never crosses the end of the datagram.
+ */
+public class InputStreamUDP extends LoggingInputStream {
+
+    final private DatagramInputStream in;
+
+    public InputStreamUDP(DatagramSocket socket) {
+        this(new DatagramInputStream(socket));
+    }
+
+    private InputStreamUDP(DatagramInputStream in) {
+        super(in);
+        this.in = in;
+    }
+
+    /**
+     * waits for the next datagram, the rest of the previous one is discarded.
+     *
+     * @return the address of the sender
+     * @throws IOException if the socket is closed or the read timeout is elapsed
+     */
+    public SocketAddress receive() throws IOException {
+        return in.receive();
+    }
+
+    /**
+     * @return the number of the bytes left in the current datagram.
+     */
+    public int remaining() {
+        return in.remaining();
+    }
+
+    static private class DatagramInputStream extends ModbusInputStream {
+        final private DatagramSocket socket;
+        final private byte[] buffer = new byte[Modbus.MAX_TCP_ADU_LENGTH];
+        final private DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        private int position = 0;
+        private int limit = 0;
+
+        DatagramInputStream(DatagramSocket socket) {
+            this.socket = socket;
+        }
+
+        SocketAddress receive() throws IOException {
+            position = limit = 0;
+            packet.setLength(buffer.length);
+            socket.receive(packet);
+            limit = packet.getLength();
+            return packet.getSocketAddress();
+        }
+
+        int remaining() {
+            return limit - position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= limit)
+                throw new IOException("Unexpected end of datagram");
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len > limit - position)
+                throw new IOException("Unexpected end of datagram");
+            System.arraycopy(buffer, position, b, off, len);
+            position += len;
+            return len;
+        }
+
+        @Override
+        public void setReadTimeout(int readTimeout) {
+            try {
+                socket.setSoTimeout(readTimeout);
+            } catch (SocketException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+        }
+    }
+}
@@ -2,10 +2,9 @@ package com.intelligt.modbus.jlibmodbus.net.stream;
 
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
-import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
+import com.intelligt.modbus.jlibmodbus.utils.AsciiCodec;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -31,6 +30,10 @@ import java.nio.charset.Charset;
 public class OutputStreamASCII extends OutputStreamSerial {
 
     private int lrc = 0;
+    /*
+     * the characters are prepared here and written by a single call
+     */
+    final private byte[] ascii = new byte[2 * Modbus.MAX_RTU_ADU_LENGTH];
 
     public OutputStreamASCII(SerialPort serial) {
         super(serial);
@@ -44,24 +47,29 @@ public class OutputStreamASCII extends OutputStreamSerial {
 
     @Override
     public void write(byte[] bytes, int offset, int length) throws IOException {
-        int tail = offset+length;
-        for (int i = offset; i < tail; i++) {
-            lrc += bytes[i];
+        while (length > 0) {
+            int count = Math.min(length, ascii.length / 2);
+            lrc = AsciiCodec.encode(lrc, bytes, offset, count, ascii, 0);
+            super.write(ascii, 0, 2 * count);
+            offset += count;
+            length -= count;
         }
-        byte[] ascii = DataUtils.toAscii(bytes, offset, length).getBytes(Charset.forName("ASCII"));
-        super.write(ascii);
     }
 
     @Override
     public void write(int b) throws IOException {
         lrc += (byte) b;
-        byte[] bytes = DataUtils.toAscii((byte) b).getBytes(Charset.forName("ASCII"));
-        super.write(bytes);
+        writeHex(b);
+    }
+
+    private void writeHex(int b) throws IOException {
+        ascii[0] = AsciiCodec.high(b);
+        ascii[1] = AsciiCodec.low(b);
+        super.write(ascii, 0, 2);
     }
 
     private void writeChecksum() throws IOException {
-        byte[] bytes = DataUtils.toAscii((byte) -lrc).getBytes(Charset.forName("ASCII"));
-        super.write(bytes);
+        writeHex(AsciiCodec.lrc(lrc));
     }
 
     public void writeRaw(int b) throws IOException {
@@ -2,6 +2,7 @@ package com.intelligt.modbus.jlibmodbus.net.stream;
 
 import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
 import com.intelligt.modbus.jlibmodbus.utils.CRC16;
+import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
 
 import java.io.IOException;
 
@@ -28,13 +29,42 @@ import java.io.IOException;
  */
 public class OutputStreamRTU extends OutputStreamSerial {
 
+    /*
+     * the crc is updated as the frame is written, so the frame isn't copied to calculate it
+     */
+    final private CRC16 crc = new CRC16();
+
     public OutputStreamRTU(SerialPort serial) {
         super(serial);
     }
 
+    @Override
+    public void write(byte[] b) throws IOException {
+        crc.update(b);
+        super.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException {
+        crc.update(b, offset, length);
+        super.write(b, offset, length);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        crc.update(b);
+        super.write(b);
+    }
+
     @Override
     public void flush() throws IOException {
-        writeShortLE(CRC16.calc(toByteArray()));
+        int c = crc.getCrc();
+        try {
+            super.write(DataUtils.byteLow(c));
+            super.write(DataUtils.byteHigh(c));
+        } finally {
+            crc.reset();
+        }
         super.flush();
     }
 }
@@ -1,5 +1,6 @@
 package com.intelligt.modbus.jlibmodbus.net.stream;
 
+import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
 
@@ -31,15 +32,22 @@ import java.net.Socket;
 public class OutputStreamTCP extends LoggingOutputStream {
 
     public OutputStreamTCP(final Socket s) throws IOException {
-        super(new ModbusOutputStream() {
+        this(s, Modbus.MAX_TCP_ADU_LENGTH);
+    }
+
+    /**
+     * @param s        the socket
+     * @param capacity the maximum number of bytes written between the flushes
+     */
+    public OutputStreamTCP(final Socket s, int capacity) throws IOException {
+        super(new ModbusOutputStream(capacity) {
             final Socket socket = s;
             final private BufferedOutputStream os = new BufferedOutputStream(socket.getOutputStream());
 
             @Override
             public void flush() throws IOException {
                 try {
-                    byte[] bytes = toByteArray();
-                    os.write(bytes);
+                    getFifo().writeTo(os);
                     os.flush();
                 } catch (Exception e) {
                     throw new IOException(e);
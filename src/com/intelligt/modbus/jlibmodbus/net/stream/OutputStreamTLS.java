@@ -0,0 +1,60 @@
+package com.intelligt.modbus.jlibmodbus.net.stream;
+
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingOutputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * encrypts the written bytes on flush.
+ */
+public class OutputStreamTLS extends LoggingOutputStream {
+
+    /**
+     * @param channel      the TLS channel
+     * @param writeTimeout the time limit to send the data, in milliseconds, 0 - no limit
+     * @param capacity     the maximum number of bytes written between the flushes
+     */
+    public OutputStreamTLS(final TlsChannel channel, final int writeTimeout, int capacity) {
+        super(new ModbusOutputStream(capacity) {
+
+            @Override
+            public void flush() throws IOException {
+                try {
+                    channel.write(ByteBuffer.wrap(toByteArray()), writeTimeout);
+                } finally {
+                    super.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.intelligt.modbus.jlibmodbus.net.stream;
+
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingOutputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * sends the written bytes as a single datagram on flush.
+ */
+public class OutputStreamUDP extends LoggingOutputStream {
+
+    final private DatagramOutputStream out;
+
+    public OutputStreamUDP(DatagramSocket socket) {
+        this(new DatagramOutputStream(socket));
+    }
+
+    private OutputStreamUDP(DatagramOutputStream out) {
+        super(out);
+        this.out = out;
+    }
+
+    /**
+     * @param target the address the next datagrams are sent to
+     */
+    public void setTarget(SocketAddress target) {
+        out.target = target;
+    }
+
+    static private class DatagramOutputStream extends ModbusOutputStream {
+        final private DatagramSocket socket;
+        private volatile SocketAddress target = null;
+
+        DatagramOutputStream(DatagramSocket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                SocketAddress address = target;
+                if (address == null)
+                    throw new IOException("The destination is unknown");
+                byte[] bytes = toByteArray();
+                socket.send(new DatagramPacket(bytes, bytes.length, address));
+            } finally {
+                super.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+        }
+    }
+}
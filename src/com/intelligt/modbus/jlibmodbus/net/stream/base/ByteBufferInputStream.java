@@ -0,0 +1,94 @@
+package com.intelligt.modbus.jlibmodbus.net.stream.base;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * a ModbusInputStream which reads the content of a ByteBuffer, it is used to parse
+ * frames which have already been received completely.
+ * An attempt to read beyond the limit of the buffer causes an IOException.
+ */
+public class ByteBufferInputStream extends ModbusInputStream {
+
+    private ByteBuffer buffer;
+
+    public ByteBufferInputStream() {
+        this(ByteBuffer.allocate(0));
+    }
+
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        setBuffer(buffer);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining())
+            throw new IOException("Unexpected end of frame");
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public int readShortBE() throws IOException {
+        return readShort(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public int readShortLE() throws IOException {
+        return readShort(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int readShort(ByteOrder order) throws IOException {
+        if (buffer.remaining() < 2)
+            throw new IOException("Unexpected end of frame");
+        short s = buffer.getShort();
+        return (buffer.order() == order ? s : Short.reverseBytes(s)) & 0xffff;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public void setReadTimeout(int readTimeout) {
+        //do nothing
+    }
+}
@@ -0,0 +1,111 @@
+package com.intelligt.modbus.jlibmodbus.net.stream.base;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * a ModbusOutputStream which writes directly into a ByteBuffer, it is used to build a whole frame
+ * in a buffer which can be written to a channel at once.
+ */
+public class ByteBufferOutputStream extends ModbusOutputStream {
+
+    private ByteBuffer buffer;
+
+    public ByteBufferOutputStream(ByteBuffer buffer) {
+        /*
+         * the bytes go straight to the buffer, the fifo of the base class isn't used.
+         */
+        super(0);
+        setBuffer(buffer);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        try {
+            buffer.put(b, off, len);
+        } catch (BufferOverflowException e) {
+            throw new IOException("Buffer overflow", e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try {
+            buffer.put((byte) b);
+        } catch (BufferOverflowException e) {
+            throw new IOException("Buffer overflow", e);
+        }
+    }
+
+    @Override
+    public void writeShortBE(int s) throws IOException {
+        writeShort((short) s, ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public void writeShortLE(int s) throws IOException {
+        writeShort((short) s, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void writeShort(short s, ByteOrder order) throws IOException {
+        try {
+            buffer.putShort(buffer.order() == order ? s : Short.reverseBytes(s));
+        } catch (BufferOverflowException e) {
+            throw new IOException("Buffer overflow", e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        //do nothing
+    }
+
+    /**
+     * @return a copy of the bytes written into the buffer.
+     */
+    @Override
+    public byte[] toByteArray() {
+        ByteBuffer b = buffer.duplicate();
+        b.flip();
+        byte[] bytes = new byte[b.remaining()];
+        b.get(bytes);
+        return bytes;
+    }
+}
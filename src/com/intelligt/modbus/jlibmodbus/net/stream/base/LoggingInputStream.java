@@ -65,6 +65,11 @@ public class LoggingInputStream extends ModbusInputStream {
         return read;
     }
 
+    @Override
+    public int available() throws IOException {
+        return in.available();
+    }
+
     @Override
     public void setReadTimeout(int readTimeout) {
         in.setReadTimeout(readTimeout);
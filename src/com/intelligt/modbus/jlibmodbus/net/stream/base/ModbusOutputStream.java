@@ -30,7 +30,18 @@ import java.io.OutputStream;
  */
 abstract public class ModbusOutputStream extends OutputStream {
 
-    private final ByteFifo fifo = new ByteFifo(Modbus.MAX_TCP_ADU_LENGTH);
+    private final ByteFifo fifo;
+
+    public ModbusOutputStream() {
+        this(Modbus.MAX_TCP_ADU_LENGTH);
+    }
+
+    /**
+     * @param size the maximum number of bytes kept until the stream is flushed
+     */
+    public ModbusOutputStream(int size) {
+        fifo = new ByteFifo(size);
+    }
 
     @Override
     public void write(byte[] b) throws IOException {
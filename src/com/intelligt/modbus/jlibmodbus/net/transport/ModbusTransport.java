@@ -82,6 +82,52 @@ public abstract class ModbusTransport {
 
     }
 
+    /**
+     * writes the message without sending it, the written messages are sent together by #flush().
+     * No more than #getMaxPendingFrames() messages can be written between the flushes.
+     *
+     * @param msg the message
+     * @throws ModbusIOException if an I/O error occurs
+     */
+    public void write(ModbusMessage msg) throws ModbusIOException {
+        try {
+            sendImpl(msg);
+        } finally {
+            getOutputStream().log();
+        }
+    }
+
+    /**
+     * sends the messages written by #write(ModbusMessage).
+     *
+     * @throws ModbusIOException if an I/O error occurs
+     */
+    public void flush() throws ModbusIOException {
+        try {
+            getOutputStream().flush();
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+    }
+
+    /**
+     * @return the number of messages the output buffer can hold.
+     */
+    public int getMaxPendingFrames() {
+        return 1;
+    }
+
+    /**
+     * @return true if the beginning of the next frame is already received, so it can be read without waiting.
+     */
+    public boolean isInputAvailable() {
+        try {
+            return getInputStream().available() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     public LoggingInputStream getInputStream() {
         return is;
     }
@@ -1,9 +1,14 @@
 package com.intelligt.modbus.jlibmodbus.net.transport;
 
+import com.intelligt.modbus.jlibmodbus.net.stream.InputStreamTLS;
+import com.intelligt.modbus.jlibmodbus.net.stream.OutputStreamTLS;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsChannel;
 
 import java.io.IOException;
+import java.net.DatagramSocket;
 import java.net.Socket;
+import java.net.SocketAddress;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -39,4 +44,22 @@ public class ModbusTransportFactory {
     static public ModbusTransport createTCP(Socket socket) throws IOException {
         return new ModbusTransportTCP(socket);
     }
+
+    /**
+     * @param channel      the TLS channel, the handshake is performed on the first read or write if it's not done yet
+     * @param writeTimeout the time limit to send a frame, in milliseconds, 0 - no limit
+     * @return the Modbus/TCP Security transport
+     */
+    static public ModbusTransport createTLS(TlsChannel channel, int writeTimeout) {
+        return new ModbusTransportTCP(new InputStreamTLS(channel), new OutputStreamTLS(channel, writeTimeout, ModbusTransportTCP.OUTPUT_CAPACITY), channel);
+    }
+
+    /**
+     * @param socket the datagram socket
+     * @param remote the address of the remote device, or null to reply to the sender of the last received datagram
+     * @return the ModbusUDP transport
+     */
+    static public ModbusTransport createUDP(DatagramSocket socket, SocketAddress remote) {
+        return new ModbusTransportUDP(socket, remote);
+    }
 }
@@ -1,8 +1,21 @@
 package com.intelligt.modbus.jlibmodbus.net.transport;
 
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusChecksumException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageFactory;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestFactory;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
 import com.intelligt.modbus.jlibmodbus.net.stream.InputStreamRTU;
 import com.intelligt.modbus.jlibmodbus.net.stream.OutputStreamRTU;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.serial.SerialParameters;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
+import com.intelligt.modbus.jlibmodbus.utils.CRC16;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -27,7 +40,152 @@ import com.intelligt.modbus.jlibmodbus.serial.SerialPort;
  */
 class ModbusTransportRTU extends ModbusTransportSerial {
 
+    /*
+     * a frame is received here by one or two bulk reads, see RtuFrameLength
+     */
+    final private byte[] frame = new byte[Modbus.MAX_RTU_ADU_LENGTH];
+    final private ByteBuffer frameBuffer = ByteBuffer.wrap(frame);
+    final private ByteBufferInputStream frameStream = new ByteBufferInputStream(frameBuffer);
+    final private SerialPort serial;
+
     ModbusTransportRTU(SerialPort serial) {
         super(new InputStreamRTU(serial), new OutputStreamRTU(serial));
+        this.serial = serial;
+    }
+
+    /**
+     * reads the server address and the function code, then the rest of the frame by its predicted length.
+     * Frames which length can't be predicted are received up to the silent interval (t3.5) which ends them.
+     * The crc is checked before the frame is parsed.
+     * <p>
+     * The first bytes are awaited for the read timeout, the rest of the frame has to be received
+     * within its transmission time plus t3.5 (see {@link SerialParameters#getReceiveTimeoutMillis(int)}).
+     * A fragment, a frame of an illegal length or a corrupted frame is dropped together with any data
+     * following it up to the next silent interval, so the next read starts at the beginning of a frame.
+     */
+    @Override
+    protected ModbusMessage read(ModbusMessageFactory factory) throws ModbusIOException, ModbusNumberException {
+        InputStreamRTU is = (InputStreamRTU) getInputStream();
+        boolean request = factory instanceof ModbusRequestFactory;
+        int readTimeout = serial.getReadTimeout();
+        try {
+            is.frameInit();
+            readFully(is, 0, 2);
+        } catch (IOException ioe) {
+            throw new ModbusIOException(ioe);
+        }
+        try {
+            return readFrame(is, factory, request);
+        } catch (ModbusNumberException e) {
+            resync();
+            throw e;
+        } catch (ModbusChecksumException e) {
+            resync();
+            throw e;
+        } finally {
+            setReadTimeout(readTimeout);
+        }
+    }
+
+    private ModbusMessage readFrame(InputStreamRTU is, ModbusMessageFactory factory, boolean request) throws ModbusIOException, ModbusNumberException {
+        int functionCode = frame[1] & 0xff;
+        int header = RtuFrameLength.getHeaderLength(functionCode, request);
+        int length;
+        if (header == RtuFrameLength.UNKNOWN) {
+            length = receiveUntilSilence(is, 2);
+        } else {
+            receive(is, 2, header - 2);
+            length = RtuFrameLength.getFrameLength(frame, 0, request);
+            if (length > frame.length)
+                throw new ModbusNumberException("Illegal length of the frame", length);
+            receive(is, header, length - header);
+        }
+        if (length < RtuFrameLength.OVERHEAD)
+            throw new ModbusNumberException("Illegal length of the frame", length);
+        int c_crc = CRC16.calc(CRC16.INITIAL_VALUE, frame, 0, length - 2);
+        int r_crc = (frame[length - 2] & 0xff) | ((frame[length - 1] & 0xff) << 8);
+        if (c_crc != r_crc)
+            throw new ModbusChecksumException(r_crc, c_crc);
+        ModbusMessage msg = factory.createMessage(functionCode);
+        msg.setServerAddress(frame[0] & 0xff);
+        frameBuffer.clear();
+        frameBuffer.limit(length - 2);
+        frameBuffer.position(2);
+        try {
+            msg.read(frameStream);
+        } catch (ModbusIOException e) {
+            throw new ModbusNumberException("Malformed frame, function code", functionCode);
+        }
+        return msg;
+    }
+
+    /**
+     * reads the part of the frame which has to follow the received bytes immediately.
+     */
+    private void receive(InputStreamRTU is, int off, int len) throws ModbusNumberException, ModbusIOException {
+        if (len <= 0)
+            return;
+        setReadTimeout(serial.getSerialParameters().getReceiveTimeoutMillis(len));
+        try {
+            readFully(is, off, len);
+        } catch (IOException e) {
+            if (!serial.isOpened())
+                throw new ModbusIOException(e);
+            throw new ModbusNumberException("Incomplete frame, bytes received", off);
+        }
+    }
+
+    /**
+     * reads the bytes up to the silent interval which ends the frame.
+     *
+     * @return the length of the frame
+     */
+    private int receiveUntilSilence(InputStreamRTU is, int off) throws ModbusNumberException, ModbusIOException {
+        setReadTimeout(serial.getSerialParameters().getFrameSilenceMillis());
+        int length = off;
+        try {
+            while (length < frame.length) {
+                frame[length] = (byte) is.read();
+                length++;
+            }
+        } catch (IOException e) {
+            if (!serial.isOpened())
+                throw new ModbusIOException(e);
+            return length;
+        }
+        throw new ModbusNumberException("Illegal length of the frame", length);
+    }
+
+    /**
+     * discards the input up to the next silent interval.
+     */
+    private void resync() {
+        SerialParameters sp = serial.getSerialParameters();
+        setReadTimeout(sp.getFrameSilenceMillis());
+        /*
+         * a line which never gets silent is broken, let the caller time out
+         */
+        long deadline = System.currentTimeMillis() + sp.getReceiveTimeoutMillis(Modbus.MAX_RTU_ADU_LENGTH);
+        int count = 0;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                serial.read();
+                count++;
+            }
+        } catch (IOException e) {
+            //the line is silent
+        }
+        if (count > 0)
+            Modbus.log().warning(count + " bytes discarded to synchronize the frames.");
+    }
+
+    private void setReadTimeout(int timeout) {
+        if (serial.getReadTimeout() != timeout)
+            serial.setReadTimeout(timeout);
+    }
+
+    private void readFully(InputStreamRTU is, int off, int len) throws IOException {
+        if (len > 0 && is.read(frame, off, len) < len)
+            throw new IOException("Unexpected end of frame");
     }
 }
@@ -1,17 +1,22 @@
 package com.intelligt.modbus.jlibmodbus.net.transport;
 
+import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec;
 import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageFactory;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
 import com.intelligt.modbus.jlibmodbus.net.stream.InputStreamTCP;
 import com.intelligt.modbus.jlibmodbus.net.stream.OutputStreamTCP;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.ByteBufferInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingInputStream;
+import com.intelligt.modbus.jlibmodbus.net.stream.base.LoggingOutputStream;
 import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusInputStream;
-import com.intelligt.modbus.jlibmodbus.net.stream.base.ModbusOutputStream;
-import com.intelligt.modbus.jlibmodbus.tcp.TcpAduHeader;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -36,43 +41,112 @@ import java.net.Socket;
  */
 class ModbusTransportTCP extends ModbusTransport {
 
-    final private Socket socket;
+    /*
+     * the number of the responses a pipelining slave may gather into one write
+     */
+    final static int MAX_PENDING_FRAMES = 16;
+    final static int OUTPUT_CAPACITY = Modbus.MAX_TCP_ADU_LENGTH * MAX_PENDING_FRAMES;
+
+    final private Closeable connection;
+    /*
+     * reading and sending may run on different threads (see ModbusMasterTCPAsync),
+     * the whole ADU is assembled here before it is written
+     */
+    final private byte[] sendFrame = new byte[Modbus.MAX_TCP_ADU_LENGTH];
+    final private ByteBuffer sendBuffer = ByteBuffer.wrap(sendFrame);
+    /*
+     * the whole ADU is received here before it is parsed
+     */
+    final private byte[] frame = new byte[Modbus.MAX_TCP_ADU_LENGTH];
+    final private ByteBuffer frameBuffer = ByteBuffer.wrap(frame);
+    final private ByteBufferInputStream frameStream = new ByteBufferInputStream(frameBuffer);
 
     ModbusTransportTCP(Socket socket) throws IOException {
-        super(new InputStreamTCP(socket), new OutputStreamTCP(socket));
-        this.socket = socket;
+        this(new InputStreamTCP(socket), new OutputStreamTCP(socket, OUTPUT_CAPACITY), socket);
+    }
+
+    /**
+     * @param connection the underlying connection, it is closed by #close()
+     */
+    ModbusTransportTCP(LoggingInputStream is, LoggingOutputStream os, Closeable connection) {
+        super(is, os);
+        this.connection = connection;
     }
 
+    /**
+     * reads the MBAP header, then the rest of the ADU by the length field, and parses the PDU from the buffer.
+     * A frame of an illegal length is skipped, so the next frame is read from its beginning.
+     * If the PDU cannot be parsed, the rest of the frame is skipped as well.
+     * In both cases ModbusNumberException is thrown and the connection can be used further.
+     */
     @Override
     protected ModbusMessage read(ModbusMessageFactory factory) throws ModbusNumberException, ModbusIOException {
         ModbusInputStream is = getInputStream();
-        TcpAduHeader header = new TcpAduHeader();
-        header.read(is);
+        int length;
         try {
-            ModbusMessage msg = createMessage(factory);
+            readFully(is, 0, ModbusMessageCodec.MBAP_HEADER_LENGTH);
+            length = frameBuffer.getShort(4) & 0xffff;
+            if (length < Modbus.MIN_PDU_LENGTH || length > Modbus.MAX_PDU_LENGTH) {
+                skip(is, length);
+                throw new ModbusNumberException("Illegal length of the frame", length);
+            }
+            readFully(is, ModbusMessageCodec.MBAP_HEADER_LENGTH, length);
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+        frameBuffer.clear();
+        frameBuffer.limit(ModbusMessageCodec.MBAP_HEADER_LENGTH + length);
+        int transactionId = frameBuffer.getShort() & 0xffff;
+        int protocolId = frameBuffer.getShort() & 0xffff;
+        frameBuffer.getShort();
+        int serverAddress = frameBuffer.get() & 0xff;
+        int functionCode = frameBuffer.get() & 0xff;
+        ModbusMessage msg = factory.createMessage(functionCode);
+        msg.setServerAddress(serverAddress);
+        msg.setTransactionId(transactionId);
+        msg.setProtocolId(protocolId);
+        try {
+            msg.read(frameStream);
+        } catch (ModbusIOException e) {
+            /*
+             * the frame is received completely, so it's malformed
+             */
+            throw new ModbusNumberException("Malformed frame, function code", functionCode);
+        }
+        return msg;
+    }
 
-            msg.setTransactionId(header.getTransactionId());
-            msg.setProtocolId(header.getProtocolId());
+    private void readFully(ModbusInputStream is, int off, int len) throws IOException {
+        if (is.read(frame, off, len) < len)
+            throw new IOException("Input stream is closed");
+    }
+
+    private void skip(ModbusInputStream is, int len) throws IOException {
+        while (len > 0) {
+            int count = Math.min(len, frame.length);
+            readFully(is, 0, count);
+            len -= count;
+        }
+    }
 
-            return msg;
+    @Override
+    public void sendImpl(ModbusMessage msg) throws ModbusIOException {
+        sendBuffer.clear();
+        ModbusMessageCodec.encodeTcp(msg, sendBuffer);
+        try {
+            getOutputStream().write(sendFrame, 0, sendBuffer.position());
         } catch (IOException e) {
             throw new ModbusIOException(e);
         }
     }
 
     @Override
-    public void sendImpl(ModbusMessage msg) throws ModbusIOException {
-        ModbusOutputStream os = getOutputStream();
-        TcpAduHeader header = new TcpAduHeader();
-        header.setProtocolId(msg.getProtocolId());
-        header.setTransactionId(msg.getTransactionId());
-        header.setPduSize(msg.size());
-        header.write(os);
-        msg.write(os);
+    public int getMaxPendingFrames() {
+        return MAX_PENDING_FRAMES;
     }
 
     @Override
     public void close() throws IOException {
-        socket.close();
+        connection.close();
     }
 }
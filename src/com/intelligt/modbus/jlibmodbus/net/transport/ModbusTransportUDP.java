@@ -0,0 +1,120 @@
+package com.intelligt.modbus.jlibmodbus.net.transport;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageFactory;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
+import com.intelligt.modbus.jlibmodbus.net.stream.InputStreamUDP;
+import com.intelligt.modbus.jlibmodbus.net.stream.OutputStreamUDP;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpAduHeader;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * ModbusUDP: each datagram carries a single MBAP frame.
+ * If the remote address is set, the datagrams from the other addresses are ignored,
+ * else the messages are sent to the sender of the last received datagram (a slave replies to its master).
+ */
+class ModbusTransportUDP extends ModbusTransport {
+
+    final private DatagramSocket socket;
+    final private SocketAddress remote;
+    final private InputStreamUDP in;
+    final private OutputStreamUDP out;
+    final private TcpAduHeader sendHeader = new TcpAduHeader();
+
+    ModbusTransportUDP(DatagramSocket socket, SocketAddress remote) {
+        this(socket, remote, new InputStreamUDP(socket), new OutputStreamUDP(socket));
+    }
+
+    private ModbusTransportUDP(DatagramSocket socket, SocketAddress remote, InputStreamUDP in, OutputStreamUDP out) {
+        super(in, out);
+        this.socket = socket;
+        this.remote = remote;
+        this.in = in;
+        this.out = out;
+        out.setTarget(remote);
+    }
+
+    /**
+     * receives the next datagram and parses its frame.
+     * A datagram which length doesn't match the length field is dropped, ModbusNumberException is thrown.
+     */
+    @Override
+    protected ModbusMessage read(ModbusMessageFactory factory) throws ModbusNumberException, ModbusIOException {
+        int transactionId;
+        int protocolId;
+        int serverAddress;
+        int functionCode;
+        try {
+            SocketAddress sender;
+            do {
+                sender = in.receive();
+            } while (remote != null && !remote.equals(sender));
+            if (in.remaining() < ModbusMessageCodec.MBAP_HEADER_LENGTH + Modbus.MIN_PDU_LENGTH)
+                throw new ModbusNumberException("Illegal length of the frame", in.remaining());
+            transactionId = in.readShortBE();
+            protocolId = in.readShortBE();
+            int length = in.readShortBE();
+            if (length != in.remaining() || length > Modbus.MAX_PDU_LENGTH)
+                throw new ModbusNumberException("Illegal length of the frame", length);
+            serverAddress = in.read();
+            functionCode = in.read();
+            if (remote == null)
+                out.setTarget(sender);
+        } catch (IOException e) {
+            throw new ModbusIOException(e);
+        }
+        ModbusMessage msg = factory.createMessage(functionCode);
+        msg.setServerAddress(serverAddress);
+        msg.setTransactionId(transactionId);
+        msg.setProtocolId(protocolId);
+        try {
+            msg.read(in);
+        } catch (ModbusIOException e) {
+            throw new ModbusNumberException("Malformed frame, function code", functionCode);
+        }
+        return msg;
+    }
+
+    @Override
+    public void sendImpl(ModbusMessage msg) throws ModbusIOException {
+        TcpAduHeader header = sendHeader;
+        header.setProtocolId(msg.getProtocolId());
+        header.setTransactionId(msg.getTransactionId());
+        header.setPduSize(msg.size());
+        header.write(out);
+        msg.write(out);
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
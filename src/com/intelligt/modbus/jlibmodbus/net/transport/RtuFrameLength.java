@@ -0,0 +1,133 @@
+package com.intelligt.modbus.jlibmodbus.net.transport;
+
+import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * tells the length of a Modbus RTU frame by its first bytes.
+ * A frame starts with the server address and the function code; the length of the rest either is fixed
+ * or follows from a byte count field at a fixed offset. So a frame can be received by one or two bulk reads:
+ * the header up to the byte count, then the rest of the frame including the crc.
+ * <p>
+ * Frames of unknown function codes, encapsulated interface transport and fifo queue responses
+ * can not be measured this way, the caller has to receive them up to the silent interval (t3.5) which ends them.
+ */
+final public class RtuFrameLength {
+
+    /**
+     * the server address, the function code and the crc
+     */
+    final static public int OVERHEAD = 4;
+    final static public int UNKNOWN = -1;
+
+    private RtuFrameLength() {
+    }
+
+    /**
+     * @param functionCode the second byte of the frame
+     * @param request      true if the frame is a request (it's read by a slave), false if it's a response
+     * @return the number of bytes from the beginning of the frame enough to get its length,
+     * or {@link #UNKNOWN} if the length of the frame can not be predicted.
+     */
+    static public int getHeaderLength(int functionCode, boolean request) {
+        if (!request && (functionCode & 0x80) != 0)
+            return 2;
+        switch (ModbusFunctionCode.get(functionCode)) {
+            case READ_COILS:
+            case READ_DISCRETE_INPUTS:
+            case READ_HOLDING_REGISTERS:
+            case READ_INPUT_REGISTERS:
+            case GET_COMM_EVENT_LOG:
+            case REPORT_SLAVE_ID:
+                return request ? 2 : 3;
+            case READ_WRITE_MULTIPLE_REGISTERS:
+                return request ? 11 : 3;
+            case WRITE_SINGLE_COIL:
+            case WRITE_SINGLE_REGISTER:
+            case READ_EXCEPTION_STATUS:
+            case DIAGNOSTICS:
+            case GET_COMM_EVENT_COUNTER:
+            case MASK_WRITE_REGISTER:
+                return 2;
+            case WRITE_MULTIPLE_COILS:
+            case WRITE_MULTIPLE_REGISTERS:
+                return request ? 7 : 2;
+            case READ_FILE_RECORD:
+            case WRITE_FILE_RECORD:
+                return 3;
+            case READ_FIFO_QUEUE:
+                return request ? 2 : UNKNOWN;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    /**
+     * @param frame   the beginning of the frame, at least {@link #getHeaderLength(int, boolean)} bytes
+     * @param offset  the offset of the frame in the array
+     * @param request true if the frame is a request, false if it's a response
+     * @return the length of the whole frame including the crc, or {@link #UNKNOWN}.
+     */
+    static public int getFrameLength(byte[] frame, int offset, boolean request) {
+        int functionCode = frame[offset + 1] & 0xff;
+        if (!request && (functionCode & 0x80) != 0)
+            return OVERHEAD + 1;
+        switch (ModbusFunctionCode.get(functionCode)) {
+            case READ_COILS:
+            case READ_DISCRETE_INPUTS:
+            case READ_HOLDING_REGISTERS:
+            case READ_INPUT_REGISTERS:
+                return OVERHEAD + (request ? 4 : 1 + byteCount(frame, offset + 2));
+            case WRITE_SINGLE_COIL:
+            case WRITE_SINGLE_REGISTER:
+            case DIAGNOSTICS:
+                return OVERHEAD + 4;
+            case READ_EXCEPTION_STATUS:
+                return OVERHEAD + (request ? 0 : 1);
+            case GET_COMM_EVENT_COUNTER:
+                return OVERHEAD + (request ? 0 : 4);
+            case GET_COMM_EVENT_LOG:
+            case REPORT_SLAVE_ID:
+                return OVERHEAD + (request ? 0 : 1 + byteCount(frame, offset + 2));
+            case WRITE_MULTIPLE_COILS:
+            case WRITE_MULTIPLE_REGISTERS:
+                return OVERHEAD + (request ? 5 + byteCount(frame, offset + 6) : 4);
+            case READ_FILE_RECORD:
+            case WRITE_FILE_RECORD:
+                return OVERHEAD + 1 + byteCount(frame, offset + 2);
+            case MASK_WRITE_REGISTER:
+                return OVERHEAD + 6;
+            case READ_WRITE_MULTIPLE_REGISTERS:
+                return OVERHEAD + (request ? 9 + byteCount(frame, offset + 10) : 1 + byteCount(frame, offset + 2));
+            case READ_FIFO_QUEUE:
+                return request ? OVERHEAD + 2 : UNKNOWN;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    static private int byteCount(byte[] frame, int index) {
+        return frame[index] & 0xff;
+    }
+}
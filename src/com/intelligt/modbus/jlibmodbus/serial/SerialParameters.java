@@ -27,6 +27,7 @@ public class SerialParameters {
     private int dataBits;
     private int stopBits;
     private SerialPort.Parity parity;
+    private int latency = 0;
 
     public SerialParameters() {
         setBaudRate(SerialPort.BaudRate.BAUD_RATE_115200);
@@ -89,4 +90,69 @@ public class SerialParameters {
     public void setParity(SerialPort.Parity parity) {
         this.parity = parity;
     }
+
+    /**
+     * @return the number of bits on the line per character: start bit, data bits, parity bit and stop bits.
+     */
+    public int getCharBits() {
+        return 1 + getDataBits() + (getParity() == SerialPort.Parity.NONE ? 0 : 1) + getStopBits();
+    }
+
+    /**
+     * @return the time to transmit a single character, in nanoseconds.
+     */
+    public long getCharTimeNanos() {
+        return getCharBits() * 1000000000L / getBaudRate();
+    }
+
+    /**
+     * the maximum silent interval between two characters of a frame (t1.5).
+     * The modbus specification recommends a fixed value of 750us for baud rates greater than 19200.
+     *
+     * @return t1.5, in nanoseconds.
+     */
+    public long getT15Nanos() {
+        return getBaudRate() > 19200 ? 750000L : getCharTimeNanos() * 3 / 2;
+    }
+
+    /**
+     * the minimum silent interval between two frames (t3.5).
+     * The modbus specification recommends a fixed value of 1750us for baud rates greater than 19200.
+     *
+     * @return t3.5, in nanoseconds.
+     */
+    public long getT35Nanos() {
+        return getBaudRate() > 19200 ? 1750000L : getCharTimeNanos() * 7 / 2;
+    }
+
+    public int getLatency() {
+        return latency;
+    }
+
+    /**
+     * USB-serial adapters pass the received data to the host in chunks (the latency timer of FTDI chips is 16ms by default),
+     * so the host can't observe a silent interval shorter than the latency.
+     * RTU framing adds the latency to t3.5 when it waits for the end of a frame.
+     *
+     * @param latency the receive latency of the serial adapter, in milliseconds.
+     */
+    public void setLatency(int latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @return the time of silence on the line which ends a frame, as it's seen by the host, in milliseconds.
+     */
+    public int getFrameSilenceMillis() {
+        return getReceiveTimeoutMillis(0);
+    }
+
+    /**
+     * @param count the number of characters
+     * @return the time to receive the characters sent without interruption, in milliseconds.
+     * Any character which isn't received within this time belongs to another frame.
+     */
+    public int getReceiveTimeoutMillis(int count) {
+        return (int) ((count * getCharTimeNanos() + getT35Nanos() + 999999) / 1000000) + getLatency();
+    }
 }
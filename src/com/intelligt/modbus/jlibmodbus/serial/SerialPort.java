@@ -50,7 +50,7 @@ public abstract class SerialPort {
     }
 
     public ModbusOutputStream getOutputStream() {
-        return new ModbusOutputStream() {
+        return new ModbusOutputStream(Modbus.MAX_ASCII_ADU_LENGTH) {
             final private SerialPort serial = SerialPort.this;
 
             @Override
@@ -107,6 +107,23 @@ public abstract class SerialPort {
 
     abstract public boolean isOpened();
 
+    /**
+     * is overridden by the connectors which notify about the received data, see {@link SerialPortBuffered}.
+     *
+     * @param listener is run when the data is received, null removes the listener
+     * @return false if the connector doesn't support the notifications
+     */
+    boolean setDataListener(Runnable listener) throws IOException {
+        return false;
+    }
+
+    /**
+     * @return the number of bytes which can be read without blocking, or -1 if the connector can't tell it.
+     */
+    int bytesAvailable() throws IOException {
+        return -1;
+    }
+
     public enum Parity {
         NONE(0),
         ODD(1),
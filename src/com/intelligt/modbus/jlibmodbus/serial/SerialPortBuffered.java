@@ -0,0 +1,230 @@
+package com.intelligt.modbus.jlibmodbus.serial;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.utils.ByteRingBuffer;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * decorator which moves the native input of a serial port to a dedicated reader thread.
+ * The thread drains the port into a {@link ByteRingBuffer}, the transports read from the ring,
+ * so a read is a memory copy and the timeouts are handled in java regardless of the connector.
+ * <p>
+ * The connectors which notify about the received data (JSSC, jSerialComm) are read in bulk when an event comes,
+ * the others are read by blocking calls with a short timeout.
+ * If the ring overflows the bytes are dropped like on a hardware overrun, the framing of the transport recovers from it.
+ *
+ * @see SerialPortFactoryBuffered
+ */
+public class SerialPortBuffered extends SerialPort {
+
+    final static public int DEFAULT_CAPACITY = 4096;
+    /**
+     * the read timeout of the port, the reader thread checks if the port is closed that often.
+     */
+    final static private int POLL_INTERVAL = 100;
+
+    final private SerialPort port;
+    final private ByteRingBuffer ring;
+    final private byte[] buffer = new byte[Modbus.MAX_ASCII_ADU_LENGTH];
+    private volatile boolean running = false;
+    private volatile Thread reader = null;
+    private volatile boolean notified = false;
+
+    public SerialPortBuffered(SerialPort port) {
+        this(port, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param port     the serial port to decorate, it is opened and closed by the decorator.
+     * @param capacity the size of the receive buffer
+     */
+    public SerialPortBuffered(SerialPort port, int capacity) {
+        super(port.getSerialParameters());
+        this.port = port;
+        this.ring = new ByteRingBuffer(capacity);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        port.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        port.write(bytes);
+    }
+
+    @Override
+    synchronized public void open() throws SerialPortException {
+        if (running)
+            return;
+        port.setReadTimeout(POLL_INTERVAL);
+        port.open();
+        ring.clear();
+        running = true;
+        final boolean events = enableEvents();
+        /*
+         * the reader blocks in the native read calls, so it is always a platform thread:
+         * a virtual one would pin its carrier for as long as the port is open.
+         */
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readLoop(events);
+            }
+        }, getClass().getSimpleName() + "-" + getSerialParameters().getDevice());
+        t.setDaemon(true);
+        reader = t;
+        t.start();
+    }
+
+    private boolean enableEvents() {
+        try {
+            return port.setDataListener(new Runnable() {
+                @Override
+                public void run() {
+                    notified = true;
+                    Thread t = reader;
+                    if (t != null)
+                        LockSupport.unpark(t);
+                }
+            });
+        } catch (IOException e) {
+            Modbus.log().warning("Data events are not available, the port is polled: " + e.getLocalizedMessage());
+            return false;
+        }
+    }
+
+    private void readLoop(boolean events) {
+        while (running) {
+            try {
+                int count;
+                if (events) {
+                    count = port.bytesAvailable();
+                    if (count <= 0) {
+                        if (!notified)
+                            LockSupport.parkNanos(this, POLL_INTERVAL * 1000000L);
+                        notified = false;
+                        continue;
+                    }
+                    count = port.read(buffer, 0, Math.min(count, buffer.length));
+                } else {
+                    buffer[0] = (byte) port.read();
+                    count = 1;
+                    /*
+                     * the rest of the frame is taken by a single call
+                     */
+                    int available = port.bytesAvailable();
+                    if (available > 0)
+                        count += port.read(buffer, 1, Math.min(available, buffer.length - 1));
+                }
+                publish(count);
+            } catch (IOException e) {
+                if (!port.isOpened())
+                    break;
+                //timeout, check if the port is still open
+            }
+        }
+        running = false;
+    }
+
+    private void publish(int count) {
+        int written = ring.write(buffer, 0, count);
+        if (written < count)
+            Modbus.log().warning("Receive buffer overrun, bytes lost: " + (count - written));
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ring.await(getReadTimeout())) {
+            checkOpened();
+            throw new IOException("Read timeout");
+        }
+        return ring.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ring.await(getReadTimeout())) {
+            checkOpened();
+            throw new IOException("Read timeout");
+        }
+        return ring.read(b, off, len);
+    }
+
+    private void checkOpened() throws IOException {
+        if (!isOpened())
+            throw new IOException("Port not opened");
+    }
+
+    /**
+     * @return the number of received bytes waiting in the buffer.
+     */
+    public int available() {
+        return ring.available();
+    }
+
+    @Override
+    synchronized public void close() {
+        if (!running && reader == null)
+            return;
+        running = false;
+        try {
+            port.setDataListener(null);
+        } catch (IOException e) {
+            Modbus.log().warning(e.getLocalizedMessage());
+        }
+        port.close();
+        Thread t = reader;
+        reader = null;
+        if (t != null && t != Thread.currentThread()) {
+            LockSupport.unpark(t);
+            try {
+                t.join(POLL_INTERVAL * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpened() {
+        return running && port.isOpened();
+    }
+
+    @Override
+    boolean setDataListener(Runnable listener) {
+        return false;
+    }
+
+    @Override
+    int bytesAvailable() {
+        return ring.available();
+    }
+}
@@ -0,0 +1,65 @@
+package com.intelligt.modbus.jlibmodbus.serial;
+
+import java.util.List;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * decorates the ports created by another factory with {@link SerialPortBuffered}.
+ * <pre>
+ * SerialUtils.setSerialPortFactory(new SerialPortFactoryBuffered(new SerialPortFactoryJSerialComm()));
+ * </pre>
+ */
+public class SerialPortFactoryBuffered extends SerialPortAbstractFactory {
+
+    final private SerialPortAbstractFactory factory;
+    final private int capacity;
+
+    public SerialPortFactoryBuffered(SerialPortAbstractFactory factory) {
+        this(factory, SerialPortBuffered.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param factory  the factory of the native ports
+     * @param capacity the size of the receive buffer of each port
+     */
+    public SerialPortFactoryBuffered(SerialPortAbstractFactory factory, int capacity) {
+        this.factory = factory;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public SerialPort createSerialImpl(SerialParameters sp) throws SerialPortException {
+        return new SerialPortBuffered(factory.createSerial(sp), capacity);
+    }
+
+    @Override
+    public List<String> getPortIdentifiersImpl() throws SerialPortException {
+        return factory.getPortIdentifiers();
+    }
+
+    @Override
+    String getVersion() {
+        return factory.getVersion();
+    }
+}
@@ -1,6 +1,5 @@
 package com.intelligt.modbus.jlibmodbus.serial;
 
-import java.util.Arrays;
 import java.util.List;
 
 /*
@@ -32,18 +31,29 @@ import java.util.List;
 public class SerialPortFactoryLoopback extends SerialPortAbstractFactory {
 
     final private boolean isMaster;
+    final private boolean timing;
 
     public SerialPortFactoryLoopback(boolean isMaster) {
+        this(isMaster, false);
+    }
+
+    /**
+     * @param isMaster the side of the channels the ports are connected to
+     * @param timing   simulate the transmission time of the characters at the baud rate of the port
+     * @see SerialPortLoopback
+     */
+    public SerialPortFactoryLoopback(boolean isMaster, boolean timing) {
         this.isMaster = isMaster;
+        this.timing = timing;
     }
 
     @Override
     public SerialPort createSerialImpl(SerialParameters sp) throws SerialPortException {
-        return new SerialPortLoopback(sp, isMaster);
+        return new SerialPortLoopback(sp, isMaster, timing);
     }
 
     @Override
     public List<String> getPortIdentifiersImpl() {
-        return Arrays.asList(new String[0]);
+        return SerialPortLoopback.getChannelNames();
     }
 }
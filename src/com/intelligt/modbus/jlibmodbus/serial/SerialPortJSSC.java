@@ -1,5 +1,8 @@
 package com.intelligt.modbus.jlibmodbus.serial;
 
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+
 import java.io.IOException;
 
 /*
@@ -102,4 +105,33 @@ public class SerialPortJSSC extends SerialPort {
     public boolean isOpened() {
         return port.isOpened();
     }
+
+    @Override
+    boolean setDataListener(final Runnable listener) throws IOException {
+        try {
+            if (listener == null) {
+                port.removeEventListener();
+            } else {
+                port.addEventListener(new SerialPortEventListener() {
+                    @Override
+                    public void serialEvent(SerialPortEvent event) {
+                        if (event.isRXCHAR())
+                            listener.run();
+                    }
+                }, jssc.SerialPort.MASK_RXCHAR);
+            }
+            return true;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    int bytesAvailable() throws IOException {
+        try {
+            return port.getInputBufferBytesCount();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package com.intelligt.modbus.jlibmodbus.serial;
 
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -139,4 +142,34 @@ public class SerialPortJSerialComm extends SerialPort {
     public boolean isOpened() {
         return port.isOpen();
     }
+
+    @Override
+    boolean setDataListener(final Runnable listener) throws IOException {
+        if (!isOpened()) {
+            throw new IOException("Port not opened");
+        }
+        if (listener == null) {
+            port.removeDataListener();
+            return true;
+        }
+        return port.addDataListener(new SerialPortDataListener() {
+            @Override
+            public int getListeningEvents() {
+                return com.fazecast.jSerialComm.SerialPort.LISTENING_EVENT_DATA_AVAILABLE;
+            }
+
+            @Override
+            public void serialEvent(SerialPortEvent event) {
+                listener.run();
+            }
+        });
+    }
+
+    @Override
+    int bytesAvailable() throws IOException {
+        if (!isOpened()) {
+            throw new IOException("Port not opened");
+        }
+        return port.bytesAvailable();
+    }
 }
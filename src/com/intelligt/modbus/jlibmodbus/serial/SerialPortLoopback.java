@@ -1,8 +1,13 @@
 package com.intelligt.modbus.jlibmodbus.serial;
 
+import com.intelligt.modbus.jlibmodbus.utils.ByteRingBuffer;
+
 import java.io.IOException;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.LockSupport;
 
 /*
  * Copyright (C) 2017 "Invertor" Factory", JSC
@@ -27,88 +32,128 @@ import java.util.concurrent.TimeUnit;
  */
 
 /**
+ * virtual null-modem cable: the master and the slave ports of the same channel are connected to each other.
+ * The channel is named by the device name of the serial parameters, so independent pairs can run in one JVM.
+ * Each direction is a {@link ByteRingBuffer}, a channel expects one master and one slave port at a time.
+ * <p>
+ * If the timing is simulated, a write returns when the last character would have been transmitted
+ * at the baud rate of the port, and the receiver gets the characters as they arrive.
+ *
  * @author Kevin Kieffer
  * @since 1.9.0
  */
 public class SerialPortLoopback extends SerialPort {
 
-    //This must be static to be used by all class instances
-    private static final LinkedBlockingDeque<Byte> tx_from_master_fifo = new LinkedBlockingDeque<Byte>(8192);
-    private static final LinkedBlockingDeque<Byte> rx_to_master_fifo = new LinkedBlockingDeque<Byte>(8192);
-    private final LinkedBlockingDeque<Byte> myWriteFifo;
-    private final LinkedBlockingDeque<Byte> myReadFifo;
-    private boolean isOpen = false;
+    final static public int BUFFER_CAPACITY = 8192;
+
+    final static private ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<String, Channel>();
+
+    final private ByteRingBuffer tx;
+    final private ByteRingBuffer rx;
+    final private boolean timing;
+    private long lineIdleTime = 0;
+    private volatile boolean isOpen = false;
 
     public SerialPortLoopback(SerialParameters sp, boolean isMaster) throws SerialPortException {
+        this(sp, isMaster, false);
+    }
+
+    /**
+     * @param sp       the parameters of the port, the device name is the name of the channel
+     * @param isMaster the side of the channel
+     * @param timing   simulate the transmission time of the characters
+     */
+    public SerialPortLoopback(SerialParameters sp, boolean isMaster, boolean timing) throws SerialPortException {
         super(sp);
-        if (isMaster) {
-            myWriteFifo = tx_from_master_fifo;
-            myReadFifo = rx_to_master_fifo;
-        } else {
-            myWriteFifo = rx_to_master_fifo;
-            myReadFifo = tx_from_master_fifo;
+        Channel channel = getChannel(sp.getDevice());
+        this.tx = isMaster ? channel.toSlave : channel.toMaster;
+        this.rx = isMaster ? channel.toMaster : channel.toSlave;
+        this.timing = timing;
+    }
+
+    static private Channel getChannel(String name) {
+        String key = name != null ? name : "";
+        Channel channel = channels.get(key);
+        if (channel == null) {
+            Channel c = channels.putIfAbsent(key, channel = new Channel());
+            if (c != null)
+                channel = c;
         }
+        return channel;
+    }
+
+    /**
+     * @return the names of the channels created so far.
+     */
+    static public List<String> getChannelNames() {
+        return new ArrayList<String>(channels.keySet());
     }
 
     @Override
     public void write(int b) throws IOException {
-        if (!myWriteFifo.offer((byte) b))
-            throw new IOException("Loopback fifo full");
+        write(new byte[]{(byte) b});
     }
 
     @Override
     public void write(byte[] bytes) throws IOException {
         if (!isOpen)
             throw new IOException("Loopback is not open");
-        for (Byte b : bytes) {
-            if (!myWriteFifo.offer(b))
-                throw new IOException("Loopback fifo is full");
+        if (timing) {
+            transmit(bytes);
+        } else if (tx.write(bytes, 0, bytes.length) < bytes.length) {
+            throw new IOException("Loopback buffer is full");
         }
     }
 
+    /**
+     * passes each character to the receiver when its transmission time is elapsed.
+     * A transmission starts after the previous one is completed.
+     */
+    private void transmit(byte[] bytes) throws IOException {
+        long charTime = getSerialParameters().getCharTimeNanos();
+        long start = Math.max(System.nanoTime(), lineIdleTime);
+        int sent = 0;
+        while (sent < bytes.length) {
+            long elapsed = System.nanoTime() - start;
+            int due = (int) Math.min(bytes.length, elapsed / charTime);
+            if (due > sent) {
+                if (tx.write(bytes, sent, due - sent) < due - sent)
+                    throw new IOException("Loopback buffer is full");
+                sent = due;
+            } else {
+                LockSupport.parkNanos(this, (sent + 1) * charTime - elapsed);
+                if (Thread.currentThread().isInterrupted())
+                    throw new IOException("Interrupted");
+            }
+        }
+        lineIdleTime = start + bytes.length * charTime;
+    }
+
     @Override
     public void open() throws SerialPortException {
+        rx.clear();
         isOpen = true;
     }
 
     @Override
     public int read() throws IOException {
-        if (!isOpen)
-            throw new IOException("Loopback is not open");
-
-        try {
-
-            Byte b = myReadFifo.poll((long) getReadTimeout(), TimeUnit.MILLISECONDS);
-            if (b == null)
-                throw new IOException("Timeout");
-
-            return (int) b & 0xff;
-
-        } catch (InterruptedException ex) {
-            throw new IOException(ex);
-        }
+        await();
+        return rx.read();
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        await();
+        return rx.read(b, off, len);
+    }
 
-        int count = 0;
-        for (int i = 0; i < len; i++) {
-            try {
-                Byte y = myReadFifo.poll((long) getReadTimeout(), TimeUnit.MILLISECONDS);
-                if (y == null)
-                    break;
-                b[i + off] = y;
-                count++;
-
-            } catch (InterruptedException ex) {
-                throw new IOException(ex);
-            }
-        }
-        if (count == 0)
+    private void await() throws IOException {
+        if (!isOpen)
+            throw new IOException("Loopback is not open");
+        if (!rx.await(getReadTimeout()))
             throw new IOException("Timeout");
-
-        return count;
     }
 
     @Override
@@ -120,4 +165,9 @@ public class SerialPortLoopback extends SerialPort {
     public boolean isOpened() {
         return isOpen;
     }
+
+    static private class Channel {
+        final private ByteRingBuffer toSlave = new ByteRingBuffer(BUFFER_CAPACITY);
+        final private ByteRingBuffer toMaster = new ByteRingBuffer(BUFFER_CAPACITY);
+    }
 }
@@ -0,0 +1,424 @@
+package com.intelligt.modbus.jlibmodbus.slave;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusProtocolException;
+import com.intelligt.modbus.jlibmodbus.master.ModbusBusArbiter;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.utils.ModbusExceptionCode;
+import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * ModbusTCP to serial line gateway. The requests received from the TCP clients are routed by the unit id
+ * to the serial buses, each bus is served by its own ModbusBusArbiter, so the requests of all the clients
+ * are queued per bus and the bus is never used by two transactions at once.
+ * <p>
+ * The identical read requests (function codes 1-4) which are in progress at the same time are merged into
+ * a single bus transaction, all the clients get its response. If the cache TTL is set, the response to a read
+ * is also reused for the identical reads received within the TTL. A write request to a unit drops its cached responses.
+ * <p>
+ * The requests to the units which are not routed, or which cannot be queued, are answered by
+ * GATEWAY_PATH_UNAVAILABLE (0x0A), the requests which are not answered in time (including the time in the queue)
+ * are answered by GATEWAY_TARGET_DEVICE_FAILED_TO_RESPOND (0x0B).
+ */
+public class ModbusGatewayTCP extends ModbusSlaveTCP {
+
+    final static public int DEFAULT_MAX_QUEUE_SIZE = 64;
+    final static private int UNITS = 256;
+
+    final private ConcurrentMap<Key, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<Key, CompletableFuture<byte[]>>();
+    final private ConcurrentMap<Key, CachedResponse> cache = new ConcurrentHashMap<Key, CachedResponse>();
+    /*
+     * the write counter of each unit, the reads started before a write are neither cached nor merged with the later ones
+     */
+    final private AtomicIntegerArray epochs = new AtomicIntegerArray(UNITS);
+    private volatile ModbusBusArbiter[] routes = new ModbusBusArbiter[UNITS];
+    private volatile ModbusBusArbiter defaultBus = null;
+    private volatile List<ModbusBusArbiter> buses = Collections.emptyList();
+    private volatile long cacheTtl = 0;
+    private volatile int requestTimeout = Modbus.MAX_RESPONSE_TIMEOUT;
+    private volatile int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+
+    public ModbusGatewayTCP(TcpParameters tcp) {
+        super(tcp);
+    }
+
+    /**
+     * @param tcp       tcp parameters
+     * @param poolsSize the maximum number of the clients served at the same time
+     */
+    public ModbusGatewayTCP(TcpParameters tcp, int poolsSize) {
+        super(tcp, poolsSize);
+    }
+
+    /**
+     * routes the units to the bus.
+     *
+     * @param bus     the bus arbiter, it is started and stopped by the gateway
+     * @param unitIds the unit ids of the slaves on the bus
+     */
+    synchronized public void addBus(ModbusBusArbiter bus, int... unitIds) {
+        ModbusBusArbiter[] table = routes.clone();
+        for (int unitId : unitIds) {
+            if (unitId <= Modbus.BROADCAST_ID || unitId >= UNITS)
+                throw new IllegalArgumentException("Illegal unit id: " + unitId);
+            table[unitId] = bus;
+        }
+        routes = table;
+        update();
+    }
+
+    /**
+     * @param bus the bus the units which are not routed are sent to, null - they are not served (default)
+     */
+    synchronized public void setDefaultBus(ModbusBusArbiter bus) {
+        defaultBus = bus;
+        update();
+    }
+
+    /**
+     * @return the bus serving the unit or null
+     */
+    public ModbusBusArbiter getBus(int unitId) {
+        if (unitId <= Modbus.BROADCAST_ID || unitId >= UNITS)
+            return null;
+        ModbusBusArbiter bus = routes[unitId];
+        return bus != null ? bus : defaultBus;
+    }
+
+    private void update() {
+        Map<ModbusBusArbiter, Boolean> distinct = new IdentityHashMap<ModbusBusArbiter, Boolean>();
+        List<ModbusBusArbiter> list = new ArrayList<ModbusBusArbiter>();
+        for (ModbusBusArbiter bus : routes) {
+            if (bus != null && distinct.put(bus, Boolean.TRUE) == null)
+                list.add(bus);
+        }
+        if (defaultBus != null && distinct.put(defaultBus, Boolean.TRUE) == null)
+            list.add(defaultBus);
+        buses = Collections.unmodifiableList(list);
+    }
+
+    public int getCacheTtl() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(cacheTtl);
+    }
+
+    /**
+     * @param ttl the time the responses to the read requests are reused for, in milliseconds, 0 - no cache (default)
+     */
+    public void setCacheTtl(int ttl) {
+        this.cacheTtl = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl));
+        if (ttl <= 0)
+            cache.clear();
+    }
+
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * @param timeout the time to wait for the response including the time in the queue, in milliseconds
+     */
+    public void setRequestTimeout(int timeout) {
+        this.requestTimeout = timeout;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * @param maxQueueSize the number of the requests waiting for a bus, the next ones are answered by 0x0A
+     */
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    @Override
+    synchronized public void listenImpl() throws ModbusIOException {
+        for (ModbusBusArbiter bus : buses) {
+            bus.start();
+        }
+        super.listenImpl();
+    }
+
+    @Override
+    synchronized public void shutdownImpl() {
+        super.shutdownImpl();
+        for (ModbusBusArbiter bus : buses) {
+            try {
+                bus.stop();
+            } catch (ModbusIOException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+        }
+        cache.clear();
+    }
+
+    @Override
+    ModbusResponse processTcpRequest(ModbusRequest request) throws ModbusNumberException {
+        int unitId = request.getServerAddress();
+        int transactionId = request.getTransactionId();
+        if (unitId == Modbus.BROADCAST_ID) {
+            if (isBroadcastEnabled()) {
+                for (ModbusBusArbiter bus : buses) {
+                    bus.submit(request);
+                }
+            }
+            return null;
+        }
+        ModbusBusArbiter bus = getBus(unitId);
+        if (bus == null || !bus.isRunning())
+            return reply(request, transactionId, ModbusExceptionCode.GATEWAY_PATH_UNAVAILABLE);
+        /*
+         * the serial masters don't use the transaction id, it's restored in the response
+         */
+        request.setTransactionId(0);
+        if (!isRead(request.getFunction())) {
+            epochs.incrementAndGet(unitId);
+            try {
+                return reply(request, transactionId, forward(bus, request));
+            } finally {
+                /*
+                 * the reads queued ahead of the write may complete after it
+                 */
+                epochs.incrementAndGet(unitId);
+                invalidate(unitId);
+            }
+        }
+        int epoch = epochs.get(unitId);
+        Key key = new Key(request, epoch);
+        long ttl = cacheTtl;
+        if (ttl > 0) {
+            CachedResponse cached = cache.get(key);
+            if (cached != null) {
+                if (System.nanoTime() - cached.time < ttl)
+                    return reply(request, transactionId, cached.frame);
+                cache.remove(key, cached);
+            }
+        }
+        CompletableFuture<byte[]> future = new CompletableFuture<byte[]>();
+        CompletableFuture<byte[]> leader = inFlight.putIfAbsent(key, future);
+        if (leader != null) {
+            try {
+                return reply(request, transactionId, leader.get(requestTimeout, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            } catch (TimeoutException e) {
+                // the bus is too busy
+            }
+            return reply(request, transactionId, ModbusExceptionCode.GATEWAY_TARGET_DEVICE_FAILED_TO_RESPOND);
+        }
+        byte[] frame = null;
+        try {
+            frame = forward(bus, request);
+            if (ttl > 0 && !isException(frame) && epochs.get(unitId) == epoch) {
+                cache.put(key, new CachedResponse(frame, System.nanoTime()));
+                if (epochs.get(unitId) != epoch)
+                    cache.remove(key);
+            }
+        } finally {
+            inFlight.remove(key, future);
+            if (frame != null)
+                future.complete(frame);
+            else
+                future.completeExceptionally(new ModbusIOException("The request has failed."));
+        }
+        return reply(request, transactionId, frame);
+    }
+
+    /**
+     * sends the request to the bus and waits for the response.
+     *
+     * @return the response frame: the unit id and the PDU
+     */
+    private byte[] forward(ModbusBusArbiter bus, ModbusRequest request) throws ModbusNumberException {
+        ModbusExceptionCode code;
+        if (bus.getQueueSize() >= maxQueueSize) {
+            code = ModbusExceptionCode.GATEWAY_PATH_UNAVAILABLE;
+        } else {
+            CompletableFuture<ModbusResponse> future = bus.submit(request);
+            try {
+                return encode(request, future.get(requestTimeout, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                code = ModbusExceptionCode.GATEWAY_TARGET_DEVICE_FAILED_TO_RESPOND;
+            } catch (TimeoutException e) {
+                code = ModbusExceptionCode.GATEWAY_TARGET_DEVICE_FAILED_TO_RESPOND;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                code = cause instanceof ModbusProtocolException ?
+                        ((ModbusProtocolException) cause).getException() :
+                        ModbusExceptionCode.GATEWAY_TARGET_DEVICE_FAILED_TO_RESPOND;
+            } finally {
+                /*
+                 * the request waiting in the queue is dropped, so the bus isn't wasted
+                 */
+                future.cancel(false);
+            }
+        }
+        return exceptionFrame(request, code);
+    }
+
+    /**
+     * A response which cannot be encoded is answered by SLAVE_DEVICE_FAILURE. The device may have applied
+     * a write already, so the client must get a reply anyway.
+     *
+     * @return the response frame: the unit id and the PDU
+     */
+    static private byte[] encode(ModbusRequest request, ModbusResponse response) {
+        ByteBuffer buffer = ByteBuffer.allocate(Modbus.MAX_TCP_ADU_LENGTH);
+        try {
+            response.encode(buffer);
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        } catch (Exception e) {
+            Modbus.log().warning("Cannot encode the response, function code " + response.getFunction() + ": " + e.getLocalizedMessage());
+            return exceptionFrame(request, ModbusExceptionCode.SLAVE_DEVICE_FAILURE);
+        }
+    }
+
+    static private byte[] exceptionFrame(ModbusRequest request, ModbusExceptionCode code) {
+        return new byte[]{(byte) request.getServerAddress(),
+                (byte) ModbusFunctionCode.getExceptionValue(request.getFunction()),
+                (byte) code.getValue()};
+    }
+
+    static private boolean isException(byte[] frame) {
+        return (frame[1] & 0x80) != 0;
+    }
+
+    /**
+     * fills the client's own response by the frame.
+     */
+    static private ModbusResponse reply(ModbusRequest request, int transactionId, byte[] frame) {
+        ModbusResponse response = request.getResponse();
+        if (isException(frame)) {
+            response.setModbusExceptionCode(frame[2] & 0xff);
+        } else {
+            try {
+                response.decode(ByteBuffer.wrap(frame, 2, frame.length - 2));
+            } catch (Exception e) {
+                Modbus.log().warning("Cannot decode the response, function code " + response.getFunction() + ": " + e.getLocalizedMessage());
+                response.setModbusExceptionCode(ModbusExceptionCode.SLAVE_DEVICE_FAILURE.getValue());
+            }
+        }
+        response.setTransactionId(transactionId);
+        return response;
+    }
+
+    static private ModbusResponse reply(ModbusRequest request, int transactionId, ModbusExceptionCode code) {
+        ModbusResponse response = request.getResponse();
+        response.setModbusExceptionCode(code.getValue());
+        response.setTransactionId(transactionId);
+        return response;
+    }
+
+    static private boolean isRead(int function) {
+        switch (ModbusFunctionCode.get(function)) {
+            case READ_COILS:
+            case READ_DISCRETE_INPUTS:
+            case READ_HOLDING_REGISTERS:
+            case READ_INPUT_REGISTERS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void invalidate(int unitId) {
+        if (cache.isEmpty())
+            return;
+        Iterator<Key> it = cache.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getUnitId() == unitId)
+                it.remove();
+        }
+    }
+
+    /**
+     * the request frame and the write counter of the unit, the identical requests have the same key.
+     */
+    static private class Key {
+        final private byte[] frame;
+        final private int epoch;
+        final private int hash;
+
+        Key(ModbusRequest request, int epoch) throws ModbusNumberException {
+            this.epoch = epoch;
+            ByteBuffer buffer = ByteBuffer.allocate(Modbus.MAX_TCP_ADU_LENGTH);
+            try {
+                request.encode(buffer);
+            } catch (ModbusIOException e) {
+                throw new ModbusNumberException("Malformed request, function code", request.getFunction());
+            }
+            frame = Arrays.copyOf(buffer.array(), buffer.position());
+            hash = 31 * Arrays.hashCode(frame) + epoch;
+        }
+
+        int getUnitId() {
+            return frame[0] & 0xff;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && epoch == ((Key) o).epoch && Arrays.equals(frame, ((Key) o).frame);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static private class CachedResponse {
+        final private byte[] frame;
+        final private long time;
+
+        CachedResponse(byte[] frame, long time) {
+            this.frame = frame;
+            this.time = time;
+        }
+    }
+}
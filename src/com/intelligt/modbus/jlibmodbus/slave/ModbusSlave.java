@@ -4,6 +4,9 @@ import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.data.DataHolder;
 import com.intelligt.modbus.jlibmodbus.data.DataHolderBuilder;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
 import com.intelligt.modbus.jlibmodbus.net.ModbusConnection;
 import com.intelligt.modbus.jlibmodbus.utils.FrameEvent;
 import com.intelligt.modbus.jlibmodbus.utils.FrameEventListener;
@@ -50,6 +53,7 @@ abstract public class ModbusSlave implements FrameEventListenerList {
     };
     private int serverAddress = Modbus.BROADCAST_ID;
     private DataHolder dataHolder = new DataHolder();
+    private volatile UnitRoutingTable routingTable = null;
     /**
      * a timeout for single connection handler. if master makes a new connection for every data request,
      * we should close it's last connection as soon as possible. Else, if master is working through a single connection,
@@ -112,6 +116,48 @@ abstract public class ModbusSlave implements FrameEventListenerList {
         this.dataHolder = dataHolder;
     }
 
+    public UnitRoutingTable getRoutingTable() {
+        return routingTable;
+    }
+
+    /**
+     * sets the routing table, so the slave serves all the units of the table instead of the single server address.
+     * The data holder of the slave is still used for the communication status of the serial line.
+     *
+     * @param routingTable the routing table, null - the slave serves its server address only
+     */
+    public void setRoutingTable(UnitRoutingTable routingTable) {
+        this.routingTable = routingTable;
+    }
+
+    /**
+     * @param unitId the server address of the request
+     * @return the data holder serving the unit or null if the request isn't addressed to this slave.
+     */
+    DataHolder getDataHolder(int unitId) {
+        UnitRoutingTable table = getRoutingTable();
+        if (table != null)
+            return table.get(unitId);
+        return unitId == getServerAddress() ? getDataHolder() : null;
+    }
+
+    /**
+     * processes a broadcast request by all the units.
+     *
+     * @param request the broadcast request
+     * @throws ModbusNumberException if the request cannot be processed
+     */
+    void processBroadcast(ModbusRequest request) throws ModbusNumberException {
+        UnitRoutingTable table = getRoutingTable();
+        if (table == null) {
+            request.process(getDataHolder());
+        } else {
+            for (DataHolder dataHolder : table.getDataHolders()) {
+                request.process(dataHolder);
+            }
+        }
+    }
+
     public int getServerAddress() {
         return serverAddress;
     }
@@ -129,6 +175,29 @@ abstract public class ModbusSlave implements FrameEventListenerList {
         this.broadcastEnabled.set(broadcastEnabled);
     }
 
+    /**
+     * processes a request received by a ModbusTCP slave.
+     *
+     * @param request the request
+     * @return the response, or null if the request should not be answered.
+     * @throws ModbusNumberException if the request cannot be processed
+     */
+    ModbusResponse processTcpRequest(ModbusRequest request) throws ModbusNumberException {
+        int unitId = request.getServerAddress();
+        DataHolder dataHolder = /*default tcp session*/unitId == Modbus.TCP_DEFAULT_ID && getRoutingTable() == null ?
+                getDataHolder() : /*gateway*/getDataHolder(unitId);
+        if (dataHolder != null) {
+            ModbusResponse response = request.process(dataHolder);
+            response.setTransactionId(request.getTransactionId());
+            if (unitId != Modbus.BROADCAST_ID)
+                return response;
+        } else if (/*broadcast*/ unitId == Modbus.BROADCAST_ID && isBroadcastEnabled()) {
+            //we do not answer broadcast requests
+            processBroadcast(request);
+        }
+        return null;
+    }
+
     protected List<ModbusConnection> getConnectionList() {
         return connectionList;
     }
@@ -3,6 +3,7 @@ package com.intelligt.modbus.jlibmodbus.slave;
 import com.intelligt.modbus.jlibmodbus.serial.SerialParameters;
 import com.intelligt.modbus.jlibmodbus.serial.SerialPortException;
 import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsParameters;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -75,7 +76,7 @@ final public class ModbusSlaveFactory {
      * Creates a ModbusSlaveTCP instance.
      *
      * @param tcpParameters tcp parameters.
-     * @param poolSize      the number of threads in the pool
+     * @param poolSize      the number of threads in the pool, it is ignored if the virtual threads are enabled
      * @return the newly created tcp-slave
      * @see ModbusSlaveTCP
      * @see ModbusSlave
@@ -84,4 +85,57 @@ final public class ModbusSlaveFactory {
     static public ModbusSlave createModbusSlaveTCP(TcpParameters tcpParameters, int poolSize) {
         return new ModbusSlaveTCP(tcpParameters, poolSize);
     }
+
+    /**
+     * Creates a ModbusSlaveTCPNIO instance.
+     *
+     * @param tcpParameters tcp parameters.
+     * @return the newly created non-blocking tcp-slave
+     * @see ModbusSlaveTCPNIO
+     * @see ModbusSlave
+     * @see TcpParameters
+     */
+    static public ModbusSlave createModbusSlaveTCPNIO(TcpParameters tcpParameters) {
+        return new ModbusSlaveTCPNIO(tcpParameters);
+    }
+
+    /**
+     * Creates a ModbusSlaveTCPNIO instance.
+     *
+     * @param tcpParameters tcp parameters.
+     * @param workerCount   the number of selector threads
+     * @return the newly created non-blocking tcp-slave
+     * @see ModbusSlaveTCPNIO
+     * @see ModbusSlave
+     * @see TcpParameters
+     */
+    static public ModbusSlave createModbusSlaveTCPNIO(TcpParameters tcpParameters, int workerCount) {
+        return new ModbusSlaveTCPNIO(tcpParameters, workerCount);
+    }
+
+    /**
+     * Creates a ModbusSlaveUDP instance.
+     *
+     * @param tcpParameters the address and the port to receive the datagrams on.
+     * @return the newly created udp-slave
+     * @see ModbusSlaveUDP
+     * @see ModbusSlave
+     * @see TcpParameters
+     */
+    static public ModbusSlave createModbusSlaveUDP(TcpParameters tcpParameters) {
+        return new ModbusSlaveUDP(tcpParameters);
+    }
+
+    /**
+     * Creates a ModbusSlaveTLS instance.
+     *
+     * @param tlsParameters tls parameters.
+     * @return the newly created Modbus/TCP Security slave
+     * @see ModbusSlaveTLS
+     * @see ModbusSlave
+     * @see TlsParameters
+     */
+    static public ModbusSlave createModbusSlaveTLS(TlsParameters tlsParameters) {
+        return new ModbusSlaveTLS(tlsParameters);
+    }
 }
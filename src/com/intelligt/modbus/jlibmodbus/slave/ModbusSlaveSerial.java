@@ -46,7 +46,11 @@ class ModbusSlaveSerial extends ModbusSlave {
         if (isListening()) {
             shutdown();
         }
-        mainThread = new Thread(requestHandler);
+        /*
+         * a platform thread in any mode: it blocks in the native reads of the port and keeps the JVM alive
+         * while the slave is listening
+         */
+        mainThread = new Thread(requestHandler, getClass().getSimpleName());
         mainThread.start();
     }
 
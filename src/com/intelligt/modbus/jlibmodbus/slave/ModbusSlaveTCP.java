@@ -5,13 +5,14 @@ import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
 import com.intelligt.modbus.jlibmodbus.net.ModbusConnection;
 import com.intelligt.modbus.jlibmodbus.net.ModbusSlaveConnectionTCP;
 import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.utils.VirtualThreads;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /*
@@ -49,14 +50,17 @@ public class ModbusSlaveTCP extends ModbusSlave implements Runnable {
 
     public ModbusSlaveTCP(TcpParameters tcp, int poolsSize) {
         this.tcp = new TcpParameters(tcp);
-        threadPool = Executors.newFixedThreadPool(poolsSize);
+        threadPool = VirtualThreads.newExecutor(poolsSize);
     }
 
     @Override
     synchronized public void listenImpl() throws ModbusIOException {
         try {
-            server = new ServerSocket(tcp.getPort(), 0, tcp.getHost());
-            mainThread = new Thread(this);
+            server = createServerSocket();
+            /*
+             * the accepting thread is a platform one in any mode: it keeps the JVM alive while the slave is listening
+             */
+            mainThread = new Thread(this, getClass().getSimpleName());
             setListening(true);
             mainThread.start();
         } catch (IOException e) {
@@ -64,6 +68,21 @@ public class ModbusSlaveTCP extends ModbusSlave implements Runnable {
         }
     }
 
+    /**
+     * @return the bound server socket
+     */
+    ServerSocket createServerSocket() throws IOException {
+        return new ServerSocket(tcp.getPort(), 0, tcp.getHost());
+    }
+
+    /**
+     * @param s the accepted socket
+     * @return the handler of the connection
+     */
+    RequestHandler createRequestHandler(Socket s) throws ModbusIOException {
+        return new RequestHandlerTCP(this, s);
+    }
+
     @Override
     synchronized public void shutdownImpl() {
         /*
@@ -120,7 +139,7 @@ public class ModbusSlaveTCP extends ModbusSlave implements Runnable {
                 s = server.accept();
                 s.setTcpNoDelay(true);
                 try {
-                    threadPool.execute(new RequestHandlerTCP(this, s));
+                    threadPool.execute(createRequestHandler(s));
                 } catch (ModbusIOException ioe) {
                     Modbus.log().warning(ioe.getLocalizedMessage());
                     s.close();
@@ -131,6 +150,8 @@ public class ModbusSlaveTCP extends ModbusSlave implements Runnable {
                 Modbus.log().warning(e.getLocalizedMessage());
                 e.printStackTrace();
             }
+        } catch (ClosedChannelException e) {
+            // the server socket opened by a channel is closed by shutdown
         } catch (IOException e) {
             Modbus.log().warning(e.getLocalizedMessage());
             e.printStackTrace();
@@ -0,0 +1,461 @@
+package com.intelligt.modbus.jlibmodbus.slave;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusMessageCodec;
+import com.intelligt.modbus.jlibmodbus.msg.ModbusRequestFactory;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.utils.DataUtils;
+import com.intelligt.modbus.jlibmodbus.utils.FrameEvent;
+import com.intelligt.modbus.jlibmodbus.utils.FrameEventListener;
+import com.intelligt.modbus.jlibmodbus.utils.FrameEventListenerListImpl;
+import com.intelligt.modbus.jlibmodbus.utils.TcpClientInfo;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * non-blocking ModbusTCP slave. One thread accepts the connections, a few selector threads
+ * read the requests from all of them, so the number of threads does not depend on the number of clients.
+ * The requests are decoded from the channel buffers, processed against the DataHolder
+ * and the responses are written back by the same selector thread.
+ * <p>
+ * As the classic ModbusSlaveTCP does, it closes the connections which have been idle longer than the read timeout,
+ * use ModbusSlave#setReadTimeout(0) to keep them open forever.
+ */
+public class ModbusSlaveTCPNIO extends ModbusSlave {
+
+    final static private int RECEIVE_BUFFER_SIZE = 4 * Modbus.MAX_TCP_ADU_LENGTH;
+    /*
+     * stop reading from a client which doesn't read its responses
+     */
+    final static private int SEND_BUFFER_HIGH_WATER = 16 * Modbus.MAX_TCP_ADU_LENGTH;
+    final static private long SELECT_TICK = 100;
+
+    final private TcpParameters tcp;
+    final private int workerCount;
+    final private FrameEventListenerListImpl listenerList = new FrameEventListenerListImpl();
+    private ServerSocketChannel server = null;
+    private Selector acceptSelector = null;
+    private Worker[] workers = null;
+    private Thread mainThread = null;
+    private int nextWorker = 0;
+
+    public ModbusSlaveTCPNIO(TcpParameters tcp) {
+        this(tcp, Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param tcp         tcp parameters
+     * @param workerCount the number of selector threads serving the connections
+     */
+    public ModbusSlaveTCPNIO(TcpParameters tcp, int workerCount) {
+        if (workerCount < 1)
+            throw new IllegalArgumentException("Illegal worker count: " + workerCount);
+        this.tcp = new TcpParameters(tcp);
+        this.workerCount = workerCount;
+    }
+
+    @Override
+    synchronized public void listenImpl() throws ModbusIOException {
+        try {
+            server = ServerSocketChannel.open();
+            server.configureBlocking(false);
+            server.socket().setReuseAddress(true);
+            server.socket().bind(new InetSocketAddress(tcp.getHost(), tcp.getPort()));
+            acceptSelector = Selector.open();
+            server.register(acceptSelector, SelectionKey.OP_ACCEPT);
+            workers = new Worker[workerCount];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker(Selector.open());
+            }
+        } catch (IOException e) {
+            closeAll();
+            throw new ModbusIOException(e);
+        }
+        setListening(true);
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].thread = new Thread(workers[i], getClass().getSimpleName() + "-worker-" + i);
+            workers[i].thread.start();
+        }
+        mainThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop();
+            }
+        }, getClass().getSimpleName() + "-acceptor");
+        mainThread.start();
+    }
+
+    @Override
+    synchronized public void shutdownImpl() {
+        if (acceptSelector != null)
+            acceptSelector.wakeup();
+        if (workers != null) {
+            for (Worker w : workers) {
+                if (w != null)
+                    w.selector.wakeup();
+            }
+        }
+        join(mainThread);
+        if (workers != null) {
+            for (Worker w : workers) {
+                if (w != null)
+                    join(w.thread);
+            }
+        }
+        mainThread = null;
+        closeAll();
+    }
+
+    private void join(Thread t) {
+        if (t == null || t == Thread.currentThread())
+            return;
+        try {
+            t.join(1000);
+            if (t.isAlive())
+                t.interrupt();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeAll() {
+        try {
+            if (server != null)
+                server.close();
+        } catch (IOException e) {
+            Modbus.log().warning(e.getLocalizedMessage());
+        } finally {
+            server = null;
+        }
+        try {
+            if (acceptSelector != null)
+                acceptSelector.close();
+        } catch (IOException e) {
+            Modbus.log().warning(e.getLocalizedMessage());
+        } finally {
+            acceptSelector = null;
+        }
+        if (workers != null) {
+            for (Worker w : workers) {
+                if (w != null)
+                    w.closeSelector();
+            }
+            workers = null;
+        }
+    }
+
+    private void acceptLoop() {
+        try {
+            while (isListening()) {
+                acceptSelector.select(SELECT_TICK);
+                Iterator<SelectionKey> it = acceptSelector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    it.next();
+                    it.remove();
+                    SocketChannel channel;
+                    while ((channel = server.accept()) != null) {
+                        try {
+                            channel.configureBlocking(false);
+                            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                            Worker w = workers[nextWorker];
+                            nextWorker = (nextWorker + 1) % workers.length;
+                            w.register(channel);
+                        } catch (IOException e) {
+                            Modbus.log().warning(e.getLocalizedMessage());
+                            channel.close();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (isListening()) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+        } finally {
+            if (isListening()) {
+                try {
+                    shutdown();
+                } catch (ModbusIOException e) {
+                    Modbus.log().warning(e.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    /* facade */
+    @Override
+    public void addListener(FrameEventListener listener) {
+        listenerList.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(FrameEventListener listener) {
+        listenerList.removeListener(listener);
+    }
+
+    @Override
+    public void removeListeners() {
+        listenerList.removeListeners();
+    }
+
+    @Override
+    public void fireFrameReceivedEvent(FrameEvent event) {
+        listenerList.fireFrameReceivedEvent(event);
+    }
+
+    @Override
+    public void fireFrameSentEvent(FrameEvent event) {
+        listenerList.fireFrameSentEvent(event);
+    }
+
+    @Override
+    public int countListeners() {
+        return listenerList.countListeners();
+    }
+
+    static private byte[] copyOf(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(i);
+        }
+        return bytes;
+    }
+
+    private class Client {
+        final private SocketChannel channel;
+        final private TcpClientInfo clientInfo;
+        final private ByteBuffer in = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE);
+        private SelectionKey key = null;
+        private long lastActivity = System.currentTimeMillis();
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+            this.clientInfo = new TcpClientInfo(new TcpParameters(channel.socket().getInetAddress(), channel.socket().getPort(), true), true);
+        }
+
+        void read() throws IOException {
+            int count = channel.read(in);
+            if (count < 0)
+                throw new IOException("Connection closed by the remote side.");
+            lastActivity = System.currentTimeMillis();
+            in.flip();
+            int length;
+            while ((length = frameLength()) > 0 && in.remaining() >= length) {
+                int start = in.position();
+                int end = start + length;
+                ByteBuffer frame = in.duplicate();
+                frame.limit(end);
+                in.position(end);
+                if (Modbus.isLoggingEnabled()) {
+                    byte[] bytes = copyOf(frame, start, end);
+                    Modbus.log().info("Frame recv: " + DataUtils.toAscii(bytes));
+                    listenerList.fireFrameReceivedEvent(new FrameEvent(bytes));
+                }
+                process(frame);
+            }
+            in.compact();
+            write();
+        }
+
+        private int frameLength() throws IOException {
+            try {
+                return ModbusMessageCodec.getTcpFrameLength(in);
+            } catch (ModbusNumberException e) {
+                throw new IOException(e.getLocalizedMessage());
+            }
+        }
+
+        private void process(ByteBuffer frame) {
+            try {
+                ModbusRequest request = (ModbusRequest) ModbusMessageCodec.decodeTcp(frame, ModbusRequestFactory.getInstance());
+                ModbusResponse response = processTcpRequest(request);
+                if (response != null)
+                    encode(response);
+            } catch (ModbusNumberException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            } catch (ModbusIOException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+        }
+
+        private void encode(ModbusResponse response) throws ModbusIOException {
+            /*
+             * the room is reserved for the largest frame, the length field is set by the bytes encoded
+             */
+            if (out.remaining() < Modbus.MAX_TCP_ADU_LENGTH) {
+                ByteBuffer b = ByteBuffer.allocate(out.capacity() + RECEIVE_BUFFER_SIZE);
+                out.flip();
+                b.put(out);
+                out = b;
+            }
+            int start = out.position();
+            ModbusMessageCodec.encodeTcp(response, out);
+            if (Modbus.isLoggingEnabled()) {
+                byte[] bytes = copyOf(out, start, out.position());
+                Modbus.log().info("Frame sent: " + DataUtils.toAscii(bytes));
+                listenerList.fireFrameSentEvent(new FrameEvent(bytes));
+            }
+        }
+
+        void write() throws IOException {
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            }
+            int ops = out.position() > 0 ? SelectionKey.OP_WRITE : 0;
+            if (out.position() < SEND_BUFFER_HIGH_WATER)
+                ops |= SelectionKey.OP_READ;
+            if (key.interestOps() != ops)
+                key.interestOps(ops);
+        }
+
+        boolean isExpired(long now) {
+            int timeout = getReadTimeout();
+            return timeout > 0 && now - lastActivity > timeout;
+        }
+
+        void close() {
+            if (key != null)
+                key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+            clientInfo.setConnected(false);
+            notifyObservers(clientInfo);
+        }
+    }
+
+    private class Worker implements Runnable {
+        final private Selector selector;
+        final private Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<SocketChannel>();
+        final private Set<Client> clients = new HashSet<Client>();
+        private Thread thread = null;
+
+        Worker(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long lastCheck = System.currentTimeMillis();
+            try {
+                while (isListening()) {
+                    selector.select(SELECT_TICK);
+                    SocketChannel channel;
+                    while ((channel = accepted.poll()) != null) {
+                        Client client = new Client(channel);
+                        try {
+                            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+                            clients.add(client);
+                            notifyObservers(client.clientInfo);
+                        } catch (IOException e) {
+                            client.close();
+                        }
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey k = it.next();
+                        it.remove();
+                        Client client = (Client) k.attachment();
+                        try {
+                            if (k.isValid() && k.isReadable())
+                                client.read();
+                            if (k.isValid() && k.isWritable())
+                                client.write();
+                        } catch (IOException e) {
+                            closeClient(client);
+                        } catch (CancelledKeyException e) {
+                            closeClient(client);
+                        }
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastCheck >= SELECT_TICK) {
+                        lastCheck = now;
+                        for (Client client : new ArrayList<Client>(clients)) {
+                            if (client.isExpired(now))
+                                closeClient(client);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (isListening()) {
+                    Modbus.log().warning(e.getLocalizedMessage());
+                }
+            } finally {
+                for (Client client : new ArrayList<Client>(clients)) {
+                    closeClient(client);
+                }
+                SocketChannel channel;
+                while ((channel = accepted.poll()) != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        Modbus.log().warning(e.getLocalizedMessage());
+                    }
+                }
+            }
+        }
+
+        private void closeClient(Client client) {
+            clients.remove(client);
+            client.close();
+        }
+
+        void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.intelligt.modbus.jlibmodbus.slave;
+
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.net.ModbusConnectionFactory;
+import com.intelligt.modbus.jlibmodbus.tcp.TlsParameters;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * Modbus/TCP Security slave (server). The connections are served like the ModbusTCP ones,
+ * the handshake is performed by the handler thread on the first read. The sessions are cached by the SSLContext,
+ * so the reconnecting clients get the abbreviated handshake.
+ */
+public class ModbusSlaveTLS extends ModbusSlaveTCP {
+
+    final private TlsParameters tls;
+
+    public ModbusSlaveTLS(TlsParameters tls) {
+        super(tls);
+        this.tls = new TlsParameters(tls);
+    }
+
+    public ModbusSlaveTLS(TlsParameters tls, int poolsSize) {
+        super(tls, poolsSize);
+        this.tls = new TlsParameters(tls);
+    }
+
+    /**
+     * the server socket is opened by a channel, so the accepted sockets have the channels the engine works with.
+     */
+    @Override
+    ServerSocket createServerSocket() throws IOException {
+        if (tls.getSSLContext() == null)
+            throw new IOException("SSL context is null");
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.socket().bind(new InetSocketAddress(tls.getHost(), tls.getPort()));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel.socket();
+    }
+
+    @Override
+    RequestHandler createRequestHandler(Socket s) throws ModbusIOException {
+        return new RequestHandlerTCP(this, s, ModbusConnectionFactory.getTlsSlave(s, tls));
+    }
+}
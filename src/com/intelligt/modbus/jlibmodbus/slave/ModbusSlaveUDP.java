@@ -0,0 +1,148 @@
+package com.intelligt.modbus.jlibmodbus.slave;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransport;
+import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransportFactory;
+import com.intelligt.modbus.jlibmodbus.tcp.TcpParameters;
+import com.intelligt.modbus.jlibmodbus.utils.FrameEvent;
+import com.intelligt.modbus.jlibmodbus.utils.FrameEventListener;
+import com.intelligt.modbus.jlibmodbus.utils.FrameEventListenerListImpl;
+
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * ModbusUDP slave. Each request datagram is answered to its sender, there is no state per client,
+ * so any number of masters can poll the slave. A malformed datagram is dropped.
+ */
+public class ModbusSlaveUDP extends ModbusSlave {
+
+    final private TcpParameters tcp;
+    final private FrameEventListenerListImpl listenerList = new FrameEventListenerListImpl();
+    private DatagramSocket socket = null;
+    private Thread mainThread = null;
+
+    public ModbusSlaveUDP(TcpParameters tcp) {
+        this.tcp = new TcpParameters(tcp);
+    }
+
+    @Override
+    synchronized public void listenImpl() throws ModbusIOException {
+        final ModbusTransport transport;
+        final DatagramSocket socket;
+        try {
+            socket = this.socket = new DatagramSocket(null);
+            socket.setReuseAddress(true);
+            socket.bind(new InetSocketAddress(tcp.getHost(), tcp.getPort()));
+            transport = ModbusTransportFactory.createUDP(socket, null);
+        } catch (SocketException e) {
+            closeSocket();
+            throw new ModbusIOException(e);
+        }
+        transport.getInputStream().setListenerList(listenerList);
+        transport.getOutputStream().setListenerList(listenerList);
+        setListening(true);
+        mainThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve(socket, transport);
+            }
+        }, getClass().getSimpleName());
+        mainThread.start();
+    }
+
+    private void serve(DatagramSocket socket, ModbusTransport transport) {
+        while (isListening()) {
+            try {
+                ModbusRequest request = (ModbusRequest) transport.readRequest();
+                ModbusResponse response = processTcpRequest(request);
+                if (response != null)
+                    transport.send(response);
+            } catch (ModbusNumberException e) {
+                Modbus.log().warning(e.getLocalizedMessage());
+            } catch (ModbusIOException e) {
+                if (socket.isClosed())
+                    break;
+                Modbus.log().warning(e.getLocalizedMessage());
+            }
+        }
+    }
+
+    @Override
+    synchronized public void shutdownImpl() {
+        closeSocket();
+        if (mainThread != null && mainThread != Thread.currentThread()) {
+            try {
+                mainThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        mainThread = null;
+    }
+
+    private void closeSocket() {
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    /* facade */
+    @Override
+    public void addListener(FrameEventListener listener) {
+        listenerList.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(FrameEventListener listener) {
+        listenerList.removeListener(listener);
+    }
+
+    @Override
+    public void removeListeners() {
+        listenerList.removeListeners();
+    }
+
+    @Override
+    public void fireFrameReceivedEvent(FrameEvent event) {
+        listenerList.fireFrameReceivedEvent(event);
+    }
+
+    @Override
+    public void fireFrameSentEvent(FrameEvent event) {
+        listenerList.fireFrameSentEvent(event);
+    }
+
+    @Override
+    public int countListeners() {
+        return listenerList.countListeners();
+    }
+}
@@ -6,12 +6,18 @@ import com.intelligt.modbus.jlibmodbus.data.DataHolder;
 import com.intelligt.modbus.jlibmodbus.data.comm.ModbusCommEventSend;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusChecksumException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
+import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
 import com.intelligt.modbus.jlibmodbus.msg.request.GetCommEventCounterRequest;
 import com.intelligt.modbus.jlibmodbus.msg.request.GetCommEventLogRequest;
 import com.intelligt.modbus.jlibmodbus.net.ModbusConnection;
 import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransport;
+import com.intelligt.modbus.jlibmodbus.utils.VirtualThreads;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -36,10 +42,33 @@ import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransport;
  */
 class RequestHandlerSerial extends RequestHandler {
 
+    /*
+     * the port is read on the platform thread of the slave in any mode, a native read would hold the carrier
+     * of a virtual thread. If the virtual threads are enabled, a request is processed on a virtual thread of its own.
+     */
+    final private ExecutorService executor = VirtualThreads.isEnabled() ? VirtualThreads.newExecutor(1) : null;
+
     RequestHandlerSerial(ModbusSlave slave, ModbusConnection conn) {
         super(slave, conn);
     }
 
+    private ModbusResponse process(final ModbusRequest request, final DataHolder unit) throws Exception {
+        if (executor == null)
+            return request.process(unit);
+        try {
+            return executor.submit(new Callable<ModbusResponse>() {
+                @Override
+                public ModbusResponse call() throws ModbusNumberException {
+                    return request.process(unit);
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw (Exception) e.getCause();
+        }
+    }
+
     @Override
     public void closeConnection() {
         setListening(false);
@@ -63,9 +92,10 @@ class RequestHandlerSerial extends RequestHandler {
                             request instanceof GetCommEventLogRequest)) {
                         commStatus.enter();
                     }
-                    if (request.getServerAddress() == getSlave().getServerAddress()) {
+                    DataHolder unit = getSlave().getDataHolder(request.getServerAddress());
+                    if (unit != null) {
                         try {
-                            ModbusResponse response = request.process(dataHolder);
+                            ModbusResponse response = process(request, unit);
                             commStatus.incSlaveMessageCounter();
                             if (response.isException()) {
                                 commStatus.addEvent(ModbusCommEventSend.createExceptionSentRead());
@@ -95,7 +125,7 @@ class RequestHandlerSerial extends RequestHandler {
                         }
                     } else if (/*broadcast*/ request.getServerAddress() == Modbus.BROADCAST_ID && getSlave().isBroadcastEnabled()) {
                         //we do not answer these requests to avoid collisions on the bus
-                        request.process(dataHolder);
+                        getSlave().processBroadcast(request);
                     }
                 } catch (ModbusChecksumException e) {
                     commStatus.incCommErrorCounter();
@@ -1,11 +1,11 @@
 package com.intelligt.modbus.jlibmodbus.slave;
 
 import com.intelligt.modbus.jlibmodbus.Modbus;
-import com.intelligt.modbus.jlibmodbus.data.DataHolder;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
-import com.intelligt.modbus.jlibmodbus.msg.base.ModbusMessage;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.net.ModbusConnection;
 import com.intelligt.modbus.jlibmodbus.net.ModbusConnectionFactory;
 import com.intelligt.modbus.jlibmodbus.net.transport.ModbusTransport;
 
@@ -42,30 +42,40 @@ class RequestHandlerTCP extends RequestHandler {
         socket = s;
     }
 
+    /**
+     * @param conn the connection over the socket, e.g. Modbus/TCP Security one
+     */
+    RequestHandlerTCP(ModbusSlaveTCP slave, Socket s, ModbusConnection conn) {
+        super(slave, conn);
+        socket = s;
+    }
+
     @Override
     public void run() {
         setListening(true);
         try {
             getSlave().connectionOpened(getConnection());
+            /*
+             * the requests already received are processed in order and their responses are sent together,
+             * so a pipelining master doesn't wait for a write per transaction.
+             */
+            int pending = 0;
             do {
+                ModbusTransport transport = getConnection().getTransport();
                 try {
-                    DataHolder dataHolder = getSlave().getDataHolder();
-                    ModbusTransport transport = getConnection().getTransport();
                     ModbusRequest request = (ModbusRequest) transport.readRequest();
-
-                    if (/*default tcp session*/request.getServerAddress() == Modbus.TCP_DEFAULT_ID ||
-                            /*gateway*/request.getServerAddress() == getSlave().getServerAddress()) {
-                        ModbusMessage response = request.process(dataHolder);
-                        response.setTransactionId(request.getTransactionId());
-                        if (request.getServerAddress() != Modbus.BROADCAST_ID)
-                            transport.send(response);
-                    } else if (/*broadcast*/ request.getServerAddress() == Modbus.BROADCAST_ID && getSlave().isBroadcastEnabled()) {
-                        //we do not answer broadcast requests
-                        request.process(dataHolder);
+                    ModbusResponse response = getSlave().processTcpRequest(request);
+                    if (response != null) {
+                        transport.write(response);
+                        pending++;
                     }
                 } catch (ModbusNumberException e) {
                     Modbus.log().warning(e.getLocalizedMessage());
                 }
+                if (pending > 0 && (pending >= transport.getMaxPendingFrames() || !transport.isInputAvailable())) {
+                    transport.flush();
+                    pending = 0;
+                }
             } while (isListening());
         } catch (ModbusIOException e) {
             if (getSlave().isListening()) {
@@ -0,0 +1,133 @@
+package com.intelligt.modbus.jlibmodbus.slave;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+import com.intelligt.modbus.jlibmodbus.data.DataHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * maps the unit ids (server addresses) to the data holders, so a single slave serves many logical devices.
+ * The requests to the unit ids which are not in the table are served by the default data holder, if it is set.
+ * <p>
+ * The lookup is a single read of an array, the table is copied on each change, so it is intended
+ * to be filled once and changed rarely.
+ */
+final public class UnitRoutingTable {
+
+    final static private int SIZE = 256;
+
+    private volatile DataHolder[] units = new DataHolder[SIZE];
+    private volatile DataHolder defaultDataHolder = null;
+    private volatile List<DataHolder> dataHolders = Collections.emptyList();
+
+    /**
+     * @param unitId     the unit id, 1-255 (255 is the default ModbusTCP unit id)
+     * @param dataHolder the data of the unit
+     */
+    synchronized public void put(int unitId, DataHolder dataHolder) {
+        checkUnitId(unitId);
+        if (dataHolder == null)
+            throw new IllegalArgumentException("Data holder is null");
+        DataHolder[] table = units.clone();
+        table[unitId] = dataHolder;
+        units = table;
+        update();
+    }
+
+    /**
+     * @return the data holder which was mapped to the unit id or null.
+     */
+    synchronized public DataHolder remove(int unitId) {
+        checkUnitId(unitId);
+        DataHolder[] table = units.clone();
+        DataHolder dataHolder = table[unitId];
+        table[unitId] = null;
+        units = table;
+        update();
+        return dataHolder;
+    }
+
+    synchronized public void clear() {
+        units = new DataHolder[SIZE];
+        defaultDataHolder = null;
+        update();
+    }
+
+    /**
+     * @param unitId the unit id
+     * @return the data holder of the unit, the default one if the unit is not in the table,
+     * or null if the unit is not served (the broadcast address is never served).
+     */
+    public DataHolder get(int unitId) {
+        if (unitId <= Modbus.BROADCAST_ID || unitId >= SIZE)
+            return null;
+        DataHolder dataHolder = units[unitId];
+        return dataHolder != null ? dataHolder : defaultDataHolder;
+    }
+
+    public boolean contains(int unitId) {
+        return unitId > Modbus.BROADCAST_ID && unitId < SIZE && units[unitId] != null;
+    }
+
+    public DataHolder getDefault() {
+        return defaultDataHolder;
+    }
+
+    /**
+     * @param dataHolder the data holder serving the units which are not in the table, null - they are not served
+     */
+    synchronized public void setDefault(DataHolder dataHolder) {
+        defaultDataHolder = dataHolder;
+        update();
+    }
+
+    /**
+     * @return all the distinct data holders including the default one, e.g. to process a broadcast request.
+     */
+    public List<DataHolder> getDataHolders() {
+        return dataHolders;
+    }
+
+    private void update() {
+        Map<DataHolder, Boolean> distinct = new IdentityHashMap<DataHolder, Boolean>();
+        List<DataHolder> list = new ArrayList<DataHolder>();
+        for (DataHolder dataHolder : units) {
+            if (dataHolder != null && distinct.put(dataHolder, Boolean.TRUE) == null)
+                list.add(dataHolder);
+        }
+        if (defaultDataHolder != null && distinct.put(defaultDataHolder, Boolean.TRUE) == null)
+            list.add(defaultDataHolder);
+        dataHolders = Collections.unmodifiableList(list);
+    }
+
+    static private void checkUnitId(int unitId) {
+        if (unitId <= Modbus.BROADCAST_ID || unitId >= SIZE)
+            throw new IllegalArgumentException("Illegal unit id: " + unitId);
+    }
+}
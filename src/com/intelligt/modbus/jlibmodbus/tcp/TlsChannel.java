@@ -0,0 +1,389 @@
+package com.intelligt.modbus.jlibmodbus.tcp;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * TLS over a non-blocking SocketChannel, built on SSLEngine.
+ * <p>
+ * The non-blocking methods (#handshake(), #read(ByteBuffer), #write(ByteBuffer), #flush()) never wait,
+ * they can be driven by a selector: if a method can't make progress, wait for OP_WRITE if #isFlushed() is false,
+ * else for OP_READ. The methods with a timeout wait by a private selector, they are used by the blocking streams.
+ * <p>
+ * The handshake is performed by the first read or write if it's not done explicitly.
+ * To resume the sessions, the client engines have to be created by
+ * SSLContext#createSSLEngine(String, int) with the same peer host and port.
+ */
+final public class TlsChannel implements Closeable {
+
+    final static private ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    final private SocketChannel channel;
+    final private SSLEngine engine;
+    /*
+     * all the buffers are kept in the write mode
+     */
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+    private boolean handshakeStarted = false;
+    private boolean handshakeDone = false;
+    private boolean eof = false;
+    private Selector selector = null;
+    private SelectionKey key = null;
+
+    /**
+     * @param channel a connected channel, it is switched to the non-blocking mode
+     * @param engine  an engine in the client or in the server mode
+     */
+    public TlsChannel(SocketChannel channel, SSLEngine engine) throws IOException {
+        this.channel = channel;
+        this.engine = engine;
+        channel.configureBlocking(false);
+        SSLSession session = engine.getSession();
+        this.netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public SSLEngine getEngine() {
+        return engine;
+    }
+
+    public SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    public boolean isHandshakeDone() {
+        return handshakeDone;
+    }
+
+    /**
+     * @return true if all the encrypted data is passed to the socket.
+     */
+    public boolean isFlushed() {
+        return netOut.position() == 0;
+    }
+
+    /**
+     * advances the handshake as far as possible without waiting.
+     *
+     * @return true if the handshake is completed
+     * @throws IOException if the handshake fails or the connection is closed
+     */
+    public boolean handshake() throws IOException {
+        if (handshakeDone)
+            return true;
+        if (!handshakeStarted) {
+            engine.beginHandshake();
+            handshakeStarted = true;
+        }
+        while (true) {
+            if (!flush())
+                return false;
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    runTasks();
+                    break;
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    break;
+                case FINISHED:
+                case NOT_HANDSHAKING:
+                    handshakeDone = true;
+                    return flush();
+                default:
+                    /*
+                     * NEED_UNWRAP, NEED_UNWRAP_AGAIN (java 9+)
+                     */
+                    if (!unwrap()) {
+                        if (eof)
+                            throw new EOFException("Connection closed during the handshake");
+                        return false;
+                    }
+            }
+        }
+    }
+
+    /**
+     * reads the decrypted data without waiting.
+     *
+     * @return the number of bytes read, 0 if there is no data yet, -1 if the connection is closed by the peer.
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        if (!handshake())
+            return 0;
+        while (appIn.position() == 0) {
+            if (!unwrap()) {
+                return eof || engine.isInboundDone() ? -1 : 0;
+            }
+        }
+        appIn.flip();
+        int count = Math.min(appIn.remaining(), dst.remaining());
+        if (appIn.remaining() > dst.remaining()) {
+            ByteBuffer slice = appIn.duplicate();
+            slice.limit(slice.position() + count);
+            dst.put(slice);
+            appIn.position(appIn.position() + count);
+        } else {
+            dst.put(appIn);
+        }
+        appIn.compact();
+        return count;
+    }
+
+    /**
+     * encrypts the data and passes as much as possible to the socket, the rest is sent by #flush().
+     *
+     * @return the number of bytes consumed, 0 if the handshake is not completed yet.
+     */
+    public int write(ByteBuffer src) throws IOException {
+        if (!handshake())
+            return 0;
+        int count = src.remaining();
+        while (src.hasRemaining()) {
+            wrap(src);
+        }
+        flush();
+        return count;
+    }
+
+    /**
+     * @return true if all the encrypted data is passed to the socket.
+     */
+    public boolean flush() throws IOException {
+        if (netOut.position() > 0) {
+            netOut.flip();
+            try {
+                channel.write(netOut);
+            } finally {
+                netOut.compact();
+            }
+        }
+        return netOut.position() == 0;
+    }
+
+    /**
+     * performs the handshake waiting for the socket.
+     *
+     * @param timeout the time limit, in milliseconds, 0 - no limit
+     * @throws SocketTimeoutException if the time is elapsed
+     */
+    public void handshake(int timeout) throws IOException {
+        long deadline = deadline(timeout);
+        while (!handshake()) {
+            await(deadline);
+        }
+        while (!flush()) {
+            await(deadline);
+        }
+    }
+
+    /**
+     * reads the decrypted data waiting for it.
+     *
+     * @param timeout the time limit, in milliseconds, 0 - no limit
+     * @return the number of bytes read or -1 if the connection is closed by the peer.
+     * @throws SocketTimeoutException if the time is elapsed
+     */
+    public int read(ByteBuffer dst, int timeout) throws IOException {
+        long deadline = deadline(timeout);
+        int count;
+        while ((count = read(dst)) == 0 && dst.hasRemaining()) {
+            await(deadline);
+        }
+        return count;
+    }
+
+    /**
+     * writes all the data waiting for the socket.
+     *
+     * @param timeout the time limit, in milliseconds, 0 - no limit
+     * @throws SocketTimeoutException if the time is elapsed
+     */
+    public void write(ByteBuffer src, int timeout) throws IOException {
+        long deadline = deadline(timeout);
+        while (src.hasRemaining()) {
+            if (write(src) == 0)
+                await(deadline);
+        }
+        while (!flush()) {
+            await(deadline);
+        }
+    }
+
+    static private long deadline(int timeout) {
+        return timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+    }
+
+    private void await(long deadline) throws IOException {
+        if (selector == null) {
+            selector = Selector.open();
+            key = channel.register(selector, 0);
+        }
+        long wait = 0;
+        if (deadline > 0) {
+            wait = deadline - System.currentTimeMillis();
+            if (wait <= 0)
+                throw new SocketTimeoutException("Read timed out");
+        }
+        key.interestOps(isFlushed() ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+        selector.select(wait);
+        selector.selectedKeys().clear();
+    }
+
+    private void wrap(ByteBuffer src) throws IOException {
+        while (true) {
+            SSLEngineResult result = engine.wrap(src, netOut);
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW:
+                    netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+                    break;
+                case CLOSED:
+                    if (src != EMPTY)
+                        throw new SSLException("The engine is closed");
+                    return;
+                default:
+                    postHandshake(result);
+                    return;
+            }
+        }
+    }
+
+    /**
+     * @return false if there is not enough data to unwrap and nothing can be read from the socket now.
+     */
+    private boolean unwrap() throws IOException {
+        netIn.flip();
+        SSLEngineResult result;
+        try {
+            result = engine.unwrap(netIn, appIn);
+        } finally {
+            netIn.compact();
+        }
+        switch (result.getStatus()) {
+            case OK:
+                postHandshake(result);
+                return true;
+            case BUFFER_OVERFLOW:
+                appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+                return true;
+            case BUFFER_UNDERFLOW:
+                if (!netIn.hasRemaining())
+                    netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+                return receive();
+            default:
+                /*
+                 * close_notify is received
+                 */
+                eof = true;
+                return false;
+        }
+    }
+
+    private boolean receive() throws IOException {
+        if (eof)
+            return false;
+        int count = channel.read(netIn);
+        if (count < 0) {
+            eof = true;
+            try {
+                engine.closeInbound();
+            } catch (SSLException e) {
+                //the peer has closed the connection without close_notify
+            }
+            return false;
+        }
+        return count > 0;
+    }
+
+    /**
+     * handles the handshake messages which come after the handshake (e.g. session tickets, key updates).
+     */
+    private void postHandshake(SSLEngineResult result) throws IOException {
+        if (!handshakeDone)
+            return;
+        SSLEngineResult.HandshakeStatus status = result.getHandshakeStatus();
+        if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            runTasks();
+            status = engine.getHandshakeStatus();
+        }
+        if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+            wrap(EMPTY);
+            flush();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    static private ByteBuffer enlarge(ByteBuffer buffer, int size) {
+        ByteBuffer b = ByteBuffer.allocate(Math.max(size, buffer.capacity()) + buffer.position());
+        buffer.flip();
+        b.put(buffer);
+        return b;
+    }
+
+    /**
+     * sends close_notify if it's possible without waiting and closes the socket.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (handshakeDone && channel.isOpen()) {
+                engine.closeOutbound();
+                wrap(EMPTY);
+                flush();
+            }
+        } catch (IOException e) {
+            //the connection is closed anyway
+        } finally {
+            try {
+                if (selector != null)
+                    selector.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.intelligt.modbus.jlibmodbus.tcp;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManagerFactory;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * parameters of Modbus/TCP Security connections.
+ * <p>
+ * The specification requires TLS 1.2 or later and the mutual authentication by x.509v3 certificates,
+ * so the client certificates are required by default.
+ * The sessions are cached by the SSLContext, so the same context should be used for all the connections
+ * to resume the sessions (the abbreviated handshake).
+ */
+public class TlsParameters extends TcpParameters {
+
+    final static private String[] DEFAULT_PROTOCOLS = {"TLSv1.2", "TLSv1.3"};
+
+    private SSLContext sslContext = null;
+    private boolean needClientAuth = true;
+    private String[] protocols = DEFAULT_PROTOCOLS;
+    private int handshakeTimeout = Modbus.MAX_CONNECTION_TIMEOUT;
+    private String serverName = null;
+    private String endpointIdentificationAlgorithm = "HTTPS";
+
+    public TlsParameters() {
+        setPort(Modbus.TLS_PORT);
+    }
+
+    public TlsParameters(TlsParameters p) {
+        super(p);
+        setSSLContext(p.getSSLContext());
+        setNeedClientAuth(p.isNeedClientAuth());
+        setProtocols(p.getProtocols());
+        setHandshakeTimeout(p.getHandshakeTimeout());
+        setServerName(p.getServerName());
+        setEndpointIdentificationAlgorithm(p.getEndpointIdentificationAlgorithm());
+    }
+
+    public TlsParameters(InetAddress host, int port, SSLContext sslContext) {
+        super(host, port, true);
+        setSSLContext(sslContext);
+    }
+
+    public TlsParameters(String host, int port, SSLContext sslContext) {
+        super(host, port, true);
+        setSSLContext(sslContext);
+    }
+
+    /**
+     * creates an SSLContext from the key store of the device and the trust store of its peers.
+     *
+     * @param keyStore   the private key and the certificate chain, can be null for a client without a certificate
+     * @param password   the password of the keys
+     * @param trustStore the trusted certificates, null - the default trust store of the JRE
+     */
+    static public SSLContext createSSLContext(KeyStore keyStore, char[] password, KeyStore trustStore) throws GeneralSecurityException {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, password);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyStore != null ? kmf.getKeyManagers() : null, tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    /**
+     * creates an engine for a client connection. The peer host and port let the context resume the session,
+     * the host name is sent by SNI and the server certificate is checked against it.
+     */
+    public SSLEngine createClientEngine() {
+        SSLEngine engine = getSSLContext().createSSLEngine(getPeerHost(), getPort());
+        engine.setUseClientMode(true);
+        if (endpointIdentificationAlgorithm != null) {
+            SSLParameters parameters = engine.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm(endpointIdentificationAlgorithm);
+            engine.setSSLParameters(parameters);
+        }
+        enableProtocols(engine);
+        return engine;
+    }
+
+    /**
+     * @return the server name if it's set, otherwise the name the host has been resolved by (no reverse lookup is made)
+     * or the literal address.
+     */
+    private String getPeerHost() {
+        if (serverName != null)
+            return serverName;
+        InetAddress host = getHost();
+        String s = host.toString();
+        int i = s.lastIndexOf('/');
+        return i > 0 ? s.substring(0, i) : host.getHostAddress();
+    }
+
+    /**
+     * creates an engine for a connection accepted by the server.
+     */
+    public SSLEngine createServerEngine() {
+        SSLEngine engine = getSSLContext().createSSLEngine();
+        engine.setUseClientMode(false);
+        engine.setNeedClientAuth(isNeedClientAuth());
+        enableProtocols(engine);
+        return engine;
+    }
+
+    /**
+     * the protocols which are not supported by the JRE (e.g. TLSv1.3 on the early java 8 builds) are skipped.
+     */
+    private void enableProtocols(SSLEngine engine) {
+        List<String> supported = Arrays.asList(engine.getSupportedProtocols());
+        List<String> enabled = new ArrayList<String>();
+        for (String protocol : protocols) {
+            if (supported.contains(protocol))
+                enabled.add(protocol);
+        }
+        if (enabled.isEmpty())
+            throw new IllegalArgumentException("None of the protocols is supported: " + Arrays.toString(protocols));
+        engine.setEnabledProtocols(enabled.toArray(new String[enabled.size()]));
+    }
+
+    public SSLContext getSSLContext() {
+        return sslContext;
+    }
+
+    public void setSSLContext(SSLContext sslContext) {
+        this.sslContext = sslContext;
+    }
+
+    public boolean isNeedClientAuth() {
+        return needClientAuth;
+    }
+
+    /**
+     * @param needClientAuth true - the server requires the client certificate (the default)
+     */
+    public void setNeedClientAuth(boolean needClientAuth) {
+        this.needClientAuth = needClientAuth;
+    }
+
+    public String[] getProtocols() {
+        return protocols.clone();
+    }
+
+    /**
+     * @param protocols the enabled protocols, TLSv1.2 and TLSv1.3 by default
+     */
+    public void setProtocols(String[] protocols) {
+        this.protocols = protocols.clone();
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * @param serverName the host name the server certificate must be issued for, null - the name of the host (default)
+     */
+    public void setServerName(String serverName) {
+        this.serverName = serverName;
+    }
+
+    public String getEndpointIdentificationAlgorithm() {
+        return endpointIdentificationAlgorithm;
+    }
+
+    /**
+     * @param algorithm the way the server certificate is matched against the host name, "HTTPS" (RFC 2818, the default)
+     *                  or "LDAPS", null - the certificate isn't checked against the host name, any certificate trusted
+     *                  by the trust store is accepted, that is insecure.
+     */
+    public void setEndpointIdentificationAlgorithm(String algorithm) {
+        this.endpointIdentificationAlgorithm = algorithm;
+    }
+
+    public int getHandshakeTimeout() {
+        return handshakeTimeout;
+    }
+
+    /**
+     * @param handshakeTimeout the time limit of the handshake, in milliseconds
+     */
+    public void setHandshakeTimeout(int handshakeTimeout) {
+        this.handshakeTimeout = handshakeTimeout;
+    }
+}
@@ -0,0 +1,170 @@
+package com.intelligt.modbus.jlibmodbus.utils;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * table-driven conversion between binary data and Modbus ASCII characters.
+ * Both directions accumulate the LRC sum of the binary data in the same pass and allocate nothing,
+ * the sum of a frame is turned to the LRC by {@link #lrc(int)}.
+ */
+final public class AsciiCodec {
+
+    final static private byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    /*
+     * the value of a hex digit character, -1 if the character isn't a hex digit
+     */
+    final static private byte[] NIBBLE = new byte[256];
+
+    static {
+        for (int i = 0; i < NIBBLE.length; i++) {
+            NIBBLE[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            NIBBLE['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            NIBBLE['A' + i] = (byte) (10 + i);
+            NIBBLE['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private AsciiCodec() {
+    }
+
+    /**
+     * @param sum the sum of the frame bytes
+     * @return the LRC of the frame
+     */
+    static public int lrc(int sum) {
+        return (byte) -sum & 0xff;
+    }
+
+    static public byte high(int b) {
+        return HEX[(b >> 4) & 0xf];
+    }
+
+    static public byte low(int b) {
+        return HEX[b & 0xf];
+    }
+
+    /**
+     * @param h the high hex digit
+     * @param l the low hex digit
+     * @return the byte value, or -1 if any of the characters isn't a hex digit.
+     */
+    static public int decode(int h, int l) {
+        int hi = NIBBLE[h & 0xff];
+        int lo = NIBBLE[l & 0xff];
+        return (hi | lo) < 0 ? -1 : (hi << 4) | lo;
+    }
+
+    /**
+     * writes two characters per byte of src into dst.
+     *
+     * @param sum    the current LRC sum
+     * @param src    binary data
+     * @param off    the offset in src
+     * @param len    the number of bytes to encode
+     * @param dst    the destination, it should have 2 * len bytes at dstOff
+     * @param dstOff the offset in dst
+     * @return the updated LRC sum
+     */
+    static public int encode(int sum, byte[] src, int off, int len, byte[] dst, int dstOff) {
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            int b = src[i];
+            sum += b;
+            dst[dstOff++] = HEX[(b >> 4) & 0xf];
+            dst[dstOff++] = HEX[b & 0xf];
+        }
+        return sum;
+    }
+
+    /**
+     * reads two characters per byte from src and writes the bytes into dst.
+     * An invalid character pair is decoded as 0, so the frame fails the LRC check.
+     *
+     * @param sum    the current LRC sum
+     * @param src    ASCII characters
+     * @param off    the offset in src
+     * @param len    the number of bytes to decode, src should have 2 * len characters at off
+     * @param dst    the destination
+     * @param dstOff the offset in dst
+     * @return the updated LRC sum
+     */
+    static public int decode(int sum, byte[] src, int off, int len, byte[] dst, int dstOff) {
+        final int end = dstOff + len;
+        for (int i = dstOff; i < end; i++) {
+            int hi = NIBBLE[src[off++] & 0xff];
+            int lo = NIBBLE[src[off++] & 0xff];
+            byte b = (hi | lo) < 0 ? 0 : (byte) ((hi << 4) | lo);
+            sum += b;
+            dst[i] = b;
+        }
+        return sum;
+    }
+
+    /**
+     * encodes the remaining bytes of src into dst, the positions of both buffers are advanced.
+     *
+     * @param sum the current LRC sum
+     * @param src binary data
+     * @param dst the destination, it should have room for 2 * src.remaining() characters
+     * @return the updated LRC sum
+     * @throws java.nio.BufferOverflowException if dst is too small
+     */
+    static public int encode(int sum, ByteBuffer src, ByteBuffer dst) {
+        while (src.hasRemaining()) {
+            int b = src.get();
+            sum += (byte) b;
+            dst.put(HEX[(b >> 4) & 0xf]);
+            dst.put(HEX[b & 0xf]);
+        }
+        return sum;
+    }
+
+    /**
+     * decodes the remaining characters of src into dst, the positions of both buffers are advanced.
+     * A trailing odd character is left in src.
+     *
+     * @param sum the current LRC sum
+     * @param src ASCII characters
+     * @param dst the destination, it should have room for src.remaining() / 2 bytes
+     * @return the updated LRC sum
+     * @throws java.nio.BufferOverflowException if dst is too small
+     */
+    static public int decode(int sum, ByteBuffer src, ByteBuffer dst) {
+        while (src.remaining() >= 2) {
+            int hi = NIBBLE[src.get() & 0xff];
+            int lo = NIBBLE[src.get() & 0xff];
+            byte b = (hi | lo) < 0 ? 0 : (byte) ((hi << 4) | lo);
+            sum += b;
+            dst.put(b);
+        }
+        return sum;
+    }
+}
@@ -2,6 +2,7 @@ package com.intelligt.modbus.jlibmodbus.utils;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
@@ -47,6 +48,16 @@ final public class ByteFifo {
         return baos.toByteArray();
     }
 
+    /**
+     * writes the content to the output stream without copying it.
+     *
+     * @param out the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        baos.writeTo(out);
+    }
+
     public int size() {
         return baos.size();
     }
@@ -0,0 +1,154 @@
+package com.intelligt.modbus.jlibmodbus.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * lock-free byte ring buffer for a single producer and a single consumer thread.
+ * The positions grow monotonically, the capacity is a power of two, so a position is mapped to the array by a mask.
+ * The consumer may wait for the data, it is parked until the producer publishes the next bytes.
+ */
+final public class ByteRingBuffer {
+
+    final private byte[] buffer;
+    final private int mask;
+    private volatile long head = 0;
+    private volatile long tail = 0;
+    private volatile Thread waiter = null;
+
+    /**
+     * @param capacity the minimal capacity, it is rounded up to a power of two.
+     */
+    public ByteRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30))
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.buffer = new byte[size];
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * @return the number of bytes which can be read without waiting.
+     */
+    public int available() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * producer side: copies as many bytes as fit into the free space and wakes up the consumer.
+     *
+     * @return the number of bytes written, less than len if the buffer is full.
+     */
+    public int write(byte[] b, int off, int len) {
+        long t = tail;
+        int n = Math.min(len, buffer.length - (int) (t - head));
+        if (n <= 0)
+            return 0;
+        int index = (int) t & mask;
+        int first = Math.min(n, buffer.length - index);
+        System.arraycopy(b, off, buffer, index, first);
+        System.arraycopy(b, off + first, buffer, 0, n - first);
+        tail = t + n;
+        Thread w = waiter;
+        if (w != null)
+            LockSupport.unpark(w);
+        return n;
+    }
+
+    /**
+     * consumer side: copies the available bytes without waiting.
+     *
+     * @return the number of bytes read, 0 if the buffer is empty.
+     */
+    public int read(byte[] b, int off, int len) {
+        long h = head;
+        int n = Math.min(len, (int) (tail - h));
+        if (n <= 0)
+            return 0;
+        int index = (int) h & mask;
+        int first = Math.min(n, buffer.length - index);
+        System.arraycopy(buffer, index, b, off, first);
+        System.arraycopy(buffer, 0, b, off + first, n - first);
+        head = h + n;
+        return n;
+    }
+
+    /**
+     * consumer side: reads a single byte without waiting.
+     *
+     * @return the byte (0-255) or -1 if the buffer is empty.
+     */
+    public int read() {
+        long h = head;
+        if (tail == h)
+            return -1;
+        int b = buffer[(int) h & mask] & 0xff;
+        head = h + 1;
+        return b;
+    }
+
+    /**
+     * consumer side: waits until there are bytes to read.
+     *
+     * @param timeout the time to wait, in milliseconds, 0 - forever
+     * @return true if the data is available, false if the time is elapsed or the thread is interrupted.
+     */
+    public boolean await(int timeout) {
+        if (available() > 0)
+            return true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        waiter = Thread.currentThread();
+        try {
+            while (available() == 0) {
+                if (Thread.currentThread().isInterrupted())
+                    return false;
+                if (timeout > 0) {
+                    long nanos = deadline - System.nanoTime();
+                    if (nanos <= 0)
+                        return false;
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * consumer side: discards the available bytes.
+     */
+    public void clear() {
+        head = tail;
+    }
+}
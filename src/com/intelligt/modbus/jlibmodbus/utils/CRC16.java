@@ -1,5 +1,8 @@
 package com.intelligt.modbus.jlibmodbus.utils;
 
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
 /*
  * Copyright (C) 2016 "Invertor" Factory", JSC
  * [http://www.sbp-invertor.ru]
@@ -22,7 +25,13 @@ package com.intelligt.modbus.jlibmodbus.utils;
  * email: vladislav.kochedykov@gmail.com
  */
 
-public class CRC16 {
+/**
+ * Modbus RTU CRC-16 (polynomial 0xA001 reflected, initial value 0xFFFF).
+ * The static methods take the current crc and return the updated one,
+ * an instance keeps the crc of a frame being sent or received.
+ * Arrays and buffers are processed 8 bytes per iteration using the slicing-by-8 tables.
+ */
+public class CRC16 implements Checksum {
 
     final static public int INITIAL_VALUE = 0xFFFF;
     final static private int[] table = {
@@ -59,6 +68,26 @@ public class CRC16 {
             0x4400, 0x84C1, 0x8581, 0x4540, 0x8701, 0x47C0, 0x4680, 0x8641,
             0x8201, 0x42C0, 0x4380, 0x8341, 0x4100, 0x81C1, 0x8081, 0x4040,
     };
+    final static private int SLICES = 8;
+    /*
+     * slices[k * 256 + i] is the crc of the byte i followed by k zero bytes
+     */
+    final static private int[] slices = new int[SLICES * 256];
+
+    static {
+        System.arraycopy(table, 0, slices, 0, 256);
+        for (int k = 1; k < SLICES; k++) {
+            for (int i = 0; i < 256; i++) {
+                int c = slices[(k - 1) * 256 + i];
+                slices[k * 256 + i] = (c >>> 8) ^ table[c & 0xff];
+            }
+        }
+    }
+
+    private int crc = INITIAL_VALUE;
+
+    public CRC16() {
+    }
 
     static public int calc(byte[] bytes) {
         return calc(INITIAL_VALUE, bytes, bytes.length);
@@ -73,10 +102,53 @@ public class CRC16 {
     }
 
     static public int calc(int crc, byte[] bytes, int offset, int length) {
-        for (int i = offset; i < offset + length; i++) {
-            crc = calc(crc, bytes[i]);
+        final int[] t = slices;
+        final int end = offset + length;
+        int i = offset;
+        crc &= 0xffff;
+        for (; end - i >= 8; i += 8) {
+            crc ^= (bytes[i] & 0xff) | ((bytes[i + 1] & 0xff) << 8);
+            crc = t[7 * 256 + (crc & 0xff)] ^ t[6 * 256 + (crc >>> 8)]
+                    ^ t[5 * 256 + (bytes[i + 2] & 0xff)] ^ t[4 * 256 + (bytes[i + 3] & 0xff)]
+                    ^ t[3 * 256 + (bytes[i + 4] & 0xff)] ^ t[2 * 256 + (bytes[i + 5] & 0xff)]
+                    ^ t[256 + (bytes[i + 6] & 0xff)] ^ t[bytes[i + 7] & 0xff];
+        }
+        if (end - i >= 4) {
+            crc ^= (bytes[i] & 0xff) | ((bytes[i + 1] & 0xff) << 8);
+            crc = t[3 * 256 + (crc & 0xff)] ^ t[2 * 256 + (crc >>> 8)]
+                    ^ t[256 + (bytes[i + 2] & 0xff)] ^ t[bytes[i + 3] & 0xff];
+            i += 4;
         }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ table[(crc ^ bytes[i]) & 0xff];
+        }
+        return crc;
+    }
 
+    /**
+     * calculates the crc of the remaining bytes of the buffer, the position of the buffer is not changed.
+     *
+     * @param crc    the current crc
+     * @param buffer the data
+     * @return the updated crc
+     */
+    static public int calc(int crc, ByteBuffer buffer) {
+        if (buffer.hasArray())
+            return calc(crc, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        final int[] t = slices;
+        final int end = buffer.limit();
+        int i = buffer.position();
+        crc &= 0xffff;
+        for (; end - i >= 8; i += 8) {
+            crc ^= (buffer.get(i) & 0xff) | ((buffer.get(i + 1) & 0xff) << 8);
+            crc = t[7 * 256 + (crc & 0xff)] ^ t[6 * 256 + (crc >>> 8)]
+                    ^ t[5 * 256 + (buffer.get(i + 2) & 0xff)] ^ t[4 * 256 + (buffer.get(i + 3) & 0xff)]
+                    ^ t[3 * 256 + (buffer.get(i + 4) & 0xff)] ^ t[2 * 256 + (buffer.get(i + 5) & 0xff)]
+                    ^ t[256 + (buffer.get(i + 6) & 0xff)] ^ t[buffer.get(i + 7) & 0xff];
+        }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ table[(crc ^ buffer.get(i)) & 0xff];
+        }
         return crc;
     }
 
@@ -99,8 +171,48 @@ public class CRC16 {
     }
 
     static public int calc(int crc, byte b) {
-        crc = (short) crc & 0xffff;
-        return (crc >>> 8) ^ table[(crc ^ b) & 0xff];
+        return ((crc & 0xffff) >>> 8) ^ table[(crc ^ b) & 0xff];
+    }
+
+    @Override
+    public void update(int b) {
+        crc = calc(crc, (byte) b);
+    }
+
+    public void update(byte[] b) {
+        crc = calc(crc, b, 0, b.length);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        crc = calc(crc, b, off, len);
+    }
+
+    /**
+     * updates the crc with the remaining bytes of the buffer, the position of the buffer is moved to its limit.
+     *
+     * @param buffer the data
+     */
+    public void update(ByteBuffer buffer) {
+        crc = calc(crc, buffer);
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * @return the crc, the low byte goes first in a frame.
+     */
+    public int getCrc() {
+        return crc;
+    }
+
+    @Override
+    public long getValue() {
+        return crc;
+    }
+
+    @Override
+    public void reset() {
+        crc = INITIAL_VALUE;
     }
 
 }
@@ -26,12 +26,8 @@ import java.util.Locale;
 public class DataUtils {
 
     static public int fromAscii(char h, char l) {
-        try {
-            return Integer.parseInt("" + h + l, 16);
-        } catch (NumberFormatException e) {
-            e.printStackTrace();
-            return 0;
-        }
+        int b = h > 0xff || l > 0xff ? -1 : AsciiCodec.decode(h, l);
+        return b < 0 ? 0 : b;
     }
 
     static public String toAscii(byte b) {
@@ -43,24 +39,30 @@ public class DataUtils {
     }
 
     static public String toAscii(byte[] bytes, int offset, int length) {
-        StringBuilder sb = new StringBuilder();
-        int tail = offset + length;
-
-        for (int i = offset; i < tail; i++) {
-            sb.append(toHexString(bytes[i]));
+        char[] chars = new char[2 * length];
+        for (int i = 0; i < length; i++) {
+            chars[2 * i] = (char) AsciiCodec.high(bytes[offset + i]);
+            chars[2 * i + 1] = (char) AsciiCodec.low(bytes[offset + i]);
         }
-
-        return sb.toString().toUpperCase(Locale.ENGLISH);
+        return new String(chars);
     }
 
     static public String toHexString(byte b) {
         return (((b & 0xff) < 0x10) ? "0" : "") + Integer.toString(b & 0xff, 16).toUpperCase(Locale.ENGLISH);
     }
 
+    /**
+     * @return the number of bytes needed to pack the bitCount bits.
+     */
+    static public int bytesForBits(int bitCount) {
+        return (bitCount + 7) >>> 3;
+    }
+
     static public byte[] toByteArray(boolean[] bits) {
-        byte[] dst = new byte[(int) Math.ceil((double) bits.length / 8)];
+        byte[] dst = new byte[bytesForBits(bits.length)];
         for (int i = 0; i < bits.length; i++) {
-            dst[i / 8] |= (byte) ((bits[i] ? 1 : 0) << (i % 8));
+            if (bits[i])
+                dst[i >> 3] |= (byte) (1 << (i & 7));
         }
         return dst;
     }
@@ -68,7 +70,7 @@ public class DataUtils {
     static public boolean[] toBitsArray(byte[] bytes, int bitCount) {
         boolean[] dst = new boolean[bitCount];
         for (int i = 0; i < dst.length; i++) {
-            dst[i] = (bytes[i / 8] & (1 << (i % 8))) != 0;
+            dst[i] = (bytes[i >> 3] & (1 << (i & 7))) != 0;
         }
         return dst;
     }
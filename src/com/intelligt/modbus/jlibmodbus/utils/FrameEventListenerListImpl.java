@@ -1,7 +1,8 @@
 package com.intelligt.modbus.jlibmodbus.utils;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /*
  * Copyright (C) 2017 "Invertor" Factory", JSC
  * [http://www.sbp-invertor.ru]
@@ -29,22 +30,21 @@ import java.util.List;
  * @since 1.9.0
  */
 public class FrameEventListenerListImpl implements FrameEventListenerList {
-    private final List<FrameEventListener> eventListenerList = new ArrayList<FrameEventListener>();
+    /*
+     * copy-on-write: the events are fired on every frame, the listeners are rarely changed.
+     */
+    private final List<FrameEventListener> eventListenerList = new CopyOnWriteArrayList<FrameEventListener>();
 
     public FrameEventListenerListImpl() {
 
     }
 
     public void addListener(FrameEventListener listener) {
-        synchronized (this) {
-            eventListenerList.add(listener);
-        }
+        eventListenerList.add(listener);
     }
 
     public void removeListener(FrameEventListener listener) {
-        synchronized (this) {
-            eventListenerList.remove(listener);
-        }
+        eventListenerList.remove(listener);
     }
 
     @Override
@@ -0,0 +1,130 @@
+package com.intelligt.modbus.jlibmodbus.utils;
+
+import com.intelligt.modbus.jlibmodbus.Modbus;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Copyright (C) 2017 Vladislav Y. Kochedykov
+ * [https://github.com/kochedykov/jlibmodbus]
+ *
+ * This file is part of JLibModbus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Vladislav Y. Kochedykov, software engineer.
+ * email: vladislav.kochedykov@gmail.com
+ */
+
+/**
+ * access to the virtual threads of JDK 21+ without compiling against it.
+ * The library is built for Java 8, so the API is looked up by reflection once;
+ * on the older runtimes #isSupported returns false and the platform threads are used instead.
+ *
+ * @see Modbus#setVirtualThreadsEnabled(boolean)
+ */
+final public class VirtualThreads {
+
+    final static private ThreadFactory factory = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    static private ThreadFactory lookupFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Method name = Class.forName("java.lang.Thread$Builder").getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, "jlibmodbus-virtual-", 0L);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the runtime provides virtual threads
+     */
+    static public boolean isSupported() {
+        return factory != null;
+    }
+
+    /**
+     * @return true if virtual threads are supported and enabled by Modbus#setVirtualThreadsEnabled
+     */
+    static public boolean isEnabled() {
+        return isSupported() && Modbus.isVirtualThreadsEnabled();
+    }
+
+    /**
+     * creates a (not started) virtual thread if they are enabled, else a platform thread.
+     *
+     * @param task the runnable to execute
+     * @param name the name of the thread
+     * @return a new thread
+     */
+    static public Thread newThread(Runnable task, String name) {
+        Thread t = isEnabled() ? factory.newThread(task) : new Thread(task);
+        t.setName(name);
+        return t;
+    }
+
+    /**
+     * creates an executor starting a virtual thread per task if they are enabled,
+     * else a fixed pool of platform threads.
+     *
+     * @param poolSize the number of the platform threads, it is ignored for the virtual threads: the tasks aren't limited
+     * @return a new executor
+     */
+    static public ExecutorService newExecutor(int poolSize) {
+        if (isEnabled())
+            return newVirtualExecutor();
+        return Executors.newFixedThreadPool(poolSize);
+    }
+
+    /**
+     * creates an executor starting a virtual thread per task if they are enabled,
+     * else a single daemon platform thread, which ends if it is idle for a minute.
+     *
+     * @param name the name of the platform thread
+     * @return a new executor
+     */
+    static public ExecutorService newSingleExecutor(final String name) {
+        if (isEnabled())
+            return newVirtualExecutor();
+        return new ThreadPoolExecutor(0, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    static private ExecutorService newVirtualExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) m.invoke(null, factory);
+        } catch (Exception e) {
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+}